@@ -0,0 +1,87 @@
+package com.buggysofts.streamzip.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Helpers shared by the benchmarks.
+ */
+final class BenchmarkSupport {
+    /**
+     * Entries up to this size are considered small, i.e. they are picked by the small entry benchmarks.
+     */
+    static final long SMALL_ENTRY_MAX_SIZE = 64 * 1024;
+
+    static final int READ_BUFFER_SIZE = 8192;
+
+    private BenchmarkSupport() {
+    }
+
+    /**
+     * Read the given stream to its end, and close it.
+     *
+     * @return Number of bytes read.
+     */
+    static long drain(InputStream in, byte[] buffer) throws IOException {
+        try {
+            long total = 0;
+            int count;
+            while ((count = in.read(buffer)) != -1) {
+                total += count;
+            }
+            return total;
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Names of the entries of a corpus, in a fixed pseudo random order.
+     * The reference implementation ({@link ZipFile}) is used to list them, so a broken StreamZip can not
+     * make its own benchmarks easier.
+     */
+    static final class EntryNames {
+        final String[] all;
+        final String[] small;
+        final String largest;
+
+        EntryNames(Path path) throws IOException {
+            List<String> allNames = new ArrayList<>();
+            List<String> smallNames = new ArrayList<>();
+            String largestName = null;
+            long largestSize = -1;
+            try (ZipFile zipFile = new ZipFile(path.toFile())) {
+                Enumeration<? extends ZipEntry> entries = zipFile.entries();
+                while (entries.hasMoreElements()) {
+                    ZipEntry entry = entries.nextElement();
+                    if (entry.isDirectory()) {
+                        continue;
+                    }
+                    allNames.add(entry.getName());
+                    if (entry.getSize() <= SMALL_ENTRY_MAX_SIZE) {
+                        smallNames.add(entry.getName());
+                    }
+                    if (entry.getSize() > largestSize) {
+                        largestSize = entry.getSize();
+                        largestName = entry.getName();
+                    }
+                }
+            }
+
+            Random random = new Random(allNames.size());
+            Collections.shuffle(allNames, random);
+            Collections.shuffle(smallNames, random);
+            this.all = allNames.toArray(new String[0]);
+            this.small = smallNames.toArray(new String[0]);
+            this.largest = largestName;
+        }
+    }
+}
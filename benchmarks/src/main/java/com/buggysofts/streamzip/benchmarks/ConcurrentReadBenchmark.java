@@ -0,0 +1,86 @@
+package com.buggysofts.streamzip.benchmarks;
+
+import com.buggysofts.streamzip.StreamZip;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.FileInputStream;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipFile;
+
+/**
+ * Throughput of reading random small entries from one archive, shared by several threads.
+ * <br>
+ * Use {@code -t} to change the number of threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class ConcurrentReadBenchmark {
+    @Param({"STORED", "DEFLATED"})
+    private Corpus corpus;
+
+    private StreamZip streamZip;
+    private ZipFile zipFile;
+    private String[] names;
+
+    @Setup
+    public void setup() throws Exception {
+        Path path = CorpusGenerator.resolve(corpus);
+        names = new BenchmarkSupport.EntryNames(path).small;
+        streamZip = new StreamZip(new FileInputStream(path.toFile()));
+        zipFile = new ZipFile(path.toFile());
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        streamZip.close();
+        zipFile.close();
+    }
+
+    /**
+     * State of a single reader thread.
+     */
+    @State(Scope.Thread)
+    public static class Reader {
+        private final SplittableRandom random = new SplittableRandom(Thread.currentThread().getId());
+        private final byte[] buffer = new byte[BenchmarkSupport.READ_BUFFER_SIZE];
+
+        String nextName(String[] names) {
+            return names[random.nextInt(names.length)];
+        }
+    }
+
+    @Benchmark
+    public long streamZip(Reader reader) throws Exception {
+        return BenchmarkSupport.drain(
+                streamZip.getInputStream(streamZip.getEntry(reader.nextName(names))),
+                reader.buffer
+        );
+    }
+
+    @Benchmark
+    public long zipFile(Reader reader) throws Exception {
+        return BenchmarkSupport.drain(
+                zipFile.getInputStream(zipFile.getEntry(reader.nextName(names))),
+                reader.buffer
+        );
+    }
+}
@@ -0,0 +1,42 @@
+package com.buggysofts.streamzip.benchmarks;
+
+/**
+ * The synthetic zip archives the benchmarks run against. See {@link CorpusGenerator} for the exact content of each.
+ */
+public enum Corpus {
+    /**
+     * A million tiny deflated entries spread over a thousand directories. Needs a Zip64 end of central directory,
+     * as the entry count does not fit in the classic one.
+     */
+    TINY_ENTRIES("tiny-entries.zip"),
+
+    /**
+     * A thousand small entries and one large entry, all stored (i.e. not compressed).
+     */
+    STORED("stored.zip"),
+
+    /**
+     * Same entries as {@link #STORED}, but deflated.
+     */
+    DEFLATED("deflated.zip"),
+
+    /**
+     * A thousand small deflated entries, each with a long comment, and an archive comment of the maximum length.
+     */
+    LONG_COMMENT("long-comment.zip"),
+
+    /**
+     * A thousand small entries and one stored entry larger than 4 GB, i.e. an entry with Zip64 sizes and offsets.
+     */
+    ZIP64("zip64.zip");
+
+    private final String fileName;
+
+    Corpus(String fileName) {
+        this.fileName = fileName;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+}
@@ -0,0 +1,277 @@
+package com.buggysofts.streamzip.benchmarks;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Generates the {@link Corpus} archives.
+ * <br>
+ * <br>
+ * The generated archives are reproducible, i.e. the same corpus always has the same entries, with the same content
+ * and the same timestamps, no matter when or where it is generated. So results taken on different machines, or
+ * against different versions of the library, are comparable.
+ * <br>
+ * <br>
+ * Usage: {@code java -cp benchmarks.jar com.buggysofts.streamzip.benchmarks.CorpusGenerator [dir] [corpus...]}
+ * <br>
+ * The benchmarks generate a missing corpus on their own, so running the generator up front is only needed to
+ * keep the (rather long, for {@link Corpus#TINY_ENTRIES} and {@link Corpus#ZIP64}) generation out of a benchmark run.
+ */
+public final class CorpusGenerator {
+    /**
+     * System property that sets the directory the corpora are generated in, and looked up from.
+     */
+    public static final String CORPUS_DIR_PROPERTY = "streamzip.corpus.dir";
+
+    private static final String DEFAULT_CORPUS_DIR = "target/corpus";
+
+    private static final long SEED = 0x5eed2015L;
+    private static final int CONTENT_BLOCK_SIZE = 1 << 20;
+    private static final String[] WORDS = {
+            "zip", "stream", "entry", "central", "directory", "header", "local", "file", "data", "descriptor",
+            "deflate", "inflate", "store", "offset", "size", "crc", "comment", "extra", "field", "archive",
+            "record", "signature", "version", "method", "time", "date", "name", "length", "buffer", "channel",
+            "the", "a", "of", "to", "and", "in", "is", "for", "with", "on"
+    };
+
+    private static final int TINY_ENTRY_COUNT = 1_000_000;
+    private static final int TINY_DIRECTORY_COUNT = 1_000;
+    private static final int TINY_ENTRY_MAX_SIZE = 64;
+
+    private static final int SMALL_ENTRY_COUNT = 1_000;
+    private static final int SMALL_ENTRY_SIZE = 4 * 1024;
+    private static final long LARGE_ENTRY_SIZE = 64L * 1024 * 1024;
+    private static final long ZIP64_LARGE_ENTRY_SIZE = (4L * 1024 * 1024 * 1024) + (512L * 1024 * 1024);
+
+    private static final int ENTRY_COMMENT_LENGTH = 1024;
+    private static final int ARCHIVE_COMMENT_LENGTH = 0xFFFF;
+
+    // a fixed wall clock time, so the dos time written to the archive is the same in every time zone
+    private static final long ENTRY_TIME = LocalDateTime.of(2020, 1, 1, 0, 0)
+            .atZone(ZoneId.systemDefault())
+            .toInstant()
+            .toEpochMilli();
+
+    private CorpusGenerator() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path dir = args.length > 0 ? Paths.get(args[0]) : getCorpusDir();
+        Corpus[] corpora = Corpus.values();
+        if (args.length > 1) {
+            corpora = new Corpus[args.length - 1];
+            for (int i = 1; i < args.length; ++i) {
+                corpora[i - 1] = Corpus.valueOf(args[i]);
+            }
+        }
+
+        for (Corpus corpus : corpora) {
+            long start = System.nanoTime();
+            Path path = generate(dir, corpus);
+            System.out.printf(
+                    "%s: %s (%d bytes) in %d ms%n",
+                    corpus,
+                    path,
+                    Files.size(path),
+                    (System.nanoTime() - start) / 1_000_000
+            );
+        }
+    }
+
+    /**
+     * Directory the corpora are generated in, i.e. the value of {@link #CORPUS_DIR_PROPERTY},
+     * or {@code target/corpus} if it is not set.
+     */
+    public static Path getCorpusDir() {
+        return Paths.get(System.getProperty(CORPUS_DIR_PROPERTY, DEFAULT_CORPUS_DIR));
+    }
+
+    /**
+     * Path of the given corpus in the corpus directory. The corpus is generated first if it does not exist yet.
+     */
+    public static synchronized Path resolve(Corpus corpus) throws IOException {
+        Path path = getCorpusDir().resolve(corpus.getFileName());
+        if (Files.isRegularFile(path)) {
+            return path;
+        }
+        return generate(getCorpusDir(), corpus);
+    }
+
+    /**
+     * Generate the given corpus in the given directory, replacing any existing one.
+     * <br>
+     * The archive is written under a temporary name first, so an interrupted run never leaves a truncated
+     * archive behind to be picked up by {@link #resolve(Corpus)}.
+     */
+    public static Path generate(Path dir, Corpus corpus) throws IOException {
+        Files.createDirectories(dir);
+        Path target = dir.resolve(corpus.getFileName());
+        Path tempFile = Files.createTempFile(dir, corpus.getFileName(), ".tmp");
+        try {
+            Content content = new Content(SEED);
+            try (ZipOutputStream out = new ZipOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(tempFile), 1 << 16))) {
+                switch (corpus) {
+                    case TINY_ENTRIES:
+                        writeTinyEntries(out, content);
+                        break;
+                    case STORED:
+                        writeSmallEntries(out, content, ZipEntry.STORED, null);
+                        writeEntry(out, content, "large.bin", ZipEntry.STORED, LARGE_ENTRY_SIZE, null);
+                        break;
+                    case DEFLATED:
+                        writeSmallEntries(out, content, ZipEntry.DEFLATED, null);
+                        writeEntry(out, content, "large.bin", ZipEntry.DEFLATED, LARGE_ENTRY_SIZE, null);
+                        break;
+                    case LONG_COMMENT:
+                        writeSmallEntries(out, content, ZipEntry.DEFLATED, content.text(ENTRY_COMMENT_LENGTH));
+                        out.setComment(content.text(ARCHIVE_COMMENT_LENGTH));
+                        break;
+                    case ZIP64:
+                        writeSmallEntries(out, content, ZipEntry.DEFLATED, null);
+                        writeEntry(out, content, "large.bin", ZipEntry.STORED, ZIP64_LARGE_ENTRY_SIZE, null);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown corpus: " + corpus);
+                }
+            }
+            Files.move(tempFile, target, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+        return target;
+    }
+
+    private static void writeTinyEntries(ZipOutputStream out, Content content) throws IOException {
+        int entriesPerDirectory = TINY_ENTRY_COUNT / TINY_DIRECTORY_COUNT;
+        for (int i = 0; i < TINY_DIRECTORY_COUNT; ++i) {
+            String directory = String.format("tiny/%03d/", i);
+            ZipEntry directoryEntry = new ZipEntry(directory);
+            directoryEntry.setTime(ENTRY_TIME);
+            out.putNextEntry(directoryEntry);
+            out.closeEntry();
+
+            for (int j = 0; j < entriesPerDirectory; ++j) {
+                writeEntry(
+                        out,
+                        content,
+                        String.format("%s%06d.txt", directory, (i * entriesPerDirectory) + j),
+                        ZipEntry.DEFLATED,
+                        1 + content.nextInt(TINY_ENTRY_MAX_SIZE),
+                        null
+                );
+            }
+        }
+    }
+
+    private static void writeSmallEntries(ZipOutputStream out,
+                                          Content content,
+                                          int method,
+                                          String comment) throws IOException {
+        for (int i = 0; i < SMALL_ENTRY_COUNT; ++i) {
+            writeEntry(out, content, String.format("small/%04d.txt", i), method, SMALL_ENTRY_SIZE, comment);
+        }
+    }
+
+    private static void writeEntry(ZipOutputStream out,
+                                   Content content,
+                                   String name,
+                                   int method,
+                                   long size,
+                                   String comment) throws IOException {
+        long contentOffset = content.nextOffset();
+
+        ZipEntry entry = new ZipEntry(name);
+        entry.setTime(ENTRY_TIME);
+        entry.setMethod(method);
+        if (comment != null) {
+            entry.setComment(comment);
+        }
+        if (method == ZipEntry.STORED) {
+            // stored entries need their sizes and checksum in the local file header
+            entry.setSize(size);
+            entry.setCompressedSize(size);
+            entry.setCrc(content.crc(contentOffset, size));
+        }
+
+        out.putNextEntry(entry);
+        content.write(out, contentOffset, size);
+        out.closeEntry();
+    }
+
+    /**
+     * Deterministic, text like (and so, compressible) content. Entry data is taken from a fixed block of
+     * pseudo random words, starting at a pseudo random offset, wrapping around at the end of the block.
+     */
+    private static final class Content {
+        private final Random random;
+        private final byte[] block;
+
+        Content(long seed) {
+            this.random = new Random(seed);
+            this.block = new byte[CONTENT_BLOCK_SIZE];
+
+            int position = 0;
+            while (position < block.length) {
+                byte[] word = WORDS[random.nextInt(WORDS.length)].getBytes(StandardCharsets.US_ASCII);
+                int length = Math.min(word.length, block.length - position);
+                System.arraycopy(word, 0, block, position, length);
+                position += length;
+                if (position < block.length) {
+                    block[position++] = (byte) (random.nextInt(16) == 0 ? '\n' : ' ');
+                }
+            }
+        }
+
+        int nextInt(int bound) {
+            return random.nextInt(bound);
+        }
+
+        long nextOffset() {
+            return random.nextInt(block.length);
+        }
+
+        String text(int length) {
+            char[] chars = new char[length];
+            int offset = random.nextInt(block.length);
+            for (int i = 0; i < length; ++i) {
+                chars[i] = (char) block[(offset + i) % block.length];
+            }
+            return new String(chars);
+        }
+
+        void write(OutputStream out, long offset, long length) throws IOException {
+            int position = (int) (offset % block.length);
+            while (length > 0) {
+                int count = (int) Math.min(block.length - position, length);
+                out.write(block, position, count);
+                length -= count;
+                position = 0;
+            }
+        }
+
+        long crc(long offset, long length) {
+            CRC32 crc = new CRC32();
+            int position = (int) (offset % block.length);
+            while (length > 0) {
+                int count = (int) Math.min(block.length - position, length);
+                crc.update(block, position, count);
+                length -= count;
+                position = 0;
+            }
+            return crc.getValue();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.buggysofts.streamzip.benchmarks;
+
+import com.buggysofts.streamzip.StreamZip;
+import com.buggysofts.streamzip.ZipEntryView;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.FileInputStream;
+import java.nio.file.Path;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Time to visit every entry of an already open archive, reading the size of each.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IterationBenchmark {
+    @Param({"TINY_ENTRIES", "DEFLATED"})
+    private Corpus corpus;
+
+    private StreamZip streamZip;
+    private ZipFile zipFile;
+
+    @Setup
+    public void setup() throws Exception {
+        Path path = CorpusGenerator.resolve(corpus);
+        streamZip = new StreamZip(new FileInputStream(path.toFile()));
+        zipFile = new ZipFile(path.toFile());
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        streamZip.close();
+        zipFile.close();
+    }
+
+    @Benchmark
+    public long streamZipEntries() {
+        long total = 0;
+        List<com.buggysofts.streamzip.ZipEntry> entries = streamZip.entries();
+        for (int i = 0; i < entries.size(); ++i) {
+            total += entries.get(i).getUncompressedSize();
+        }
+        return total;
+    }
+
+    @Benchmark
+    public long streamZipEntryIterator() {
+        long total = 0;
+        Iterator<ZipEntryView> iterator = streamZip.entryIterator();
+        while (iterator.hasNext()) {
+            total += iterator.next().getUncompressedSize();
+        }
+        return total;
+    }
+
+    @Benchmark
+    public long zipFile() {
+        long total = 0;
+        Enumeration<? extends ZipEntry> entries = zipFile.entries();
+        while (entries.hasMoreElements()) {
+            total += entries.nextElement().getSize();
+        }
+        return total;
+    }
+}
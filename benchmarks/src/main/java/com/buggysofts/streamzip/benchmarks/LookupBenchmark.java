@@ -0,0 +1,69 @@
+package com.buggysofts.streamzip.benchmarks;
+
+import com.buggysofts.streamzip.StreamZip;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.FileInputStream;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipFile;
+
+/**
+ * Time to look an entry up by its name, cycling through all the entries of the archive in a random order.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LookupBenchmark {
+    @Param({"TINY_ENTRIES", "DEFLATED"})
+    private Corpus corpus;
+
+    private StreamZip streamZip;
+    private ZipFile zipFile;
+    private String[] names;
+    private int next;
+
+    @Setup
+    public void setup() throws Exception {
+        Path path = CorpusGenerator.resolve(corpus);
+        names = new BenchmarkSupport.EntryNames(path).all;
+        streamZip = new StreamZip(new FileInputStream(path.toFile()));
+        zipFile = new ZipFile(path.toFile());
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        streamZip.close();
+        zipFile.close();
+    }
+
+    private String nextName() {
+        String name = names[next];
+        next = (next + 1) % names.length;
+        return name;
+    }
+
+    @Benchmark
+    public Object streamZip() {
+        return streamZip.getEntry(nextName());
+    }
+
+    @Benchmark
+    public Object zipFile() {
+        return zipFile.getEntry(nextName());
+    }
+}
@@ -0,0 +1,74 @@
+package com.buggysofts.streamzip.benchmarks;
+
+import com.buggysofts.streamzip.StreamZip;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Time to open an archive, i.e. to read its central directory, and close it again.
+ * <br>
+ * {@link ZipInputStream} has no central directory to read, so it is measured listing all the entries
+ * the only way it can - by reading the whole archive.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OpenBenchmark {
+    @Param({"TINY_ENTRIES", "STORED", "DEFLATED", "LONG_COMMENT"})
+    private Corpus corpus;
+
+    private Path path;
+
+    @Setup
+    public void setup() throws Exception {
+        path = CorpusGenerator.resolve(corpus);
+    }
+
+    @Benchmark
+    public int streamZip() throws Exception {
+        StreamZip zip = new StreamZip(new FileInputStream(path.toFile()));
+        try {
+            return zip.size();
+        } finally {
+            zip.close();
+        }
+    }
+
+    @Benchmark
+    public int zipFile() throws Exception {
+        try (ZipFile zipFile = new ZipFile(path.toFile())) {
+            return zipFile.size();
+        }
+    }
+
+    @Benchmark
+    public int zipInputStream() throws Exception {
+        try (ZipInputStream in = new ZipInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16))) {
+            int count = 0;
+            while (in.getNextEntry() != null) {
+                ++count;
+            }
+            return count;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.buggysofts.streamzip.benchmarks;
+
+import com.buggysofts.streamzip.StreamZip;
+import com.buggysofts.streamzip.StreamZipOptions;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Time to read the data of an entry from an already open archive.
+ * <br>
+ * <br>
+ * The small entry benchmarks read one (randomly chosen) small entry per invocation. The large entry benchmarks
+ * read the largest entry of the archive. {@link ZipInputStream} can not jump to an entry, so it is only measured
+ * for the large entry, for which it has to read everything in front of the entry as well.
+ * <br>
+ * Run with {@code -p corpus=ZIP64} to measure reading an entry larger than 4 GB.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StreamingBenchmark {
+    @Param({"STORED", "DEFLATED"})
+    private Corpus corpus;
+
+    private Path path;
+    private StreamZip streamZip;
+    private StreamZip mappedStreamZip;
+    private ZipFile zipFile;
+    private String[] smallNames;
+    private String largestName;
+    private byte[] buffer;
+    private int next;
+
+    @Setup
+    public void setup() throws Exception {
+        path = CorpusGenerator.resolve(corpus);
+        BenchmarkSupport.EntryNames names = new BenchmarkSupport.EntryNames(path);
+        smallNames = names.small;
+        largestName = names.largest;
+
+        streamZip = new StreamZip(new FileInputStream(path.toFile()));
+        mappedStreamZip = new StreamZip(
+                new FileInputStream(path.toFile()),
+                new StreamZipOptions().setMemoryMapped(true)
+        );
+        zipFile = new ZipFile(path.toFile());
+        buffer = new byte[BenchmarkSupport.READ_BUFFER_SIZE];
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        streamZip.close();
+        mappedStreamZip.close();
+        zipFile.close();
+    }
+
+    private String nextSmallName() {
+        String name = smallNames[next];
+        next = (next + 1) % smallNames.length;
+        return name;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public long smallStreamZip() throws Exception {
+        return BenchmarkSupport.drain(
+                streamZip.getInputStream(streamZip.getEntry(nextSmallName())),
+                buffer
+        );
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public long smallStreamZipMapped() throws Exception {
+        return BenchmarkSupport.drain(
+                mappedStreamZip.getInputStream(mappedStreamZip.getEntry(nextSmallName())),
+                buffer
+        );
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public long smallZipFile() throws Exception {
+        return BenchmarkSupport.drain(
+                zipFile.getInputStream(zipFile.getEntry(nextSmallName())),
+                buffer
+        );
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public long largeStreamZip() throws Exception {
+        return BenchmarkSupport.drain(
+                streamZip.getInputStream(streamZip.getEntry(largestName)),
+                buffer
+        );
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public long largeStreamZipMapped() throws Exception {
+        return BenchmarkSupport.drain(
+                mappedStreamZip.getInputStream(mappedStreamZip.getEntry(largestName)),
+                buffer
+        );
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public long largeZipFile() throws Exception {
+        return BenchmarkSupport.drain(
+                zipFile.getInputStream(zipFile.getEntry(largestName)),
+                buffer
+        );
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public long largeZipInputStream() throws Exception {
+        try (ZipInputStream in = new ZipInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16))) {
+            ZipEntry entry;
+            while ((entry = in.getNextEntry()) != null) {
+                if (entry.getName().equals(largestName)) {
+                    return BenchmarkSupport.drain(in, buffer);
+                }
+            }
+        }
+        throw new IllegalStateException("Entry not found: " + largestName);
+    }
+}
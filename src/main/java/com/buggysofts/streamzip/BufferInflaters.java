@@ -0,0 +1,40 @@
+package com.buggysofts.streamzip;
+
+import java.nio.ByteBuffer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * The {@link ByteBuffer} methods of {@link Inflater} - Java 8 version, where they do not exist.
+ * <br>
+ * <br>
+ * {@code Inflater.setInput(ByteBuffer)} and {@code Inflater.inflate(ByteBuffer)} only exist since Java 11, so the
+ * calls live in the Java 11 version of this class (under {@code src/main/java11}), which is packaged in
+ * {@code META-INF/versions/11} of the multi-release jar, and replaces this one on Java 11 and later.
+ * Callers check {@link #isAvailable()} first, and use the {@code byte[]} methods of the inflater otherwise.
+ */
+final class BufferInflaters {
+    private BufferInflaters() {
+    }
+
+    public static boolean isAvailable() {
+        return false;
+    }
+
+    /**
+     * Set the input of the inflater to the remaining bytes of the given buffer. The position of the buffer
+     * moves forward as its bytes are inflated.
+     */
+    public static void setInput(Inflater inflater, ByteBuffer input) {
+        throw new UnsupportedOperationException("Inflating byte buffers requires Java 11");
+    }
+
+    /**
+     * Inflate into the remaining space of the given buffer, moving its position forward.
+     *
+     * @return The number of bytes inflated.
+     */
+    public static int inflate(Inflater inflater, ByteBuffer output) throws DataFormatException {
+        throw new UnsupportedOperationException("Inflating byte buffers requires Java 11");
+    }
+}
@@ -0,0 +1,78 @@
+package com.buggysofts.streamzip;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * This is a stream that supplies the remaining bytes of a buffer.
+ * <br>
+ * The stream uses the position of the given buffer as its own position, so
+ * the buffer must not be used by anything else while the stream is in use.
+ */
+class ByteBufferInputStream extends InputStream {
+    private static final int EOF = -1;
+
+    /**
+     * the buffer to read from
+     */
+    private final ByteBuffer buffer;
+
+    /**
+     * the marked position
+     */
+    private int mark;
+
+    public ByteBufferInputStream(final ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.mark = buffer.position();
+    }
+
+    @Override
+    public int read() {
+        return buffer.hasRemaining() ? (buffer.get() & 0xFF) : EOF;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) {
+        if (len == 0) {
+            return 0;
+        }
+        if (!buffer.hasRemaining()) {
+            return EOF;
+        }
+
+        final int bytesRead = Math.min(len, buffer.remaining());
+        buffer.get(b, off, bytesRead);
+        return bytesRead;
+    }
+
+    @Override
+    public long skip(final long n) {
+        if (n <= 0) {
+            return 0;
+        }
+        final int toSkip = (int) Math.min(n, buffer.remaining());
+        buffer.position(buffer.position() + toSkip);
+        return toSkip;
+    }
+
+    @Override
+    public int available() {
+        return buffer.remaining();
+    }
+
+    @Override
+    public synchronized void mark(final int readlimit) {
+        mark = buffer.position();
+    }
+
+    @Override
+    public synchronized void reset() {
+        buffer.position(mark);
+    }
+
+    @Override
+    public boolean markSupported() {
+        return true;
+    }
+}
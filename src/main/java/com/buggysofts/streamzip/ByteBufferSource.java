@@ -0,0 +1,45 @@
+package com.buggysofts.streamzip;
+
+import lombok.NonNull;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A {@link RandomAccessSource} that reads an in-memory buffer, e.g. a zip downloaded into memory.
+ * <br>
+ * <br>
+ * The source covers the bytes between the position and the limit of the given buffer at the time the source
+ * is created. Neither the position, nor the content of the buffer is changed by the source.
+ */
+public class ByteBufferSource implements RandomAccessSource {
+    private final ByteBuffer buffer;
+
+    public ByteBufferSource(@NonNull ByteBuffer buffer) {
+        this.buffer = buffer.slice().asReadOnlyBuffer();
+    }
+
+    @Override
+    public long size() {
+        return buffer.capacity();
+    }
+
+    @Override
+    public int read(long position, @NonNull ByteBuffer dst) {
+        if (position < 0) {
+            throw new IllegalArgumentException("Negative position");
+        }
+        if (position >= buffer.capacity()) {
+            return -1;
+        }
+
+        int length = (int) Math.min(dst.remaining(), buffer.capacity() - position);
+        ByteBuffer region = buffer.duplicate();
+        region.position((int) position).limit((int) position + length);
+        dst.put(region);
+        return length;
+    }
+
+    @Override
+    public void close() {
+    }
+}
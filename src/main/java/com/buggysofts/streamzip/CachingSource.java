@@ -0,0 +1,201 @@
+package com.buggysofts.streamzip;
+
+import lombok.NonNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A {@link RandomAccessSource} that keeps recently read blocks of another source in memory, for sources where
+ * each read is expensive regardless of its size (e.g. files on network file systems, or on mounted object storage).
+ * <br>
+ * <br>
+ * The wrapped source is only read in whole, aligned blocks. When a block is missing, it is read along with up to
+ * {@code readAheadBlocks} following blocks that are missing too, in a single read. So reading the headers of a zip,
+ * or reading a small entry, or reading an entry sequentially in small chunks, results in a few large reads of the
+ * wrapped source. The cached blocks are bounded by the given capacity, and the least recently used block is evicted
+ * first.
+ * <br>
+ * <br>
+ * An instance can be used from any number of threads. Concurrent reads of the same missing block may both read it
+ * from the wrapped source. Closing this source closes the wrapped source.
+ */
+public class CachingSource implements RandomAccessSource {
+    /**
+     * Default block size, 64KB.
+     */
+    public static final int DEFAULT_BLOCK_SIZE = 64 * 1024;
+
+    /**
+     * Default number of blocks read ahead of a missing block.
+     */
+    public static final int DEFAULT_READ_AHEAD_BLOCKS = 2;
+
+    private final RandomAccessSource source;
+    private final long size;
+    private final int blockSize;
+    private final int blockShift;
+    private final int maxBlockCount;
+    private final int readAheadBlocks;
+
+    /**
+     * cached blocks by block index, in least recently used first order, guarded by itself
+     */
+    private final LinkedHashMap<Long, byte[]> blocks;
+
+    private final LongAdder hitCount;
+    private final LongAdder missCount;
+
+    /**
+     * Wrap a source with a cache of the default block size and read-ahead.
+     *
+     * @param source   The source to cache.
+     * @param capacity Maximum number of bytes to keep in memory.
+     */
+    public CachingSource(@NonNull RandomAccessSource source, long capacity) throws IOException {
+        this(source, capacity, DEFAULT_BLOCK_SIZE, DEFAULT_READ_AHEAD_BLOCKS);
+    }
+
+    /**
+     * @param source          The source to cache.
+     * @param capacity        Maximum number of bytes to keep in memory. At least one block is always kept.
+     * @param blockSize       Size of the blocks, a power of two.
+     * @param readAheadBlocks Number of blocks following a missing block to read along with it.
+     * @throws IOException If the size of the source can not be read.
+     */
+    public CachingSource(@NonNull RandomAccessSource source,
+                         long capacity,
+                         int blockSize,
+                         int readAheadBlocks) throws IOException {
+        if (blockSize <= 0 || Integer.bitCount(blockSize) != 1) {
+            throw new IllegalArgumentException("Block size must be a power of two.");
+        }
+        if (readAheadBlocks < 0) {
+            throw new IllegalArgumentException("Read-ahead must not be negative.");
+        }
+
+        this.source = source;
+        this.size = source.size();
+        this.blockSize = blockSize;
+        this.blockShift = Integer.numberOfTrailingZeros(blockSize);
+        this.maxBlockCount = (int) Math.max(1, Math.min(Integer.MAX_VALUE, capacity / blockSize));
+        this.readAheadBlocks = readAheadBlocks;
+        this.blocks = new LinkedHashMap<Long, byte[]>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, byte[]> eldest) {
+                return size() > maxBlockCount;
+            }
+        };
+        this.hitCount = new LongAdder();
+        this.missCount = new LongAdder();
+    }
+
+    @Override
+    public long size() {
+        return size;
+    }
+
+    @Override
+    public int read(long position, @NonNull ByteBuffer dst) throws IOException {
+        if (position < 0) {
+            throw new IllegalArgumentException("Negative position");
+        }
+        if (position >= size) {
+            return -1;
+        }
+
+        int total = 0;
+        while (dst.hasRemaining() && position < size) {
+            byte[] block = getBlock(position >>> blockShift);
+            int offsetInBlock = (int) (position & (blockSize - 1));
+            int count = Math.min(dst.remaining(), block.length - offsetInBlock);
+            dst.put(block, offsetInBlock, count);
+            position += count;
+            total += count;
+        }
+        return total;
+    }
+
+    @Override
+    public FileChannel getFileChannel() {
+        return source.getFileChannel();
+    }
+
+    /**
+     * Get the number of blocks that were found in the cache.
+     */
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    /**
+     * Get the number of blocks that had to be read from the wrapped source, including the blocks read ahead.
+     */
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (blocks) {
+            blocks.clear();
+        }
+        source.close();
+    }
+
+    private byte[] getBlock(long blockIndex) throws IOException {
+        long lastBlockIndex = (size - 1) >>> blockShift;
+        int runLength = 1;
+        synchronized (blocks) {
+            byte[] block = blocks.get(blockIndex);
+            if (block != null) {
+                hitCount.increment();
+                return block;
+            }
+
+            // extend the read over the following blocks, up to the first one that is already cached
+            while (runLength <= readAheadBlocks &&
+                    runLength < maxBlockCount &&
+                    blockIndex + runLength <= lastBlockIndex &&
+                    !blocks.containsKey(blockIndex + runLength)) {
+                ++runLength;
+            }
+        }
+
+        long runStart = blockIndex << blockShift;
+        int runBytes = (int) Math.min((long) runLength << blockShift, size - runStart);
+        ByteBuffer runBuffer = ByteBuffer.allocate(runBytes);
+        while (runBuffer.hasRemaining()) {
+            if (source.read(runStart + runBuffer.position(), runBuffer) < 0) {
+                throw new IOException(
+                        String.format(
+                                "Unexpected end of data - read %d of %d bytes at position %d",
+                                runBuffer.position(),
+                                runBytes,
+                                runStart
+                        )
+                );
+            }
+        }
+        missCount.add(runLength);
+
+        byte[] run = runBuffer.array();
+        byte[][] runBlocks = new byte[runLength][];
+        for (int i = 0; i < runLength; ++i) {
+            int blockStart = i << blockShift;
+            runBlocks[i] = Arrays.copyOfRange(run, blockStart, Math.min(blockStart + blockSize, runBytes));
+        }
+        synchronized (blocks) {
+            // the requested block goes in last, so that it is the most recently used one
+            for (int i = runLength - 1; i >= 0; --i) {
+                blocks.put(blockIndex + i, runBlocks[i]);
+            }
+        }
+        return runBlocks[0];
+    }
+}
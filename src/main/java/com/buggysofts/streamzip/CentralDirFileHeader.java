@@ -3,9 +3,7 @@ package com.buggysofts.streamzip;
 import lombok.Getter;
 import lombok.ToString;
 
-import java.io.FileInputStream;
 import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
 
 @Getter
 @ToString
@@ -32,79 +30,71 @@ class CentralDirFileHeader extends ChunkProperties {
     private final byte[] extraField;
     private final String fileComment;
 
-    public CentralDirFileHeader(FileInputStream in, long startOffset, boolean isZip64) throws Exception {
-        // reposition stream at chunk start
-        in.getChannel().position(this.offset = startOffset);
+    /**
+     * Parses a central directory file header from the given buffer.
+     * <br>
+     * The buffer must be in little endian order and positioned at the start of the header.
+     * On return, the buffer is positioned right after the end of the header.
+     *
+     * @param buffer      Buffer containing (at least) the whole header.
+     * @param startOffset Offset of the header within the zip file.
+     */
+    public CentralDirFileHeader(ByteBuffer buffer, long startOffset) throws Exception {
+        this.offset = startOffset;
 
         // according to the fixed length field sizes
         int fixedLengthDataLength = (4) + (2 * 6) + (4 * 3) + (5 * 2) + (4 * 2);
-
-        byte[] fixedLengthData = StreamUtils.readFully(
-                in,
-                fixedLengthDataLength,
-                false
-        );
-        if (fixedLengthData.length != fixedLengthDataLength) {
-            // returned data length is less than usual - not a zip file/corrupted one?
+        if (buffer.remaining() < fixedLengthDataLength) {
+            // remaining data length is less than usual - not a zip file/corrupted one?
             throw new Exception("Malformed central directory file header");
         } else {
-            ByteBuffer fixedLengthDataBuffer =
-                    ByteBuffer.wrap(fixedLengthData)
-                            .order(ByteOrder.LITTLE_ENDIAN);
-
-            // for a valid zip file, signature will always be 0x04034b50 = 67324752
-            this.signature = fixedLengthDataBuffer.getInt();
+            // for a valid zip file, signature will always be 0x02014b50 = 33639248
+            this.signature = buffer.getInt();
             if (this.signature != ZipConstants.SIG_CENTRAL_DIR_FILE_HEADER) {
                 // invalid header signature
                 throw new Exception("Malformed central directory file header");
             }
 
-            this.creatorVersion = fixedLengthDataBuffer.getShort();
-            this.extractorVersion = fixedLengthDataBuffer.getShort();
-            this.flags = fixedLengthDataBuffer.getShort();
-            this.compression = fixedLengthDataBuffer.getShort();
-            this.modTime = fixedLengthDataBuffer.getShort();
-            this.modDate = fixedLengthDataBuffer.getShort();
-            this.crc32 = fixedLengthDataBuffer.getInt();
+            this.creatorVersion = buffer.getShort();
+            this.extractorVersion = buffer.getShort();
+            this.flags = buffer.getShort();
+            this.compression = buffer.getShort();
+            this.modTime = buffer.getShort();
+            this.modDate = buffer.getShort();
+            this.crc32 = buffer.getInt();
             // 0xFFFFFFFF if zip64, and it is stored in extraField
-            this.compressedSize = fixedLengthDataBuffer.getInt();
+            this.compressedSize = buffer.getInt();
             // 0xFFFFFFFF if zip64, and it is stored in extraField
-            this.uncompressedSize = fixedLengthDataBuffer.getInt();
-            this.fileNameLength = fixedLengthDataBuffer.getShort();
-            this.extraFieldLength = fixedLengthDataBuffer.getShort();
-            this.fileCommentLength = fixedLengthDataBuffer.getShort();
+            this.uncompressedSize = buffer.getInt();
+            this.fileNameLength = buffer.getShort();
+            this.extraFieldLength = buffer.getShort();
+            this.fileCommentLength = buffer.getShort();
             // 0xFFFF if zip64, and it is stored in extraField
-            this.diskIndexStart = fixedLengthDataBuffer.getShort();
-            this.internalAttributes = fixedLengthDataBuffer.getShort();
-            this.externalAttributes = fixedLengthDataBuffer.getInt();
+            this.diskIndexStart = buffer.getShort();
+            this.internalAttributes = buffer.getShort();
+            this.externalAttributes = buffer.getInt();
             // 0xFFFFFFFF if zip64, and it is stored in extraField
-            this.localFileHeaderOffset = fixedLengthDataBuffer.getInt();
-
-            int variableLengthDataLength = fileNameLength + extraFieldLength + fileCommentLength;
-            byte[] variableLengthData = StreamUtils.readFully(
-                    in,
-                    variableLengthDataLength,
-                    false
-            );
-            if (variableLengthData.length != variableLengthDataLength) {
-                // returned data length is less than usual - not a zip file/corrupted one?
+            this.localFileHeaderOffset = buffer.getInt();
+
+            int variableLengthDataLength =
+                    Short.toUnsignedInt(fileNameLength) +
+                            Short.toUnsignedInt(extraFieldLength) +
+                            Short.toUnsignedInt(fileCommentLength);
+            if (buffer.remaining() < variableLengthDataLength) {
+                // remaining data length is less than usual - not a zip file/corrupted one?
                 throw new Exception("Malformed central directory file header");
             } else {
-                ByteBuffer variableLengthDataBuffer =
-                        ByteBuffer.wrap(variableLengthData)
-                                .order(ByteOrder.LITTLE_ENDIAN);
-
                 try {
-                    byte[] fileNameData = new byte[fileNameLength];
-                    variableLengthDataBuffer.get(fileNameData);
+                    byte[] fileNameData = new byte[Short.toUnsignedInt(fileNameLength)];
+                    buffer.get(fileNameData);
                     this.fileName = new String(fileNameData);
 
                     // if archive is in ZIP64 format, this field holds the compressed & uncompressed data length,
                     // local file header offset, number of disk on which the corresponding file exists.
                     // in that case these values will be -1 (0xFFFFFFFF in case of int, 0xFFFF in case of short)
                     // some other data may exist along with these two.
-                    this.extraField = new byte[extraFieldLength];
-                    variableLengthDataBuffer.get(extraField);
+                    this.extraField = new byte[Short.toUnsignedInt(extraFieldLength)];
+                    buffer.get(extraField);
 
                     // block for correcting size and offset values
                     if (compressedSize <= -1 || uncompressedSize <= -1 ||
@@ -155,9 +145,9 @@ class CentralDirFileHeader extends ChunkProperties {
                         }
                     }
 
-                    if (fileCommentLength > 0) {
-                        byte[] fileCommentData = new byte[fileCommentLength];
-                        variableLengthDataBuffer.get(fileCommentData);
+                    if (fileCommentLength != 0) {
+                        byte[] fileCommentData = new byte[Short.toUnsignedInt(fileCommentLength)];
+                        buffer.get(fileCommentData);
                         this.fileComment = new String(fileCommentData);
                     } else {
                         this.fileComment = null;
@@ -177,6 +167,7 @@ class CentralDirFileHeader extends ChunkProperties {
 
     @Override
     public int getSize() {
-        return (this.size = ((4) + (2 * 6) + (4 * 3) + (5 * 2) + (4 * 2)) + (fileNameLength + fileCommentLength + extraFieldLength));
+        return (this.size = ((4) + (2 * 6) + (4 * 3) + (5 * 2) + (4 * 2)) +
+                (Short.toUnsignedInt(fileNameLength) + Short.toUnsignedInt(fileCommentLength) + Short.toUnsignedInt(extraFieldLength)));
     }
 }
@@ -0,0 +1,467 @@
+package com.buggysofts.streamzip;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Compact in-memory index of the central directory.
+ * <br>
+ * <br>
+ * Instead of keeping a header object (with its own name, extra field and comment) for each entry,
+ * the index keeps the raw central directory as a single byte block, and the few fields that need
+ * decoding (or can only be resolved later) in parallel primitive arrays. Names are looked up through
+ * an open addressing hash table of entry indices. Entries are identified by their index in the central
+ * directory, and header objects are only created on demand.
+ * <br>
+ * <br>
+ * Apart from the central directory itself, this costs around 50 bytes per entry.
+ * <br>
+ * <br>
+ * The index is immutable, except for the data offsets, which are resolved lazily and can be
+ * set from any thread. So an instance can be used from any number of threads.
+ */
+class CentralDirIndex {
+    /**
+     * Size of the fixed length part of a central directory file header.
+     */
+    private static final int FIXED_HEADER_LENGTH = (4) + (2 * 6) + (4 * 3) + (5 * 2) + (4 * 2);
+
+    /**
+     * Marks an unresolved data offset.
+     */
+    private static final long UNRESOLVED = -1;
+
+    /**
+     * the raw central directory - names, extra fields and comments are read from here
+     */
+    private final byte[] centralDirData;
+
+    /**
+     * offset of the central directory within the zip file
+     */
+    private final long centralDirOffset;
+
+    private final int[] headerOffsets;
+    private final int[] nameHashes;
+    private final long[] compressedSizes;
+    private final long[] uncompressedSizes;
+    private final long[] localFileHeaderOffsets;
+
+    /**
+     * offset of the data of each entry within the zip file, or {@link #UNRESOLVED}
+     */
+    private final AtomicLongArray dataOffsets;
+
+    /**
+     * open addressing hash table, holding (entry index + 1) in each used slot, and 0 in free slots
+     */
+    private final int[] hashTable;
+
+    /**
+     * Builds the index from the raw central directory.
+     *
+     * @param centralDirData   The whole central directory.
+     * @param centralDirOffset Offset of the central directory within the zip file.
+     * @param entryCount       Number of central directory file headers in the central directory.
+     */
+    public CentralDirIndex(byte[] centralDirData, long centralDirOffset, int entryCount) throws Exception {
+        this.centralDirData = centralDirData;
+        this.centralDirOffset = centralDirOffset;
+
+        this.headerOffsets = new int[entryCount];
+        this.nameHashes = new int[entryCount];
+        this.compressedSizes = new long[entryCount];
+        this.uncompressedSizes = new long[entryCount];
+        this.localFileHeaderOffsets = new long[entryCount];
+        this.dataOffsets = new AtomicLongArray(entryCount);
+
+        // keep the load factor of the hash table at or below 0.5
+        int tableSize = Integer.highestOneBit(Math.max(1, entryCount) * 2 - 1) << 1;
+        this.hashTable = new int[tableSize];
+
+        ByteBuffer buffer = ByteBuffer.wrap(centralDirData).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < entryCount; ++i) {
+            int headerOffset = buffer.position();
+            CentralDirFileHeader header = new CentralDirFileHeader(
+                    buffer,
+                    centralDirOffset + headerOffset
+            );
+
+            headerOffsets[i] = headerOffset;
+            nameHashes[i] = header.getFileName().hashCode();
+            compressedSizes[i] = header.getCompressedSize();
+            uncompressedSizes[i] = header.getUncompressedSize();
+            localFileHeaderOffsets[i] = header.getLocalFileHeaderOffset();
+            dataOffsets.set(i, UNRESOLVED);
+
+            // a later entry with the same name replaces the earlier one
+            int slot = findSlot(header.getFileName(), nameHashes[i]);
+            hashTable[slot] = i + 1;
+        }
+    }
+
+    /**
+     * Restores an index from its serialized form.
+     *
+     * @see #serialize(ByteBuffer)
+     */
+    private CentralDirIndex(byte[] centralDirData,
+                            long centralDirOffset,
+                            int[] headerOffsets,
+                            int[] nameHashes,
+                            long[] compressedSizes,
+                            long[] uncompressedSizes,
+                            long[] localFileHeaderOffsets,
+                            long[] dataOffsets,
+                            int[] hashTable) {
+        this.centralDirData = centralDirData;
+        this.centralDirOffset = centralDirOffset;
+        this.headerOffsets = headerOffsets;
+        this.nameHashes = nameHashes;
+        this.compressedSizes = compressedSizes;
+        this.uncompressedSizes = uncompressedSizes;
+        this.localFileHeaderOffsets = localFileHeaderOffsets;
+        this.dataOffsets = new AtomicLongArray(dataOffsets);
+        this.hashTable = hashTable;
+    }
+
+    /**
+     * Get the number of bytes {@link #serialize(ByteBuffer)} writes.
+     */
+    public long getSerializedSize() {
+        int entryCount = size();
+        return (8) + (4 * 3) +
+                centralDirData.length +
+                (4L * entryCount * 2) + (4L * hashTable.length) +
+                (8L * entryCount * 4);
+    }
+
+    /**
+     * Write the whole index, including the resolved data offsets, to the given buffer,
+     * which must be in little endian order.
+     */
+    public void serialize(ByteBuffer buffer) {
+        int entryCount = size();
+        buffer.putLong(centralDirOffset);
+        buffer.putInt(entryCount);
+        buffer.putInt(centralDirData.length);
+        buffer.putInt(hashTable.length);
+        buffer.put(centralDirData);
+        buffer.asIntBuffer().put(headerOffsets).put(nameHashes).put(hashTable);
+        buffer.position(buffer.position() + 4 * (entryCount * 2 + hashTable.length));
+        long[] dataOffsetValues = new long[entryCount];
+        for (int i = 0; i < entryCount; ++i) {
+            dataOffsetValues[i] = dataOffsets.get(i);
+        }
+        buffer.asLongBuffer().put(compressedSizes).put(uncompressedSizes).put(localFileHeaderOffsets).put(dataOffsetValues);
+        buffer.position(buffer.position() + 8 * entryCount * 4);
+    }
+
+    /**
+     * Read an index written by {@link #serialize(ByteBuffer)} from the given buffer,
+     * which must be in little endian order.
+     *
+     * @throws Exception If the buffer does not hold a consistent index.
+     */
+    public static CentralDirIndex deserialize(ByteBuffer buffer) throws Exception {
+        try {
+            long centralDirOffset = buffer.getLong();
+            int entryCount = buffer.getInt();
+            int centralDirLength = buffer.getInt();
+            int hashTableLength = buffer.getInt();
+            if (entryCount < 0 || centralDirLength < 0 ||
+                    hashTableLength <= entryCount || Integer.bitCount(hashTableLength) != 1) {
+                throw new Exception("Malformed central directory index");
+            }
+
+            byte[] centralDirData = new byte[centralDirLength];
+            buffer.get(centralDirData);
+
+            int[] headerOffsets = new int[entryCount];
+            int[] nameHashes = new int[entryCount];
+            int[] hashTable = new int[hashTableLength];
+            buffer.asIntBuffer().get(headerOffsets).get(nameHashes).get(hashTable);
+            buffer.position(buffer.position() + 4 * (entryCount * 2 + hashTableLength));
+
+            long[] compressedSizes = new long[entryCount];
+            long[] uncompressedSizes = new long[entryCount];
+            long[] localFileHeaderOffsets = new long[entryCount];
+            long[] dataOffsets = new long[entryCount];
+            buffer.asLongBuffer().get(compressedSizes).get(uncompressedSizes).get(localFileHeaderOffsets).get(dataOffsets);
+            buffer.position(buffer.position() + 8 * entryCount * 4);
+
+            for (int i = 0; i < entryCount; ++i) {
+                if (headerOffsets[i] < 0 || headerOffsets[i] > centralDirLength - FIXED_HEADER_LENGTH) {
+                    throw new Exception("Malformed central directory index");
+                }
+            }
+            for (int slot : hashTable) {
+                if (slot < 0 || slot > entryCount) {
+                    throw new Exception("Malformed central directory index");
+                }
+            }
+
+            return new CentralDirIndex(
+                    centralDirData,
+                    centralDirOffset,
+                    headerOffsets,
+                    nameHashes,
+                    compressedSizes,
+                    uncompressedSizes,
+                    localFileHeaderOffsets,
+                    dataOffsets,
+                    hashTable
+            );
+        } catch (RuntimeException e) {
+            // buffer underflow, or arrays that are too large
+            throw new Exception("Malformed central directory index", e);
+        }
+    }
+
+    /**
+     * Get the offset of the central directory within the zip file.
+     */
+    public long getCentralDirOffset() {
+        return centralDirOffset;
+    }
+
+    /**
+     * Get the size of the raw central directory, in bytes.
+     */
+    public int getCentralDirSize() {
+        return centralDirData.length;
+    }
+
+    /**
+     * Estimate the heap size of the index, in bytes - i.e. the size of its arrays, assuming 16 byte array
+     * headers and 8 byte alignment, plus a fixed amount for the index object itself.
+     */
+    public long estimateHeapSize() {
+        int entryCount = size();
+        return 64 +
+                estimateArraySize(centralDirData.length, 1) +
+                (estimateArraySize(entryCount, 4) * 2) +
+                (estimateArraySize(entryCount, 8) * 4) +
+                estimateArraySize(hashTable.length, 4);
+    }
+
+    private static long estimateArraySize(long length, int elementSize) {
+        return (16 + (length * elementSize) + 7) & ~7L;
+    }
+
+    /**
+     * Get the number of entries in the index.
+     */
+    public int size() {
+        return headerOffsets.length;
+    }
+
+    /**
+     * Get the index of the entry with the given name, or -1 if there is no such entry.
+     */
+    public int find(String name) {
+        return hashTable[findSlot(name, name.hashCode())] - 1;
+    }
+
+    /**
+     * Get the slot of the hash table that holds the entry with the given name,
+     * or the free slot where it should be inserted.
+     */
+    private int findSlot(String name, int nameHash) {
+        int mask = hashTable.length - 1;
+        int slot = (nameHash ^ (nameHash >>> 16)) & mask;
+        while (hashTable[slot] != 0) {
+            int entryIndex = hashTable[slot] - 1;
+            if (nameHashes[entryIndex] == nameHash && fileNameMatches(entryIndex, name, true)) {
+                break;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Parse the full central directory file header of an entry.
+     */
+    public CentralDirFileHeader getHeader(int entryIndex) throws Exception {
+        ByteBuffer buffer = ByteBuffer.wrap(centralDirData).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.position(headerOffsets[entryIndex]);
+        return new CentralDirFileHeader(
+                buffer,
+                centralDirOffset + headerOffsets[entryIndex]
+        );
+    }
+
+    /**
+     * Create a new {@link ZipEntry} for an entry.
+     */
+    public ZipEntry createEntry(int entryIndex) {
+        try {
+            return new ZipEntry(getHeader(entryIndex), this, entryIndex);
+        } catch (Exception e) {
+            // all the headers were successfully parsed when the index was built
+            throw new IllegalStateException("Malformed central directory file header", e);
+        }
+    }
+
+    public String getFileName(int entryIndex) {
+        return new String(
+                centralDirData,
+                headerOffsets[entryIndex] + FIXED_HEADER_LENGTH,
+                getFileNameLength(entryIndex)
+        );
+    }
+
+    /**
+     * Copy the file name of an entry, as stored in the central directory, into the given array at the given offset.
+     * Returns the number of bytes copied.
+     */
+    public int copyFileNameBytes(int entryIndex, byte[] dst, int offset) {
+        int length = getFileNameLength(entryIndex);
+        System.arraycopy(centralDirData, headerOffsets[entryIndex] + FIXED_HEADER_LENGTH, dst, offset, length);
+        return length;
+    }
+
+    /**
+     * Check whether the file name of an entry equals the given name, or only starts with it if the whole name does
+     * not have to match. As long as both are ASCII, the stored bytes are compared with the characters of the name
+     * without decoding them; otherwise the file name is decoded, as in {@link #getFileName(int)}.
+     */
+    public boolean fileNameMatches(int entryIndex, String name, boolean wholeName) {
+        int start = headerOffsets[entryIndex] + FIXED_HEADER_LENGTH;
+        int length = getFileNameLength(entryIndex);
+        int common = Math.min(length, name.length());
+        for (int i = 0; i < common; i++) {
+            byte b = centralDirData[start + i];
+            char c = name.charAt(i);
+            if (b < 0 || c >= 0x80) {
+                String fileName = getFileName(entryIndex);
+                return wholeName ? fileName.equals(name) : fileName.startsWith(name);
+            }
+            if (b != c) {
+                return false;
+            }
+        }
+        if (name.length() > length) {
+            // every stored byte is an ASCII character, so the decoded name is shorter than the given one
+            return false;
+        }
+        return !wholeName || length == name.length();
+    }
+
+    /**
+     * Get a copy of the file name of an entry, as stored in the central directory.
+     */
+    public byte[] getFileNameBytes(int entryIndex) {
+        int start = headerOffsets[entryIndex] + FIXED_HEADER_LENGTH;
+        return Arrays.copyOfRange(centralDirData, start, start + getFileNameLength(entryIndex));
+    }
+
+    /**
+     * Get a copy of the comment of an entry as stored in the central directory, or null if it has no comment.
+     */
+    public byte[] getFileCommentBytes(int entryIndex) {
+        int fileCommentLength = Short.toUnsignedInt(getShort(headerOffsets[entryIndex] + 32));
+        if (fileCommentLength != 0) {
+            int start = headerOffsets[entryIndex] + FIXED_HEADER_LENGTH +
+                    getFileNameLength(entryIndex) + getExtraFieldLength(entryIndex);
+            return Arrays.copyOfRange(centralDirData, start, start + fileCommentLength);
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * Get the comment of an entry, or null if it has no comment.
+     */
+    public String getFileComment(int entryIndex) {
+        int fileCommentLength = Short.toUnsignedInt(getShort(headerOffsets[entryIndex] + 32));
+        if (fileCommentLength != 0) {
+            return new String(
+                    centralDirData,
+                    headerOffsets[entryIndex] + FIXED_HEADER_LENGTH +
+                            getFileNameLength(entryIndex) + getExtraFieldLength(entryIndex),
+                    fileCommentLength
+            );
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * Check whether the entry is a directory entry, without decoding its name.
+     */
+    public boolean isDirectory(int entryIndex) {
+        int fileNameLength = getFileNameLength(entryIndex);
+        return fileNameLength > 0 &&
+                centralDirData[headerOffsets[entryIndex] + FIXED_HEADER_LENGTH + fileNameLength - 1] == '/';
+    }
+
+    public short getFlags(int entryIndex) {
+        return getShort(headerOffsets[entryIndex] + 8);
+    }
+
+    public short getCompression(int entryIndex) {
+        return getShort(headerOffsets[entryIndex] + 10);
+    }
+
+    public short getModTime(int entryIndex) {
+        return getShort(headerOffsets[entryIndex] + 12);
+    }
+
+    public short getModDate(int entryIndex) {
+        return getShort(headerOffsets[entryIndex] + 14);
+    }
+
+    public int getCrc32(int entryIndex) {
+        return getInt(headerOffsets[entryIndex] + 16);
+    }
+
+    public int getFileNameLength(int entryIndex) {
+        return Short.toUnsignedInt(getShort(headerOffsets[entryIndex] + 28));
+    }
+
+    public int getExtraFieldLength(int entryIndex) {
+        return Short.toUnsignedInt(getShort(headerOffsets[entryIndex] + 30));
+    }
+
+    public long getCompressedSize(int entryIndex) {
+        return compressedSizes[entryIndex];
+    }
+
+    public long getUncompressedSize(int entryIndex) {
+        return uncompressedSizes[entryIndex];
+    }
+
+    public long getLocalFileHeaderOffset(int entryIndex) {
+        return localFileHeaderOffsets[entryIndex];
+    }
+
+    /**
+     * Get the offset of the data of an entry within the zip file, or -1 if it has not been resolved yet.
+     */
+    public long getDataOffset(int entryIndex) {
+        return dataOffsets.get(entryIndex);
+    }
+
+    /**
+     * Set the resolved offset of the data of an entry within the zip file.
+     */
+    public void setDataOffset(int entryIndex, long dataOffset) {
+        dataOffsets.set(entryIndex, dataOffset);
+    }
+
+    private short getShort(int index) {
+        return (short) ((centralDirData[index] & 0xFF) |
+                ((centralDirData[index + 1] & 0xFF) << 8));
+    }
+
+    private int getInt(int index) {
+        return (centralDirData[index] & 0xFF) |
+                ((centralDirData[index + 1] & 0xFF) << 8) |
+                ((centralDirData[index + 2] & 0xFF) << 16) |
+                ((centralDirData[index + 3] & 0xFF) << 24);
+    }
+}
@@ -0,0 +1,36 @@
+package com.buggysofts.streamzip;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * A decoder for a zip compression method, other than stored (0) and deflated (8), which are built into
+ * {@link StreamZip}.
+ * <br>
+ * <br>
+ * Codecs are looked up by method id in {@link CompressionCodecs}. Zstandard (93) and Deflate64 (9) come with the
+ * library, and other codecs, e.g. for BZIP2 or LZMA, can be plugged in either by registering them with
+ * {@link CompressionCodecs#register(CompressionCodec)}, or by listing them in a
+ * {@code META-INF/services/com.buggysofts.streamzip.CompressionCodec} file, to be found by {@link java.util.ServiceLoader}.
+ * <br>
+ * Implementations must be thread-safe, as the same codec decodes entries of any zip, on any thread.
+ */
+public interface CompressionCodec {
+    /**
+     * Get the compression method id (as in the zip headers) of the data this codec decodes.
+     */
+    int getMethod();
+
+    /**
+     * Open a stream that supplies the uncompressed data of an entry.
+     *
+     * @param compressedData   A stream that supplies exactly the compressed data of the entry. The returned stream
+     *                         must close it when it is closed.
+     * @param uncompressedSize The uncompressed size of the entry, as given by the zip, or -1 if it is not known.
+     * @throws IOException If the data can not be decoded, e.g. it uses a feature the codec does not support.
+     */
+    @NotNull
+    InputStream decompress(@NotNull InputStream compressedData, long uncompressedSize) throws IOException;
+}
@@ -0,0 +1,51 @@
+package com.buggysofts.streamzip;
+
+import lombok.NonNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The registry of the {@link CompressionCodec}s used to read entries that are neither stored nor deflated.
+ * <br>
+ * <br>
+ * The registry starts with the built-in codecs - Zstandard (93) and Deflate64 (9) - and the codecs found by
+ * {@link ServiceLoader} on the class path of this class, which replace built-in codecs of the same method.
+ * Codecs registered later replace the codec of their method as well.
+ */
+public final class CompressionCodecs {
+    private static final Map<Integer, CompressionCodec> CODECS = new ConcurrentHashMap<>();
+
+    static {
+        register(new ZstdCodec());
+        register(new Deflate64Codec());
+        try {
+            for (CompressionCodec codec : ServiceLoader.load(CompressionCodec.class, CompressionCodecs.class.getClassLoader())) {
+                register(codec);
+            }
+        } catch (ServiceConfigurationError e) {
+            // a broken provider must not make the zips unreadable, the built-in codecs are still there
+        }
+    }
+
+    private CompressionCodecs() {
+    }
+
+    /**
+     * Register a codec, replacing the codec of its method, if any.
+     */
+    public static void register(@NonNull CompressionCodec codec) {
+        CODECS.put(codec.getMethod(), codec);
+    }
+
+    /**
+     * Get the codec of a compression method, or null if there is none.
+     */
+    @Nullable
+    public static CompressionCodec getCodec(int method) {
+        return CODECS.get(method);
+    }
+}
@@ -21,6 +21,7 @@ public enum CompressionMethod {
     RESERVED7((short) 17),
     IBM_TERSE((short) 18),
     IBM_LZ77Z((short) 19),
+    ZSTANDARD((short) 93),
     PPMD_V1R1((short) 98);
 
     private int val;
@@ -0,0 +1,53 @@
+package com.buggysofts.streamzip;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Records every read of another source in an {@link IoCounters}.
+ * <br>
+ * <br>
+ * A read that does not start where the previous read ended is recorded as a seek. The end of the previous
+ * read is tracked without synchronization, so with concurrent readers the number of seeks is an approximation.
+ */
+class CountingSource implements RandomAccessSource {
+    private final RandomAccessSource source;
+    private final IoCounters counters;
+
+    /**
+     * position of the byte following the previous read, or -1 if nothing was read yet
+     */
+    private long nextReadPosition = -1;
+
+    public CountingSource(RandomAccessSource source, IoCounters counters) {
+        this.source = source;
+        this.counters = counters;
+    }
+
+    @Override
+    public long size() throws IOException {
+        return source.size();
+    }
+
+    @Override
+    public int read(long position, ByteBuffer dst) throws IOException {
+        if (position != nextReadPosition) {
+            counters.recordSeek();
+        }
+        int count = source.read(position, dst);
+        counters.recordRead(count);
+        nextReadPosition = count > 0 ? position + count : -1;
+        return count;
+    }
+
+    @Override
+    public FileChannel getFileChannel() {
+        return source.getFileChannel();
+    }
+
+    @Override
+    public void close() throws IOException {
+        source.close();
+    }
+}
@@ -0,0 +1,123 @@
+package com.buggysofts.streamzip;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.CRC32;
+
+/**
+ * A stream that computes the CRC-32 and the length of the uncompressed data of an entry as it is read, and
+ * checks them against the values recorded in the central directory when the end of the data is reached.
+ * <br>
+ * <br>
+ * On a mismatch, the read that reaches the end of the data throws an {@link IOException} instead of returning -1,
+ * so a consumer that reads the entry to the end can not mistake corrupt data for valid data. Skipped bytes are read
+ * and checked as well. Mark and reset are not supported.
+ */
+class CrcCheckingInputStream extends FilterInputStream {
+    private static final int EOF = -1;
+
+    private final String fileName;
+    private final int expectedCrc32;
+    private final long expectedLength;
+
+    private final CRC32 crc32;
+    private long length;
+    private byte[] skipBuffer;
+
+    /**
+     * @param in             The stream supplying the uncompressed data of the entry.
+     * @param fileName       Name of the entry, for error messages.
+     * @param expectedCrc32  The CRC-32 of the entry, from the central directory.
+     * @param expectedLength The uncompressed size of the entry, from the central directory.
+     */
+    public CrcCheckingInputStream(InputStream in, String fileName, int expectedCrc32, long expectedLength) {
+        super(in);
+        this.fileName = fileName;
+        this.expectedCrc32 = expectedCrc32;
+        this.expectedLength = expectedLength;
+        this.crc32 = new CRC32();
+    }
+
+    @Override
+    public int read() throws IOException {
+        int value = in.read();
+        if (value == EOF) {
+            check();
+        } else {
+            crc32.update(value);
+            ++length;
+        }
+        return value;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int readNum = in.read(b, off, len);
+        if (readNum == EOF) {
+            check();
+        } else if (readNum > 0) {
+            crc32.update(b, off, readNum);
+            length += readNum;
+        }
+        return readNum;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        if (skipBuffer == null) {
+            skipBuffer = new byte[8192];
+        }
+        long skipped = 0;
+        while (skipped < n) {
+            int readNum = read(skipBuffer, 0, (int) Math.min(skipBuffer.length, n - skipped));
+            if (readNum == EOF) {
+                break;
+            }
+            skipped += readNum;
+        }
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public synchronized void mark(int readLimit) {
+        // not supported
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        throw new IOException("Mark and reset are not supported.");
+    }
+
+    /**
+     * Check the data read so far, which is the whole data of the entry. Every read at the end of the data of
+     * a corrupt entry throws, not just the first one.
+     */
+    private void check() throws IOException {
+        if (length != expectedLength) {
+            throw new IOException(
+                    String.format(
+                            "Size mismatch for entry %s - expected %d bytes, read %d bytes",
+                            fileName,
+                            expectedLength,
+                            length
+                    )
+            );
+        }
+        if ((int) crc32.getValue() != expectedCrc32) {
+            throw new IOException(
+                    String.format(
+                            "CRC-32 mismatch for entry %s - expected %08x, computed %08x",
+                            fileName,
+                            expectedCrc32,
+                            (int) crc32.getValue()
+                    )
+            );
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.buggysofts.streamzip;
 
+import java.util.Calendar;
 import java.util.Date;
 
 public final class DateTimeUtils {
@@ -19,4 +20,26 @@ public final class DateTimeUtils {
                 sec - 1
         ).getTime();
     }
+
+    /**
+     * Convert a time in milliseconds to an MS-DOS date and time, in the local time zone.
+     *
+     * @return The date in the upper 16 bits, and the time in the lower 16 bits. Times before 1980 are
+     * clamped to the start of 1980.
+     */
+    public static int toMsDosDateTime(long millis) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(millis);
+        int yr = calendar.get(Calendar.YEAR);
+        if (yr < 1980) {
+            return (1 << 21) | (1 << 16);
+        }
+        int date = ((yr - 1980) << 9) |
+                ((calendar.get(Calendar.MONTH) + 1) << 5) |
+                calendar.get(Calendar.DAY_OF_MONTH);
+        int time = (calendar.get(Calendar.HOUR_OF_DAY) << 11) |
+                (calendar.get(Calendar.MINUTE) << 5) |
+                (calendar.get(Calendar.SECOND) >> 1);
+        return (date << 16) | time;
+    }
 }
@@ -0,0 +1,71 @@
+package com.buggysofts.streamzip;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * The built-in codec of Deflate64 (enhanced deflate, compression method 9), decoded by {@link InflateDecoder}.
+ */
+class Deflate64Codec implements CompressionCodec {
+    static final int METHOD = 9;
+
+    @Override
+    public int getMethod() {
+        return METHOD;
+    }
+
+    @NotNull
+    @Override
+    public InputStream decompress(@NotNull InputStream compressedData, long uncompressedSize) {
+        return new Deflate64InputStream(compressedData);
+    }
+
+    private static final class Deflate64InputStream extends InputStream {
+        private static final int EOF = -1;
+
+        private final InputStream in;
+        private final InflateDecoder decoder;
+        private boolean closed;
+
+        Deflate64InputStream(InputStream in) {
+            this.in = in;
+            this.decoder = new InflateDecoder(in, true);
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            int readNum = read(single, 0, 1);
+            return readNum == EOF ? EOF : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (closed) {
+                throw new IOException("Stream closed");
+            }
+            if (len == 0) {
+                return 0;
+            }
+            return decoder.read(b, off, len);
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            if (closed) {
+                throw new IOException("Stream closed");
+            }
+            return decoder.skip(n);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!closed) {
+                closed = true;
+                in.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package com.buggysofts.streamzip;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NonNull;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Seek points of a deflated entry, i.e. the places where inflating the entry can be resumed, so that reaching
+ * a position within the entry does not require inflating everything in front of it.
+ * <br>
+ * <br>
+ * A seek point is the bit offset of a block within the compressed data, along with the uncompressed offset it
+ * corresponds to, and the 32KB of uncompressed data preceding it. The points are recorded while the entry is being
+ * inflated through a channel (see {@link StreamZip#openChannel(ZipEntry)}), at the first block boundary after every
+ * {@link #getSpacing()} bytes of uncompressed data, so the index grows as far as the entry has been read. Each point
+ * costs up to 32KB of memory.
+ * <br>
+ * <br>
+ * An index can be stored with {@link #writeTo(OutputStream)}, and given back to a zip with
+ * {@link StreamZip#setSeekIndex(ZipEntry, DeflateSeekIndex)} after it is read with {@link #readFrom(InputStream)}.
+ * <br>
+ * <br>
+ * An instance can be used from any number of threads.
+ */
+public final class DeflateSeekIndex {
+    private static final int MAGIC = 0x535a5350;
+    private static final int VERSION = 1;
+
+    /**
+     * Minimum number of uncompressed bytes between two seek points.
+     */
+    @Getter
+    private final long spacing;
+
+    /**
+     * The size, the uncompressed size and the CRC-32 of the entry the index belongs to.
+     */
+    @Getter(AccessLevel.PACKAGE)
+    private final long compressedSize;
+    @Getter(AccessLevel.PACKAGE)
+    private final long uncompressedSize;
+    @Getter(AccessLevel.PACKAGE)
+    private final int crc32;
+
+    /**
+     * the seek points, in increasing order of offsets, guarded by itself
+     */
+    private final List<SeekPoint> seekPoints;
+
+    DeflateSeekIndex(long spacing, long compressedSize, long uncompressedSize, int crc32) {
+        this.spacing = Math.max(1, spacing);
+        this.compressedSize = compressedSize;
+        this.uncompressedSize = uncompressedSize;
+        this.crc32 = crc32;
+        this.seekPoints = new ArrayList<>();
+    }
+
+    /**
+     * Get the number of seek points recorded so far.
+     */
+    public int getSeekPointCount() {
+        synchronized (seekPoints) {
+            return seekPoints.size();
+        }
+    }
+
+    /**
+     * Get the uncompressed offset of the last seek point, or 0 if there is none.
+     */
+    public long getIndexedLength() {
+        synchronized (seekPoints) {
+            return seekPoints.isEmpty() ? 0 : seekPoints.get(seekPoints.size() - 1).getUncompressedOffset();
+        }
+    }
+
+    /**
+     * Get the last seek point at or before the given uncompressed offset, or null if there is none.
+     */
+    SeekPoint floor(long uncompressedOffset) {
+        synchronized (seekPoints) {
+            int low = 0;
+            int high = seekPoints.size() - 1;
+            SeekPoint result = null;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                SeekPoint seekPoint = seekPoints.get(mid);
+                if (seekPoint.getUncompressedOffset() <= uncompressedOffset) {
+                    result = seekPoint;
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Record a seek point at the current block boundary of the given decoder, if it is at least the spacing
+     * past the last seek point.
+     */
+    void offer(long bitOffset, long uncompressedOffset, InflateDecoder decoder) {
+        if (uncompressedOffset < getIndexedLength() + spacing) {
+            return;
+        }
+
+        // the window is copied outside of the lock, the offset is checked again before adding the point
+        SeekPoint seekPoint = new SeekPoint(bitOffset, uncompressedOffset, decoder.copyWindow());
+        synchronized (seekPoints) {
+            if (uncompressedOffset >= getIndexedLength() + spacing) {
+                seekPoints.add(seekPoint);
+            }
+        }
+    }
+
+    /**
+     * Write the index to the given stream. The stream is not closed.
+     */
+    public void writeTo(@NonNull OutputStream out) throws IOException {
+        List<SeekPoint> points;
+        synchronized (seekPoints) {
+            points = new ArrayList<>(seekPoints);
+        }
+
+        DataOutputStream dataOut = new DataOutputStream(out);
+        dataOut.writeInt(MAGIC);
+        dataOut.writeInt(VERSION);
+        dataOut.writeLong(spacing);
+        dataOut.writeLong(compressedSize);
+        dataOut.writeLong(uncompressedSize);
+        dataOut.writeInt(crc32);
+        dataOut.writeInt(points.size());
+        for (SeekPoint point : points) {
+            dataOut.writeLong(point.getBitOffset());
+            dataOut.writeLong(point.getUncompressedOffset());
+            dataOut.writeInt(point.getWindow().length);
+            dataOut.write(point.getWindow());
+        }
+        dataOut.flush();
+    }
+
+    /**
+     * Read an index written by {@link #writeTo(OutputStream)} from the given stream. The stream is not closed.
+     *
+     * @throws IOException If the stream does not hold a valid index, or it can not be read.
+     */
+    @NonNull
+    public static DeflateSeekIndex readFrom(@NonNull InputStream in) throws IOException {
+        DataInputStream dataIn = new DataInputStream(in);
+        if (dataIn.readInt() != MAGIC || dataIn.readInt() != VERSION) {
+            throw new IOException("Not a seek index");
+        }
+
+        DeflateSeekIndex index = new DeflateSeekIndex(
+                dataIn.readLong(),
+                dataIn.readLong(),
+                dataIn.readLong(),
+                dataIn.readInt()
+        );
+        int count = dataIn.readInt();
+        if (count < 0) {
+            throw new IOException("Malformed seek index");
+        }
+
+        long previousOffset = -1;
+        for (int i = 0; i < count; ++i) {
+            long bitOffset = dataIn.readLong();
+            long uncompressedOffset = dataIn.readLong();
+            int windowLength = dataIn.readInt();
+            if (bitOffset < 0 ||
+                    bitOffset > index.compressedSize * 8 ||
+                    uncompressedOffset <= previousOffset ||
+                    windowLength < 0 ||
+                    windowLength > Math.min(InflateDecoder.WINDOW_SIZE, uncompressedOffset)) {
+                throw new IOException("Malformed seek index");
+            }
+            byte[] window = new byte[windowLength];
+            dataIn.readFully(window);
+            index.seekPoints.add(new SeekPoint(bitOffset, uncompressedOffset, window));
+            previousOffset = uncompressedOffset;
+        }
+        return index;
+    }
+
+    /**
+     * A place where inflating can be resumed.
+     */
+    @Getter(AccessLevel.PACKAGE)
+    static final class SeekPoint {
+        /**
+         * offset of the first bit of a block within the compressed data
+         */
+        private final long bitOffset;
+
+        /**
+         * offset within the uncompressed data the block starts at
+         */
+        private final long uncompressedOffset;
+
+        /**
+         * the (up to) 32KB of uncompressed data preceding the block
+         */
+        private final byte[] window;
+
+        SeekPoint(long bitOffset, long uncompressedOffset, byte[] window) {
+            this.bitOffset = bitOffset;
+            this.uncompressedOffset = uncompressedOffset;
+            this.window = window;
+        }
+    }
+}
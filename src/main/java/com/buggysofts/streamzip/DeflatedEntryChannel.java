@@ -0,0 +1,163 @@
+package com.buggysofts.streamzip;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+
+/**
+ * A read-only channel over the uncompressed data of a deflated entry.
+ * <br>
+ * <br>
+ * Reads continue from where the previous read ended, as with a stream. When the position is moved backwards, or
+ * forward past a seek point of the seek index of the entry, inflating resumes from the last seek point in front of
+ * the new position (or from the start of the entry, if there is none) instead. Seek points are recorded in the seek
+ * index as the entry is inflated, so every position that has been reached once can be reached again cheaply.
+ * <br>
+ * <br>
+ * A single channel should not be shared between threads, as the position is shared.
+ * Closing the channel does not close the source.
+ */
+class DeflatedEntryChannel implements SeekableByteChannel {
+    private static final int EOF = -1;
+
+    private final RandomAccessSource source;
+    private final long start;
+    private final long compressedLength;
+    private final long length;
+    private final DeflateSeekIndex seekIndex;
+
+    private InflateDecoder decoder;
+    private long position;
+    private byte[] transferBuffer;
+    private volatile boolean open = true;
+
+    /**
+     * @param source           The source holding the compressed data.
+     * @param start            Position of the compressed data within the source.
+     * @param compressedLength Length of the compressed data.
+     * @param length           Length of the uncompressed data.
+     * @param seekIndex        The seek index of the entry.
+     */
+    public DeflatedEntryChannel(RandomAccessSource source,
+                                long start,
+                                long compressedLength,
+                                long length,
+                                DeflateSeekIndex seekIndex) {
+        this.source = source;
+        this.start = start;
+        this.compressedLength = compressedLength;
+        this.length = length;
+        this.seekIndex = seekIndex;
+    }
+
+    @Override
+    public int read(ByteBuffer dst) throws IOException {
+        ensureOpen();
+        if (position >= length) {
+            return EOF;
+        }
+        if (!dst.hasRemaining()) {
+            return 0;
+        }
+
+        moveDecoderTo(position);
+
+        int maxRead = (int) Math.min(dst.remaining(), length - position);
+        int bytesRead;
+        if (dst.hasArray()) {
+            bytesRead = decoder.read(dst.array(), dst.arrayOffset() + dst.position(), maxRead);
+            if (bytesRead > 0) {
+                dst.position(dst.position() + bytesRead);
+            }
+        } else {
+            if (transferBuffer == null) {
+                transferBuffer = new byte[8192];
+            }
+            bytesRead = decoder.read(transferBuffer, 0, Math.min(maxRead, transferBuffer.length));
+            if (bytesRead > 0) {
+                dst.put(transferBuffer, 0, bytesRead);
+            }
+        }
+        if (bytesRead == EOF) {
+            throw new IOException("Unexpected end of entry data");
+        }
+
+        position += bytesRead;
+        return bytesRead;
+    }
+
+    /**
+     * Make the decoder produce the byte at the given position next, resuming from a seek point if that
+     * is closer than the current position of the decoder.
+     */
+    private void moveDecoderTo(long target) throws IOException {
+        DeflateSeekIndex.SeekPoint seekPoint = seekIndex.floor(target);
+        if (decoder == null ||
+                decoder.getOutputPosition() > target ||
+                (seekPoint != null && seekPoint.getUncompressedOffset() > decoder.getOutputPosition())) {
+            decoder = seekPoint == null ?
+                    new InflateDecoder(source, start, compressedLength, seekIndex) :
+                    new InflateDecoder(source, start, compressedLength, seekIndex, seekPoint);
+        }
+
+        long toSkip = target - decoder.getOutputPosition();
+        if (decoder.skip(toSkip) != toSkip) {
+            throw new IOException("Unexpected end of entry data");
+        }
+    }
+
+    @Override
+    public int write(ByteBuffer src) {
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public long position() throws IOException {
+        ensureOpen();
+        return position;
+    }
+
+    /**
+     * Set the position within the uncompressed data. A position beyond the end of the data is allowed,
+     * and reads at such a position return -1.
+     */
+    @Override
+    public SeekableByteChannel position(long newPosition) throws IOException {
+        if (newPosition < 0) {
+            throw new IllegalArgumentException("Negative position");
+        }
+        ensureOpen();
+        position = newPosition;
+        return this;
+    }
+
+    @Override
+    public long size() throws IOException {
+        ensureOpen();
+        return length;
+    }
+
+    @Override
+    public SeekableByteChannel truncate(long size) {
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public void close() {
+        open = false;
+        decoder = null;
+    }
+
+    private void ensureOpen() throws ClosedChannelException {
+        if (!open) {
+            throw new ClosedChannelException();
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.buggysofts.streamzip;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.zip.Deflater;
+
+/**
+ * A bounded, thread-safe pool of raw (i.e. {@code nowrap}) deflaters of a single compression level.
+ * <br>
+ * <br>
+ * Like inflaters (see {@link InflaterPool}), deflaters hold native memory that is only freed by
+ * {@link Deflater#end()}. The pool keeps up to {@code capacity} idle deflaters for reuse, and ends the
+ * ones it can not keep. After the pool is closed, every deflater that is returned to it is ended immediately.
+ */
+class DeflaterPool {
+    private final int level;
+    private final ArrayBlockingQueue<Deflater> idleDeflaters;
+
+    private volatile boolean closed;
+
+    public DeflaterPool(int level, int capacity) {
+        this.level = level;
+        this.idleDeflaters = new ArrayBlockingQueue<>(Math.max(1, capacity));
+    }
+
+    /**
+     * Get an idle deflater from the pool, or a new one if the pool is empty.
+     */
+    public Deflater acquire() {
+        Deflater deflater = idleDeflaters.poll();
+        return deflater != null ? deflater : new Deflater(level, true);
+    }
+
+    /**
+     * Return a deflater to the pool. The deflater is reset, and either kept for
+     * reuse, or ended if the pool is full or closed.
+     * <br>
+     * The caller must not use the deflater after this call.
+     */
+    public void release(Deflater deflater) {
+        if (closed) {
+            deflater.end();
+        } else {
+            deflater.reset();
+            if (!idleDeflaters.offer(deflater)) {
+                deflater.end();
+            } else if (closed) {
+                // the pool was closed while we were returning the deflater
+                endIdleDeflaters();
+            }
+        }
+    }
+
+    /**
+     * Close the pool, and end all the idle deflaters.
+     */
+    public void close() {
+        closed = true;
+        endIdleDeflaters();
+    }
+
+    private void endIdleDeflaters() {
+        Deflater deflater;
+        while ((deflater = idleDeflaters.poll()) != null) {
+            deflater.end();
+        }
+    }
+}
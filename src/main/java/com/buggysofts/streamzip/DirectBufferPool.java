@@ -0,0 +1,41 @@
+package com.buggysofts.streamzip;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * A bounded, thread-safe pool of direct buffers of the same size.
+ * <br>
+ * <br>
+ * Direct buffers are expensive to allocate, and their memory is only freed when they are garbage collected, so
+ * buffers used for a single read (e.g. the compressed data fed to an inflater) are taken from the pool and returned
+ * to it afterwards. The pool keeps up to {@code capacity} idle buffers, and drops the ones it can not keep.
+ */
+class DirectBufferPool {
+    private final ArrayBlockingQueue<ByteBuffer> idleBuffers;
+    private final int bufferSize;
+
+    public DirectBufferPool(int capacity, int bufferSize) {
+        this.idleBuffers = new ArrayBlockingQueue<>(Math.max(1, capacity));
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * Get an idle buffer from the pool, or a new one if the pool is empty. The buffer is cleared.
+     */
+    public ByteBuffer acquire() {
+        ByteBuffer buffer = idleBuffers.poll();
+        if (buffer == null) {
+            buffer = ByteBuffer.allocateDirect(bufferSize);
+        }
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * Return a buffer to the pool. The caller must not use the buffer after this call.
+     */
+    public void release(ByteBuffer buffer) {
+        idleBuffers.offer(buffer);
+    }
+}
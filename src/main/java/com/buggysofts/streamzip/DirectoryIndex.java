@@ -0,0 +1,223 @@
+package com.buggysofts.streamzip;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical index of the entry names of a zip.
+ * <br>
+ * <br>
+ * There is a node for every directory, including the ones that have no entry of their own and are only
+ * implied by the names of other entries. Each node knows its subdirectories and its files (as indices of the
+ * central directory index), and holds the aggregated counts and sizes of its whole subtree, so that listing a
+ * directory costs O(children), and summarizing it costs O(1).
+ * <br>
+ * <br>
+ * The index is immutable once built, so an instance can be used from any number of threads.
+ */
+class DirectoryIndex {
+    private static final int[] NO_FILES = new int[0];
+
+    private final CentralDirIndex centralDirIndex;
+    private final Map<String, Node> nodes;
+
+    private static class Node {
+        private final String path;
+        private final Map<String, Node> subdirectories = new TreeMap<>();
+        private int[] files = NO_FILES;
+        private int fileCount;
+        private boolean explicit;
+
+        private long totalFileCount;
+        private long totalDirectoryCount;
+        private long totalCompressedSize;
+        private long totalUncompressedSize;
+
+        private Node(String path) {
+            this.path = path;
+        }
+
+        private void addFile(int entryIndex) {
+            if (fileCount == files.length) {
+                files = Arrays.copyOf(files, Math.max(4, fileCount * 2));
+            }
+            files[fileCount++] = entryIndex;
+        }
+    }
+
+    public DirectoryIndex(CentralDirIndex centralDirIndex) {
+        this.centralDirIndex = centralDirIndex;
+        this.nodes = new HashMap<>();
+
+        Node root = getOrCreateNode("");
+        for (int i = 0; i < centralDirIndex.size(); ++i) {
+            String fileName = centralDirIndex.getFileName(i);
+            if (centralDirIndex.isDirectory(i)) {
+                getOrCreateNode(fileName).explicit = true;
+            } else {
+                getOrCreateNode(fileName.substring(0, fileName.lastIndexOf('/') + 1)).addFile(i);
+            }
+        }
+
+        aggregate(root);
+    }
+
+    /**
+     * Get the node of the directory with the given path, creating it and all its missing ancestors if necessary.
+     */
+    private Node getOrCreateNode(String path) {
+        Node node = nodes.get(path);
+        if (node == null) {
+            node = new Node(path);
+            nodes.put(path, node);
+
+            // link the new node to its parent, creating the missing ancestors on the way up
+            Node child = node;
+            while (!child.path.isEmpty()) {
+                int parentEnd = child.path.lastIndexOf('/', child.path.length() - 2) + 1;
+                String parentPath = child.path.substring(0, parentEnd);
+                Node parent = nodes.get(parentPath);
+                boolean parentExists = parent != null;
+                if (!parentExists) {
+                    parent = new Node(parentPath);
+                    nodes.put(parentPath, parent);
+                }
+                parent.subdirectories.put(child.path.substring(parentEnd), child);
+                if (parentExists) {
+                    break;
+                }
+                child = parent;
+            }
+        }
+        return node;
+    }
+
+    /**
+     * Compute the aggregated counts and sizes of the subtree of the given node.
+     */
+    private void aggregate(Node root) {
+        // collect the nodes in pre-order, so that in reverse, every node comes after all its subdirectories
+        List<Node> preOrder = new ArrayList<>(nodes.size());
+        Deque<Node> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            Node node = stack.pop();
+            preOrder.add(node);
+            for (Node subdirectory : node.subdirectories.values()) {
+                stack.push(subdirectory);
+            }
+        }
+
+        for (int i = preOrder.size() - 1; i >= 0; --i) {
+            Node node = preOrder.get(i);
+            node.totalFileCount = node.fileCount;
+            node.totalDirectoryCount = node.subdirectories.size();
+            for (int j = 0; j < node.fileCount; ++j) {
+                node.totalCompressedSize += centralDirIndex.getCompressedSize(node.files[j]);
+                node.totalUncompressedSize += centralDirIndex.getUncompressedSize(node.files[j]);
+            }
+            for (Node subdirectory : node.subdirectories.values()) {
+                node.totalFileCount += subdirectory.totalFileCount;
+                node.totalDirectoryCount += subdirectory.totalDirectoryCount;
+                node.totalCompressedSize += subdirectory.totalCompressedSize;
+                node.totalUncompressedSize += subdirectory.totalUncompressedSize;
+            }
+        }
+    }
+
+    /**
+     * Get the paths of the immediate children of a directory - subdirectories first (sorted by name),
+     * then files (in the order of the central directory). Returns null if there is no such directory.
+     */
+    public List<String> list(String path) {
+        Node node = nodes.get(path);
+        if (node == null) {
+            return null;
+        }
+
+        List<String> children = new ArrayList<>(node.subdirectories.size() + node.fileCount);
+        for (Node subdirectory : node.subdirectories.values()) {
+            children.add(subdirectory.path);
+        }
+        for (int i = 0; i < node.fileCount; ++i) {
+            children.add(centralDirIndex.getFileName(node.files[i]));
+        }
+        return children;
+    }
+
+    /**
+     * Visit the paths of everything under a directory, depth first, each directory before its children.
+     * Returns false if there is no such directory.
+     */
+    public boolean walk(String path, Consumer<String> visitor) {
+        Node node = nodes.get(path);
+        if (node == null) {
+            return false;
+        }
+
+        // depth first, without recursion - each level keeps the iterator of its remaining subdirectories
+        Deque<Node> nodeStack = new ArrayDeque<>();
+        Deque<Iterator<Node>> subdirectoryStack = new ArrayDeque<>();
+        nodeStack.push(node);
+        subdirectoryStack.push(node.subdirectories.values().iterator());
+        while (!nodeStack.isEmpty()) {
+            Iterator<Node> subdirectories = subdirectoryStack.peek();
+            if (subdirectories.hasNext()) {
+                Node subdirectory = subdirectories.next();
+                visitor.accept(subdirectory.path);
+                nodeStack.push(subdirectory);
+                subdirectoryStack.push(subdirectory.subdirectories.values().iterator());
+            } else {
+                Node current = nodeStack.pop();
+                subdirectoryStack.pop();
+                for (int i = 0; i < current.fileCount; ++i) {
+                    visitor.accept(centralDirIndex.getFileName(current.files[i]));
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Get the aggregated information of a directory, or null if there is no such directory.
+     */
+    public DirectorySummary summarize(String path) {
+        Node node = nodes.get(path);
+        if (node == null) {
+            return null;
+        }
+
+        return new DirectorySummary(
+                node.path,
+                node.explicit,
+                node.totalFileCount,
+                node.totalDirectoryCount,
+                node.totalCompressedSize,
+                node.totalUncompressedSize
+        );
+    }
+
+    /**
+     * Convert a directory path given by a user to the form used by the index, i.e. without a leading '/',
+     * with a trailing '/', and the empty string for the root directory.
+     */
+    public static String normalizePath(String path) {
+        int start = 0;
+        while (start < path.length() && path.charAt(start) == '/') {
+            ++start;
+        }
+        path = path.substring(start);
+        if (!path.isEmpty() && !path.endsWith("/")) {
+            path = path + "/";
+        }
+        return path;
+    }
+}
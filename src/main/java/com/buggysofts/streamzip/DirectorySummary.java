@@ -0,0 +1,46 @@
+package com.buggysofts.streamzip;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Aggregated information about a directory of a zip, and everything under it.
+ * <br>
+ * Directories do not need an entry of their own in a zip. The ones that are only implied
+ * by the names of other entries are included as well.
+ */
+@Getter
+@ToString
+@AllArgsConstructor(access = lombok.AccessLevel.PACKAGE)
+public class DirectorySummary {
+    /**
+     * path of the directory, with a trailing '/' (or empty for the root directory)
+     */
+    private final String path;
+
+    /**
+     * whether the directory has an entry of its own in the zip
+     */
+    private final boolean explicit;
+
+    /**
+     * number of files in the directory and all its subdirectories
+     */
+    private final long fileCount;
+
+    /**
+     * number of subdirectories in the directory and all its subdirectories
+     */
+    private final long directoryCount;
+
+    /**
+     * total compressed size of all the files in the directory and all its subdirectories
+     */
+    private final long compressedSize;
+
+    /**
+     * total uncompressed size of all the files in the directory and all its subdirectories
+     */
+    private final long uncompressedSize;
+}
@@ -3,9 +3,7 @@ package com.buggysofts.streamzip;
 import lombok.Getter;
 import lombok.ToString;
 
-import java.io.FileInputStream;
 import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
 
 @Getter
 @ToString
@@ -21,24 +19,22 @@ class EndOfCentralDirRecord extends ChunkProperties {
 
     private final String zipFileComment;
 
-    public EndOfCentralDirRecord(FileInputStream in, long startOffset) throws Exception {
-        // reposition stream at chunk start
-        in.getChannel().position(this.offset = startOffset);
+    /**
+     * Parses an end of central directory record from the given buffer.
+     * <br>
+     * The buffer must be in little endian order and positioned at the start of the record.
+     *
+     * @param buffer      Buffer containing (at least) the whole record.
+     * @param startOffset Offset of the record within the zip file.
+     */
+    public EndOfCentralDirRecord(ByteBuffer buffer, long startOffset) throws Exception {
+        this.offset = startOffset;
 
         // according to the fixed length field sizes
         int fixedLengthDataLength = (4) + (2 * 4) + (4 * 2) + (2);
-        byte[] fixedDataChunk = StreamUtils.readFully(
-                in,
-                fixedLengthDataLength,
-                false
-        );
-        if (fixedDataChunk.length < fixedLengthDataLength) {
+        if (buffer.remaining() < fixedLengthDataLength) {
             throw new Exception("Malformed EOCDR (End-of-Central-Directory-Record");
         } else {
-            ByteBuffer buffer =
-                    ByteBuffer.wrap(fixedDataChunk)
-                            .order(ByteOrder.LITTLE_ENDIAN);
-
             this.signature = buffer.getInt();
             this.diskIndex = buffer.getShort();
             this.centralDirStartDiskIndex = buffer.getShort();
@@ -55,19 +51,17 @@ class EndOfCentralDirRecord extends ChunkProperties {
                 );
             }
 
-            byte[] variableLengthData = StreamUtils.readFully(
-                    in,
-                    zipFileCommentLength,
-                    false
-            );
-            if (variableLengthData.length != zipFileCommentLength) {
+            int commentLength = Short.toUnsignedInt(zipFileCommentLength);
+            if (buffer.remaining() < commentLength) {
                 throw new Exception("Malformed EOCDR (End-of-Central-Directory-Record");
             } else {
-                if (zipFileCommentLength > 0) {
+                if (commentLength > 0) {
+                    byte[] variableLengthData = new byte[commentLength];
+                    buffer.get(variableLengthData);
                     this.zipFileComment = new String(
                             variableLengthData,
                             0,
-                            zipFileCommentLength
+                            commentLength
                     );
                 } else {
                     this.zipFileComment = null;
@@ -83,6 +77,6 @@ class EndOfCentralDirRecord extends ChunkProperties {
 
     @Override
     public int getSize() {
-        return ((4) + (2 * 4) + (4 * 2) + (2)) + zipFileCommentLength;
+        return ((4) + (2 * 4) + (4 * 2) + (2)) + Short.toUnsignedInt(zipFileCommentLength);
     }
 }
@@ -0,0 +1,261 @@
+package com.buggysofts.streamzip;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A cache of the uncompressed data of entries, bounded by the total number of bytes it holds.
+ * <br>
+ * <br>
+ * When a zip has an entry cache (see {@link StreamZipOptions#setEntryCache(EntryCache)}), the streams returned by
+ * {@link StreamZip#getInputStream(ZipEntry)} for entries of up to {@link #getMaxEntrySize()} bytes read from the
+ * cached data, and only the first stream of an entry actually reads (and inflates) it. Larger entries bypass the
+ * cache. When the cached data exceeds the capacity, the least recently used entries are evicted first.
+ * <br>
+ * <br>
+ * If several threads ask for the same entry while it is not cached, only one of them loads it, and the others wait
+ * for that load instead of loading the entry again. An instance can be shared between any number of zips and
+ * threads. The entries of a zip are removed from the cache when the zip is closed. The cache does not keep the zips
+ * themselves reachable, so the entries of a zip that is dropped without being closed stay only until they are evicted.
+ */
+public class EntryCache {
+    /**
+     * Default value of {@link #maxEntrySize}, 1MB.
+     */
+    public static final long DEFAULT_MAX_ENTRY_SIZE = 1 << 20;
+
+    /**
+     * Loads the data of an entry that is not cached.
+     */
+    interface Loader {
+        byte[] load() throws Exception;
+    }
+
+    private final long capacity;
+    private final long maxEntrySize;
+
+    /**
+     * cached data by key, in least recently used first order, guarded by itself
+     */
+    private final LinkedHashMap<Key, byte[]> entries;
+
+    /**
+     * total length of the cached data, guarded by {@link #entries}
+     */
+    private long size;
+
+    /**
+     * loads in progress by key
+     */
+    private final ConcurrentHashMap<Key, CompletableFuture<byte[]>> loads;
+
+    private final LongAdder hitCount;
+    private final LongAdder missCount;
+    private final LongAdder evictionCount;
+
+    /**
+     * Create a cache with the default maximum entry size.
+     *
+     * @param capacity Maximum number of bytes of entry data to keep in memory.
+     */
+    public EntryCache(long capacity) {
+        this(capacity, DEFAULT_MAX_ENTRY_SIZE);
+    }
+
+    /**
+     * @param capacity     Maximum number of bytes of entry data to keep in memory.
+     * @param maxEntrySize Size of the largest entry to cache. Larger entries are always read from the zip.
+     */
+    public EntryCache(long capacity, long maxEntrySize) {
+        if (capacity < 0 || maxEntrySize < 0) {
+            throw new IllegalArgumentException("Capacity and maximum entry size must not be negative.");
+        }
+
+        this.capacity = capacity;
+        this.maxEntrySize = Math.min(maxEntrySize, Math.min(capacity, Integer.MAX_VALUE));
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+        this.loads = new ConcurrentHashMap<>();
+        this.hitCount = new LongAdder();
+        this.missCount = new LongAdder();
+        this.evictionCount = new LongAdder();
+    }
+
+    /**
+     * Get the maximum number of bytes of entry data kept in memory.
+     */
+    public long getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Get the size of the largest entry that is cached. It is never larger than the capacity.
+     */
+    public long getMaxEntrySize() {
+        return maxEntrySize;
+    }
+
+    /**
+     * Get the number of bytes of entry data currently in the cache.
+     */
+    public long getSize() {
+        synchronized (entries) {
+            return size;
+        }
+    }
+
+    /**
+     * Get the number of entries currently in the cache.
+     */
+    public int getEntryCount() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Get the number of times the data of an entry was found in the cache.
+     */
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    /**
+     * Get the number of times the data of an entry was not found in the cache, including the times it was
+     * being loaded by another thread.
+     */
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    /**
+     * Get the number of entries evicted to keep the cache within its capacity.
+     */
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    /**
+     * Remove all the entries from the cache.
+     */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+            size = 0;
+        }
+    }
+
+    /**
+     * Get the cached data of an entry, loading it with the given loader if it is not cached.
+     * <br>
+     * The caller must not modify the returned data.
+     *
+     * @param owner      Identity of the zip the entry belongs to.
+     * @param entryIndex Index of the entry in the zip.
+     */
+    byte[] get(Object owner, int entryIndex, Loader loader) throws Exception {
+        Key key = new Key(owner, entryIndex);
+        byte[] data = getCached(key);
+        if (data != null) {
+            hitCount.increment();
+            return data;
+        }
+        missCount.increment();
+
+        CompletableFuture<byte[]> load = new CompletableFuture<>();
+        CompletableFuture<byte[]> runningLoad = loads.putIfAbsent(key, load);
+        if (runningLoad != null) {
+            // another thread is loading the same entry, wait for it
+            try {
+                return runningLoad.get();
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                throw cause instanceof Exception ? (Exception) cause : e;
+            }
+        }
+
+        try {
+            // the entry may have been put in the cache by a load that ended after the lookup above
+            data = getCached(key);
+            if (data == null) {
+                data = loader.load();
+                put(key, data);
+            }
+            load.complete(data);
+            return data;
+        } catch (Exception e) {
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            loads.remove(key, load);
+        }
+    }
+
+    /**
+     * Remove all the entries of the zip with the given identity from the cache.
+     */
+    void invalidate(Object owner) {
+        synchronized (entries) {
+            Iterator<Map.Entry<Key, byte[]>> iterator = entries.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<Key, byte[]> entry = iterator.next();
+                if (entry.getKey().owner == owner) {
+                    size -= entry.getValue().length;
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    private byte[] getCached(Key key) {
+        synchronized (entries) {
+            return entries.get(key);
+        }
+    }
+
+    private void put(Key key, byte[] data) {
+        synchronized (entries) {
+            byte[] previous = entries.put(key, data);
+            size += data.length - (previous != null ? previous.length : 0);
+
+            // evict the least recently used entries, the new entry is the most recently used one
+            Iterator<byte[]> iterator = entries.values().iterator();
+            while (size > capacity && iterator.hasNext()) {
+                size -= iterator.next().length;
+                iterator.remove();
+                evictionCount.increment();
+            }
+        }
+    }
+
+    /**
+     * An entry of a zip, identified by an object owned by the zip rather than the zip itself.
+     */
+    private static final class Key {
+        private final Object owner;
+        private final int entryIndex;
+
+        Key(Object owner, int entryIndex) {
+            this.owner = owner;
+            this.entryIndex = entryIndex;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            return owner == key.owner && entryIndex == key.entryIndex;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(owner) * 31 + entryIndex;
+        }
+    }
+}
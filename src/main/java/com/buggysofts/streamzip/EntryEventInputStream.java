@@ -0,0 +1,75 @@
+package com.buggysofts.streamzip;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Wraps an entry stream while its Flight Recorder event (see {@link ZipEvents#beginEntryStream()}) is
+ * being recorded. It counts the bytes returned by the stream, and commits the event when the stream is closed.
+ * <br>
+ * <br>
+ * The stream is only used if the event is recorded, so streams cost nothing extra otherwise.
+ */
+class EntryEventInputStream extends FilterInputStream {
+    private static final int EOF = -1;
+
+    private final Object event;
+    private final String entryName;
+
+    /**
+     * the inflater stream of a compressed entry, or null if the entry is not compressed
+     */
+    private final PooledInflaterInputStream inflaterStream;
+
+    private long bytesRead;
+    private boolean closed;
+
+    public EntryEventInputStream(InputStream in,
+                                 Object event,
+                                 String entryName,
+                                 PooledInflaterInputStream inflaterStream) {
+        super(in);
+        this.event = event;
+        this.entryName = entryName;
+        this.inflaterStream = inflaterStream;
+        if (inflaterStream != null) {
+            inflaterStream.setTimed(true);
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        int value = in.read();
+        if (value != EOF) {
+            ++bytesRead;
+        }
+        return value;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int count = in.read(b, off, len);
+        if (count > 0) {
+            bytesRead += count;
+        }
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            try {
+                in.close();
+            } finally {
+                ZipEvents.commitEntryStream(
+                        event,
+                        entryName,
+                        bytesRead,
+                        inflaterStream != null ? inflaterStream.getInflateNanos() : 0
+                );
+            }
+        }
+    }
+}
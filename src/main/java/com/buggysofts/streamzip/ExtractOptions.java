@@ -0,0 +1,33 @@
+package com.buggysofts.streamzip;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+import lombok.experimental.Accessors;
+
+/**
+ * Options that control how {@link StreamZip#extractAll(java.nio.file.Path, java.util.concurrent.ExecutorService, ExtractOptions)}
+ * writes the entries of a zip.
+ */
+@Getter
+@Setter
+@ToString
+@Accessors(chain = true)
+public class ExtractOptions {
+    /**
+     * Maximum number of entries that are extracted at the same time.
+     * Defaults to the number of available processors.
+     */
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * If true, existing files are replaced by the extracted entries, otherwise the
+     * entries that would replace an existing file are skipped.
+     */
+    private boolean overwrite = true;
+
+    /**
+     * If true, the last modified time of each extracted file is set to that of its entry.
+     */
+    private boolean preserveLastModified = true;
+}
@@ -0,0 +1,41 @@
+package com.buggysofts.streamzip;
+
+import lombok.NonNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A {@link RandomAccessSource} that reads a file channel with positional reads, which never change
+ * the position of the channel.
+ * <br>
+ * Closing the source closes the channel.
+ */
+public class FileChannelSource implements RandomAccessSource {
+    private final FileChannel channel;
+
+    public FileChannelSource(@NonNull FileChannel channel) {
+        this.channel = channel;
+    }
+
+    @Override
+    public long size() throws IOException {
+        return channel.size();
+    }
+
+    @Override
+    public int read(long position, @NonNull ByteBuffer dst) throws IOException {
+        return channel.read(dst, position);
+    }
+
+    @Override
+    public FileChannel getFileChannel() {
+        return channel;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,154 @@
+package com.buggysofts.streamzip;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Reads and writes sidecar index files, i.e. persisted {@link CentralDirIndex}es.
+ * <br>
+ * <br>
+ * A sidecar index file consists of a fixed length header, followed by the serialized index.
+ * The header holds the key of the zip file the index was built from - its size, its last modified
+ * time (if known) and a fingerprint of its end of central directory records and of the end of its central
+ * directory - along with a checksum of
+ * the serialized index. An index is only loaded if its key matches that of the zip being opened, and
+ * its checksum is correct.
+ * <br>
+ * <br>
+ * The format (all values are little endian):
+ * <pre>
+ * magic             4 bytes  "SZIX"
+ * version           4 bytes
+ * file size         8 bytes
+ * last modified     8 bytes  -1 if unknown
+ * fingerprint       8 bytes
+ * payload length    8 bytes
+ * payload CRC-32    4 bytes
+ * reserved          4 bytes
+ * payload           (payload length) bytes - see {@link CentralDirIndex#serialize(ByteBuffer)}
+ * </pre>
+ */
+final class IndexFile {
+    private static final int MAGIC = 0x58495a53;
+    private static final int VERSION = 1;
+    private static final int HEADER_LENGTH = (4 * 2) + (8 * 4) + (4 * 2);
+
+    private IndexFile() {
+    }
+
+    /**
+     * Load the index stored in the given file, if it was built from a zip file with the given key.
+     * <br>
+     * The file is mapped to check and parse it, but the index is copied out of the mapping, so that it does not
+     * depend on the file, which the next {@link #write(Path, CentralDirIndex, long, long, long)} replaces (and
+     * which can not be replaced while it is mapped on some systems).
+     *
+     * @return The loaded index, or null if the file does not exist, or it does not match the key,
+     * or it is not a valid index file.
+     */
+    public static CentralDirIndex read(Path indexFile, long fileSize, long lastModified, long fingerprint) {
+        try (FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.READ)) {
+            long indexFileSize = channel.size();
+            if (indexFileSize < HEADER_LENGTH || indexFileSize > Integer.MAX_VALUE) {
+                return null;
+            }
+
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, indexFileSize);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.getInt() != MAGIC ||
+                    buffer.getInt() != VERSION ||
+                    buffer.getLong() != fileSize ||
+                    buffer.getLong() != lastModified ||
+                    buffer.getLong() != fingerprint ||
+                    buffer.getLong() != indexFileSize - HEADER_LENGTH) {
+                return null;
+            }
+            int payloadCrc = buffer.getInt();
+            buffer.getInt();
+
+            CRC32 crc = new CRC32();
+            crc.update(buffer.duplicate());
+            if ((int) crc.getValue() != payloadCrc) {
+                return null;
+            }
+
+            return CentralDirIndex.deserialize(buffer.slice().order(ByteOrder.LITTLE_ENDIAN));
+        } catch (Exception e) {
+            // an unreadable or corrupted index file is as good as a missing one
+            return null;
+        }
+    }
+
+    /**
+     * Store the given index in the given file, along with the key of the zip file it was built from.
+     * <br>
+     * The file is first written under a temporary name, and then moved to its final name, so a concurrent
+     * {@link #read(Path, long, long, long)} never sees a partially written file.
+     */
+    public static void write(Path indexFile,
+                             CentralDirIndex index,
+                             long fileSize,
+                             long lastModified,
+                             long fingerprint) throws IOException {
+        long payloadLength = index.getSerializedSize();
+        if (HEADER_LENGTH + payloadLength > Integer.MAX_VALUE) {
+            throw new IOException("Central directory index is too large to be stored.");
+        }
+
+        Path absoluteIndexFile = indexFile.toAbsolutePath();
+        Path tempFile = Files.createTempFile(
+                absoluteIndexFile.getParent(),
+                absoluteIndexFile.getFileName().toString(),
+                ".tmp"
+        );
+        try {
+            try (FileChannel channel = FileChannel.open(
+                    tempFile,
+                    StandardOpenOption.READ,
+                    StandardOpenOption.WRITE)) {
+                MappedByteBuffer buffer = channel.map(
+                        FileChannel.MapMode.READ_WRITE,
+                        0,
+                        HEADER_LENGTH + payloadLength
+                );
+                buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+                buffer.position(HEADER_LENGTH);
+                index.serialize(buffer);
+
+                ByteBuffer payload = buffer.duplicate();
+                payload.position(HEADER_LENGTH);
+                CRC32 crc = new CRC32();
+                crc.update(payload);
+
+                buffer.position(0);
+                buffer.putInt(MAGIC);
+                buffer.putInt(VERSION);
+                buffer.putLong(fileSize);
+                buffer.putLong(lastModified);
+                buffer.putLong(fingerprint);
+                buffer.putLong(payloadLength);
+                buffer.putInt((int) crc.getValue());
+                buffer.putInt(0);
+                buffer.force();
+            }
+
+            try {
+                Files.move(tempFile, absoluteIndexFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile, absoluteIndexFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+}
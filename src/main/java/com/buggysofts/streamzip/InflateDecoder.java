@@ -0,0 +1,624 @@
+package com.buggysofts.streamzip;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * A DEFLATE (RFC 1951) decoder that can start at any block boundary of a compressed stream.
+ * <br>
+ * <br>
+ * {@link java.util.zip.Inflater} can only start at the beginning of a compressed stream, so reaching a position
+ * within a large compressed entry means inflating everything in front of it. This decoder keeps track of the
+ * exact bit offset of each block it reads, and can be started at such an offset given the (up to) 32KB of
+ * uncompressed data preceding it - the window that back-references of the following blocks may refer to.
+ * That pair is a {@link DeflateSeekIndex.SeekPoint}, and the decoder records one at the start of a block whenever
+ * it has produced at least the spacing of its seek index since the last recorded one.
+ * <br>
+ * <br>
+ * The decoder reads the compressed data directly from a region of a source, and is slower than zlib, so it is only
+ * used where resuming matters. A single instance must not be shared between threads.
+ * <br>
+ * <br>
+ * The decoder also decodes Deflate64 (enhanced deflate, compression method 9), which zlib does not support. It is
+ * DEFLATE with a 64KB window, length code 285 taking 16 extra bits instead of standing for 258, and two more
+ * distance codes (30 and 31) that reach into the larger window. Deflate64 data is read from a stream, without
+ * seek points.
+ */
+class InflateDecoder {
+    private static final int EOF = -1;
+
+    private static final int MAX_BITS = 15;
+    private static final int FAST_BITS = 10;
+    private static final int FAST_MASK = (1 << FAST_BITS) - 1;
+
+    /**
+     * Size of the window, the farthest distance a back-reference can reach.
+     */
+    static final int WINDOW_SIZE = 1 << 15;
+
+    /**
+     * Size of the window of Deflate64.
+     */
+    static final int DEFLATE64_WINDOW_SIZE = 1 << 16;
+
+    private static final int INPUT_BUFFER_SIZE = 1 << 16;
+
+    private static final int[] LENGTH_BASE = {
+            3, 4, 5, 6, 7, 8, 9, 10, 11, 13, 15, 17, 19, 23, 27, 31,
+            35, 43, 51, 59, 67, 83, 99, 115, 131, 163, 195, 227, 258
+    };
+    private static final int[] LENGTH_EXTRA = {
+            0, 0, 0, 0, 0, 0, 0, 0, 1, 1, 1, 1, 2, 2, 2, 2,
+            3, 3, 3, 3, 4, 4, 4, 4, 5, 5, 5, 5, 0
+    };
+    /**
+     * Deflate64 only: the length of code 285, and its extra bits
+     */
+    private static final int DEFLATE64_LONG_LENGTH_BASE = 3;
+    private static final int DEFLATE64_LONG_LENGTH_EXTRA = 16;
+
+    /**
+     * distance codes 30 and 31 are only valid in Deflate64
+     */
+    private static final int[] DISTANCE_BASE = {
+            1, 2, 3, 4, 5, 7, 9, 13, 17, 25, 33, 49, 65, 97, 129, 193,
+            257, 385, 513, 769, 1025, 1537, 2049, 3073, 4097, 6145, 8193, 12289, 16385, 24577,
+            32769, 49153
+    };
+    private static final int[] DISTANCE_EXTRA = {
+            0, 0, 0, 0, 1, 1, 2, 2, 3, 3, 4, 4, 5, 5, 6, 6,
+            7, 7, 8, 8, 9, 9, 10, 10, 11, 11, 12, 12, 13, 13,
+            14, 14
+    };
+    private static final int DISTANCE_CODE_COUNT = 30;
+    private static final int DEFLATE64_DISTANCE_CODE_COUNT = 32;
+    private static final int[] CODE_LENGTH_ORDER = {
+            16, 17, 18, 0, 8, 7, 9, 6, 10, 5, 11, 4, 12, 3, 13, 2, 14, 1, 15
+    };
+
+    private static final Huffman FIXED_LITERAL_CODE;
+    private static final Huffman FIXED_DISTANCE_CODE;
+
+    static {
+        byte[] lengths = new byte[288];
+        Arrays.fill(lengths, 0, 144, (byte) 8);
+        Arrays.fill(lengths, 144, 256, (byte) 9);
+        Arrays.fill(lengths, 256, 280, (byte) 7);
+        Arrays.fill(lengths, 280, 288, (byte) 8);
+        try {
+            FIXED_LITERAL_CODE = new Huffman(lengths, 0, 288);
+            Arrays.fill(lengths, 0, 32, (byte) 5);
+            FIXED_DISTANCE_CODE = new Huffman(lengths, 0, 32);
+        } catch (IOException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private enum State {
+        BLOCK_HEADER, STORED, CODES, DONE
+    }
+
+    /**
+     * the source holding the compressed data, or null if it is read from a stream
+     */
+    private final RandomAccessSource source;
+    private final InputStream stream;
+
+    /**
+     * position of the compressed data within the source, and its length
+     */
+    private final long start;
+    private final long length;
+
+    /**
+     * the seek index to record seek points in, or null
+     */
+    private final DeflateSeekIndex seekIndex;
+
+    private final byte[] input = new byte[INPUT_BUFFER_SIZE];
+    private int inputPos;
+    private int inputLimit;
+
+    /**
+     * offset (within the compressed data) of the byte following the last byte in the input buffer
+     */
+    private long inputEnd;
+
+    private long bitBuffer;
+    private int bitCount;
+
+    private final boolean deflate64;
+    private final byte[] window;
+    private final int windowMask;
+
+    /**
+     * number of bytes produced so far, including the bytes in front of the starting point
+     */
+    private long outputPos;
+
+    /**
+     * position (within the uncompressed data) of the oldest byte that has ever been in the window
+     */
+    private long historyStart;
+
+    private State state = State.BLOCK_HEADER;
+    private boolean lastBlock;
+    private Huffman literalCode;
+    private Huffman distanceCode;
+    private int storedRemaining;
+    private int copyRemaining;
+    private int copyDistance;
+
+    private byte[] skipBuffer;
+
+    /**
+     * Create a decoder at the start of the compressed data.
+     *
+     * @param source    The source holding the compressed data.
+     * @param start     Position of the compressed data within the source.
+     * @param length    Length of the compressed data.
+     * @param seekIndex The seek index to record seek points in, or null.
+     */
+    public InflateDecoder(RandomAccessSource source, long start, long length, DeflateSeekIndex seekIndex) {
+        this(source, null, start, length, seekIndex, false);
+    }
+
+    /**
+     * Create a decoder that reads the compressed data from a stream, to its end or to the end of the data.
+     *
+     * @param stream    The stream supplying the compressed data.
+     * @param deflate64 Whether the data is Deflate64 rather than DEFLATE.
+     */
+    public InflateDecoder(InputStream stream, boolean deflate64) {
+        this(null, stream, 0, Long.MAX_VALUE, null, deflate64);
+    }
+
+    private InflateDecoder(RandomAccessSource source,
+                           InputStream stream,
+                           long start,
+                           long length,
+                           DeflateSeekIndex seekIndex,
+                           boolean deflate64) {
+        this.source = source;
+        this.stream = stream;
+        this.start = start;
+        this.length = length;
+        this.seekIndex = seekIndex;
+        this.deflate64 = deflate64;
+        this.window = new byte[deflate64 ? DEFLATE64_WINDOW_SIZE : WINDOW_SIZE];
+        this.windowMask = window.length - 1;
+    }
+
+    /**
+     * Create a decoder at the given seek point of the compressed data.
+     *
+     * @see #InflateDecoder(RandomAccessSource, long, long, DeflateSeekIndex)
+     */
+    public InflateDecoder(RandomAccessSource source,
+                          long start,
+                          long length,
+                          DeflateSeekIndex seekIndex,
+                          DeflateSeekIndex.SeekPoint seekPoint) throws IOException {
+        this(source, start, length, seekIndex);
+
+        long bitOffset = seekPoint.getBitOffset();
+        inputEnd = bitOffset >>> 3;
+        int skipBits = (int) (bitOffset & 7);
+        if (skipBits > 0) {
+            needBits(skipBits);
+            dropBits(skipBits);
+        }
+
+        byte[] dictionary = seekPoint.getWindow();
+        outputPos = seekPoint.getUncompressedOffset();
+        historyStart = outputPos - dictionary.length;
+        for (int i = 0; i < dictionary.length; ++i) {
+            window[(int) (historyStart + i) & windowMask] = dictionary[i];
+        }
+    }
+
+    /**
+     * Get the number of bytes produced so far, i.e. the position within the uncompressed data.
+     */
+    public long getOutputPosition() {
+        return outputPos;
+    }
+
+    /**
+     * Decode up to {@code len} bytes of uncompressed data.
+     *
+     * @return The number of bytes decoded, or -1 if the end of the compressed data has been reached.
+     * @throws IOException If the compressed data is malformed or truncated, or it can not be read.
+     */
+    public int read(byte[] b, int off, int len) throws IOException {
+        int produced = 0;
+        while (produced < len) {
+            if (copyRemaining > 0) {
+                produced += copy(b, off + produced, len - produced);
+                continue;
+            }
+
+            switch (state) {
+                case BLOCK_HEADER:
+                    readBlockHeader();
+                    break;
+                case STORED:
+                    produced += readStored(b, off + produced, len - produced);
+                    break;
+                case CODES:
+                    int symbol = decodeSymbol(literalCode);
+                    if (symbol < 256) {
+                        byte value = (byte) symbol;
+                        window[(int) outputPos & windowMask] = value;
+                        ++outputPos;
+                        b[off + produced++] = value;
+                    } else if (symbol == 256) {
+                        state = lastBlock ? State.DONE : State.BLOCK_HEADER;
+                    } else {
+                        readBackReference(symbol);
+                    }
+                    break;
+                default:
+                    return produced > 0 ? produced : EOF;
+            }
+        }
+        return produced;
+    }
+
+    /**
+     * Skip up to {@code n} bytes of uncompressed data, by decoding and discarding them.
+     *
+     * @return The number of bytes skipped, which is less than {@code n} only at the end of the data.
+     */
+    public long skip(long n) throws IOException {
+        if (skipBuffer == null) {
+            skipBuffer = new byte[8192];
+        }
+        long skipped = 0;
+        while (skipped < n) {
+            int count = read(skipBuffer, 0, (int) Math.min(skipBuffer.length, n - skipped));
+            if (count == EOF) {
+                break;
+            }
+            skipped += count;
+        }
+        return skipped;
+    }
+
+    private void readBlockHeader() throws IOException {
+        if (seekIndex != null) {
+            seekIndex.offer(getBitOffset(), outputPos, this);
+        }
+
+        needBits(3);
+        lastBlock = (bitBuffer & 1) != 0;
+        int blockType = (int) (bitBuffer >>> 1) & 3;
+        dropBits(3);
+
+        switch (blockType) {
+            case 0:
+                // stored block - the length fields start at the next byte boundary
+                dropBits(bitCount & 7);
+                needBits(32);
+                int storedLength = (int) (bitBuffer & 0xFFFF);
+                int storedLengthComplement = (int) ((bitBuffer >>> 16) & 0xFFFF);
+                dropBits(32);
+                if (storedLength != (~storedLengthComplement & 0xFFFF)) {
+                    throw new IOException("Invalid stored block length");
+                }
+                storedRemaining = storedLength;
+                state = State.STORED;
+                break;
+            case 1:
+                literalCode = FIXED_LITERAL_CODE;
+                distanceCode = FIXED_DISTANCE_CODE;
+                state = State.CODES;
+                break;
+            case 2:
+                readDynamicCodes();
+                state = State.CODES;
+                break;
+            default:
+                throw new IOException("Invalid block type");
+        }
+    }
+
+    private void readDynamicCodes() throws IOException {
+        needBits(14);
+        int literalCount = (int) (bitBuffer & 0x1F) + 257;
+        int distanceCount = (int) ((bitBuffer >>> 5) & 0x1F) + 1;
+        int codeLengthCount = (int) ((bitBuffer >>> 10) & 0xF) + 4;
+        dropBits(14);
+        if (literalCount > 286 || distanceCount > (deflate64 ? DEFLATE64_DISTANCE_CODE_COUNT : DISTANCE_CODE_COUNT)) {
+            throw new IOException("Invalid dynamic block code counts");
+        }
+
+        byte[] codeLengthLengths = new byte[19];
+        for (int i = 0; i < codeLengthCount; ++i) {
+            needBits(3);
+            codeLengthLengths[CODE_LENGTH_ORDER[i]] = (byte) (bitBuffer & 7);
+            dropBits(3);
+        }
+        Huffman codeLengthCode = new Huffman(codeLengthLengths, 0, 19);
+
+        byte[] lengths = new byte[literalCount + distanceCount];
+        int index = 0;
+        while (index < lengths.length) {
+            int symbol = decodeSymbol(codeLengthCode);
+            if (symbol < 16) {
+                lengths[index++] = (byte) symbol;
+                continue;
+            }
+
+            int repeat;
+            byte value = 0;
+            if (symbol == 16) {
+                if (index == 0) {
+                    throw new IOException("Invalid code length repeat");
+                }
+                value = lengths[index - 1];
+                repeat = 3 + readBits(2);
+            } else if (symbol == 17) {
+                repeat = 3 + readBits(3);
+            } else {
+                repeat = 11 + readBits(7);
+            }
+            if (index + repeat > lengths.length) {
+                throw new IOException("Invalid code length repeat");
+            }
+            Arrays.fill(lengths, index, index + repeat, value);
+            index += repeat;
+        }
+        if (lengths[256] == 0) {
+            throw new IOException("Missing end of block code");
+        }
+
+        literalCode = new Huffman(lengths, 0, literalCount);
+        distanceCode = new Huffman(lengths, literalCount, distanceCount);
+    }
+
+    private void readBackReference(int symbol) throws IOException {
+        symbol -= 257;
+        if (symbol >= LENGTH_BASE.length) {
+            throw new IOException("Invalid length code");
+        }
+        int copyLength;
+        if (deflate64 && symbol == LENGTH_BASE.length - 1) {
+            copyLength = DEFLATE64_LONG_LENGTH_BASE + readBits(DEFLATE64_LONG_LENGTH_EXTRA);
+        } else {
+            copyLength = LENGTH_BASE[symbol] + readBits(LENGTH_EXTRA[symbol]);
+        }
+
+        int distanceSymbol = decodeSymbol(distanceCode);
+        if (distanceSymbol >= (deflate64 ? DEFLATE64_DISTANCE_CODE_COUNT : DISTANCE_CODE_COUNT)) {
+            throw new IOException("Invalid distance code");
+        }
+        int distance = DISTANCE_BASE[distanceSymbol] + readBits(DISTANCE_EXTRA[distanceSymbol]);
+        if (distance > Math.min(window.length, outputPos - historyStart)) {
+            throw new IOException("Invalid distance - too far back");
+        }
+
+        copyRemaining = copyLength;
+        copyDistance = distance;
+    }
+
+    private int copy(byte[] b, int off, int len) {
+        int count = Math.min(copyRemaining, len);
+        for (int i = 0; i < count; ++i) {
+            byte value = window[(int) (outputPos - copyDistance) & windowMask];
+            window[(int) outputPos & windowMask] = value;
+            ++outputPos;
+            b[off + i] = value;
+        }
+        copyRemaining -= count;
+        return count;
+    }
+
+    private int readStored(byte[] b, int off, int len) throws IOException {
+        if (storedRemaining == 0) {
+            state = lastBlock ? State.DONE : State.BLOCK_HEADER;
+            return 0;
+        }
+
+        int count = Math.min(storedRemaining, len);
+        int produced = 0;
+
+        // whole bytes left in the bit buffer come first
+        while (produced < count && bitCount >= 8) {
+            b[off + produced++] = (byte) bitBuffer;
+            dropBits(8);
+        }
+        while (produced < count) {
+            if (inputPos == inputLimit && !refill()) {
+                throw new IOException("Unexpected end of compressed data");
+            }
+            int chunk = Math.min(count - produced, inputLimit - inputPos);
+            System.arraycopy(input, inputPos, b, off + produced, chunk);
+            inputPos += chunk;
+            produced += chunk;
+        }
+
+        for (int i = 0; i < count; ++i) {
+            window[(int) outputPos & windowMask] = b[off + i];
+            ++outputPos;
+        }
+        storedRemaining -= count;
+        return count;
+    }
+
+    private int decodeSymbol(Huffman code) throws IOException {
+        fillBits(MAX_BITS);
+        int entry = code.fast[(int) bitBuffer & FAST_MASK];
+        if (entry >= 0) {
+            int codeLength = entry & 0xF;
+            if (codeLength > bitCount) {
+                throw new IOException("Unexpected end of compressed data");
+            }
+            dropBits(codeLength);
+            return entry >>> 4;
+        }
+
+        // codes longer than the fast table, decoded one bit at a time
+        int codeValue = 0;
+        int first = 0;
+        int index = 0;
+        for (int codeLength = 1; codeLength <= MAX_BITS; ++codeLength) {
+            codeValue |= readBits(1);
+            int count = code.counts[codeLength];
+            if (codeValue - first < count) {
+                return code.symbols[index + codeValue - first];
+            }
+            index += count;
+            first = (first + count) << 1;
+            codeValue <<= 1;
+        }
+        throw new IOException("Invalid Huffman code");
+    }
+
+    private int readBits(int count) throws IOException {
+        if (count == 0) {
+            return 0;
+        }
+        needBits(count);
+        int value = (int) (bitBuffer & ((1L << count) - 1));
+        dropBits(count);
+        return value;
+    }
+
+    private void needBits(int count) throws IOException {
+        fillBits(count);
+        if (bitCount < count) {
+            throw new IOException("Unexpected end of compressed data");
+        }
+    }
+
+    /**
+     * Fill the bit buffer with at least {@code count} bits, or as many as there are left.
+     */
+    private void fillBits(int count) throws IOException {
+        while (bitCount < count) {
+            if (inputPos == inputLimit && !refill()) {
+                return;
+            }
+            bitBuffer |= (input[inputPos++] & 0xFFL) << bitCount;
+            bitCount += 8;
+        }
+    }
+
+    private void dropBits(int count) {
+        bitBuffer >>>= count;
+        bitCount -= count;
+    }
+
+    private boolean refill() throws IOException {
+        if (stream != null) {
+            int readNum = stream.read(input, 0, input.length);
+            inputPos = 0;
+            inputLimit = Math.max(readNum, 0);
+            inputEnd += inputLimit;
+            return inputLimit > 0;
+        }
+
+        int toRead = (int) Math.min(input.length, length - inputEnd);
+        if (toRead <= 0) {
+            return false;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(input, 0, toRead);
+        while (buffer.hasRemaining()) {
+            if (source.read(start + inputEnd + buffer.position(), buffer) < 0) {
+                break;
+            }
+        }
+        inputPos = 0;
+        inputLimit = buffer.position();
+        inputEnd += inputLimit;
+        return inputLimit > 0;
+    }
+
+    /**
+     * Get the offset of the next unread bit of the compressed data.
+     */
+    private long getBitOffset() {
+        return ((inputEnd - (inputLimit - inputPos)) << 3) - bitCount;
+    }
+
+    /**
+     * Get a copy of the window, i.e. of the last (up to) 32KB of the uncompressed data, oldest byte first.
+     */
+    byte[] copyWindow() {
+        int windowLength = (int) Math.min(window.length, outputPos - historyStart);
+        byte[] copy = new byte[windowLength];
+        for (int i = 0; i < windowLength; ++i) {
+            copy[i] = window[(int) (outputPos - windowLength + i) & windowMask];
+        }
+        return copy;
+    }
+
+    /**
+     * A canonical Huffman code, with a lookup table for codes of up to {@link #FAST_BITS} bits.
+     */
+    private static final class Huffman {
+        /**
+         * (symbol << 4 | code length) by the next {@link #FAST_BITS} bits of input, or -1 for longer codes
+         */
+        final int[] fast = new int[1 << FAST_BITS];
+
+        /**
+         * number of codes of each length
+         */
+        final int[] counts = new int[MAX_BITS + 1];
+
+        /**
+         * symbols ordered by code
+         */
+        final int[] symbols;
+
+        Huffman(byte[] lengths, int offset, int count) throws IOException {
+            for (int i = 0; i < count; ++i) {
+                counts[lengths[offset + i]]++;
+            }
+            counts[0] = 0;
+
+            // more codes of a length than there is room for can not be decoded unambiguously
+            int left = 1;
+            for (int codeLength = 1; codeLength <= MAX_BITS; ++codeLength) {
+                left = (left << 1) - counts[codeLength];
+                if (left < 0) {
+                    throw new IOException("Over-subscribed Huffman code");
+                }
+            }
+
+            int[] nextIndex = new int[MAX_BITS + 2];
+            for (int codeLength = 1; codeLength <= MAX_BITS; ++codeLength) {
+                nextIndex[codeLength + 1] = nextIndex[codeLength] + counts[codeLength];
+            }
+            symbols = new int[nextIndex[MAX_BITS + 1]];
+            int[] position = Arrays.copyOf(nextIndex, nextIndex.length);
+            for (int i = 0; i < count; ++i) {
+                int codeLength = lengths[offset + i];
+                if (codeLength != 0) {
+                    symbols[position[codeLength]++] = i;
+                }
+            }
+
+            // assign the canonical codes, and fill the lookup table with the short ones
+            Arrays.fill(fast, -1);
+            int code = 0;
+            int index = 0;
+            for (int codeLength = 1; codeLength <= MAX_BITS; ++codeLength) {
+                for (int i = 0; i < counts[codeLength]; ++i, ++code, ++index) {
+                    if (codeLength <= FAST_BITS) {
+                        int reversed = Integer.reverse(code) >>> (32 - codeLength);
+                        int entry = (symbols[index] << 4) | codeLength;
+                        for (int fill = reversed; fill < fast.length; fill += 1 << codeLength) {
+                            fast[fill] = entry;
+                        }
+                    }
+                }
+                code <<= 1;
+            }
+        }
+    }
+}
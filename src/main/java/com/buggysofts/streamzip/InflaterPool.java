@@ -0,0 +1,92 @@
+package com.buggysofts.streamzip;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.Inflater;
+
+/**
+ * A bounded, thread-safe pool of raw (i.e. {@code nowrap}) inflaters.
+ * <br>
+ * <br>
+ * Inflaters hold native (zlib) memory that is only freed by {@link Inflater#end()}, or
+ * eventually by finalization. The pool keeps up to {@code capacity} idle inflaters for reuse,
+ * and ends the ones it can not keep, so that the native memory is released deterministically.
+ * After the pool is closed, every inflater that is returned to it is ended immediately.
+ */
+class InflaterPool {
+    private final ArrayBlockingQueue<Inflater> idleInflaters;
+
+    private final LongAdder hitCount;
+    private final LongAdder missCount;
+
+    private volatile boolean closed;
+
+    public InflaterPool(int capacity) {
+        this.idleInflaters = new ArrayBlockingQueue<>(Math.max(1, capacity));
+        this.hitCount = new LongAdder();
+        this.missCount = new LongAdder();
+    }
+
+    /**
+     * Get an idle inflater from the pool, or a new one if the pool is empty.
+     */
+    public Inflater acquire() {
+        Inflater inflater = idleInflaters.poll();
+        if (inflater != null) {
+            hitCount.increment();
+        } else {
+            missCount.increment();
+            inflater = new Inflater(true);
+        }
+        return inflater;
+    }
+
+    /**
+     * Return an inflater to the pool. The inflater is reset, and either kept for
+     * reuse, or ended if the pool is full or closed.
+     * <br>
+     * The caller must not use the inflater after this call.
+     */
+    public void release(Inflater inflater) {
+        if (closed) {
+            inflater.end();
+        } else {
+            inflater.reset();
+            if (!idleInflaters.offer(inflater)) {
+                inflater.end();
+            } else if (closed) {
+                // the pool was closed while we were returning the inflater
+                endIdleInflaters();
+            }
+        }
+    }
+
+    /**
+     * Close the pool, and end all the idle inflaters.
+     */
+    public void close() {
+        closed = true;
+        endIdleInflaters();
+    }
+
+    private void endIdleInflaters() {
+        Inflater inflater;
+        while ((inflater = idleInflaters.poll()) != null) {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Get the number of times an idle inflater was reused.
+     */
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    /**
+     * Get the number of times a new inflater had to be created.
+     */
+    public long getMissCount() {
+        return missCount.sum();
+    }
+}
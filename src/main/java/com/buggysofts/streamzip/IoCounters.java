@@ -0,0 +1,45 @@
+package com.buggysofts.streamzip;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cumulative I/O counters of a {@link StreamZip}, updated by every read of the zip file.
+ * <br>
+ * <br>
+ * The counters are {@link LongAdder}s, so concurrent readers update them without contending
+ * with each other. Reading them (see {@link StreamZip#stats()}) is comparatively expensive.
+ */
+class IoCounters {
+    private final LongAdder bytesRead = new LongAdder();
+    private final LongAdder readCalls = new LongAdder();
+    private final LongAdder seeks = new LongAdder();
+
+    /**
+     * Record a single read call (e.g. a positional read, or a transfer) that returned the given number of bytes.
+     */
+    public void recordRead(long byteCount) {
+        readCalls.increment();
+        if (byteCount > 0) {
+            bytesRead.add(byteCount);
+        }
+    }
+
+    /**
+     * Record a read that does not continue where the previous read ended.
+     */
+    public void recordSeek() {
+        seeks.increment();
+    }
+
+    public long getBytesRead() {
+        return bytesRead.sum();
+    }
+
+    public long getReadCalls() {
+        return readCalls.sum();
+    }
+
+    public long getSeeks() {
+        return seeks.sum();
+    }
+}
@@ -0,0 +1,48 @@
+package com.buggysofts.streamzip;
+
+/**
+ * The JDK Flight Recorder events of this library - Java 8 version, which records nothing.
+ * <br>
+ * <br>
+ * The {@code jdk.jfr} API is not part of Java 8, so the events live in the Java 11 version of this class
+ * (under {@code src/main/java11}), which is packaged in {@code META-INF/versions/11} of the multi-release jar,
+ * and replaces this one on Java 11 and later.
+ * <br>
+ * This class must only be used through {@link ZipEvents}.
+ */
+final class JfrZipEvents {
+    private JfrZipEvents() {
+    }
+
+    public static Object beginArchiveOpen() {
+        return null;
+    }
+
+    public static void commitArchiveOpen(Object event,
+                                         long centralDirSize,
+                                         long entryCount,
+                                         boolean zip64,
+                                         boolean indexLoadedFromFile) {
+    }
+
+    public static Object beginSignatureScan() {
+        return null;
+    }
+
+    public static void commitSignatureScan(Object event, long bytesScanned, boolean found) {
+    }
+
+    public static Object beginEntryStreamOpen() {
+        return null;
+    }
+
+    public static void commitEntryStreamOpen(Object event, String entryName, int compression, long compressedSize) {
+    }
+
+    public static Object beginEntryStream() {
+        return null;
+    }
+
+    public static void commitEntryStream(Object event, String entryName, long bytesRead, long inflateNanos) {
+    }
+}
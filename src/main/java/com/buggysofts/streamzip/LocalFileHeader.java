@@ -3,7 +3,6 @@ package com.buggysofts.streamzip;
 import lombok.Getter;
 import lombok.ToString;
 
-import java.io.FileInputStream;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 
@@ -24,70 +23,62 @@ class LocalFileHeader extends ChunkProperties {
     private final String fileName;
     private final byte[] extraField;
 
-    public LocalFileHeader(FileInputStream in, long startOffset, boolean isZip64) throws Exception {
-        // reposition stream at chunk start
-        in.getChannel().position(this.offset = startOffset);
+    /**
+     * Parses a local file header from the given buffer.
+     * <br>
+     * The buffer must be in little endian order and positioned at the start of the header.
+     * On return, the buffer is positioned right after the end of the header.
+     *
+     * @param buffer      Buffer containing (at least) the whole header.
+     * @param startOffset Offset of the header within the zip file.
+     */
+    public LocalFileHeader(ByteBuffer buffer, long startOffset) throws Exception {
+        this.offset = startOffset;
 
         // according to the fixed length field sizes
         int fixedLengthDataLength = (4) + (2 * 5) + (4 * 3) + (2 * 2);
-        byte[] fixedLengthData = StreamUtils.readFully(
-                in,
-                fixedLengthDataLength,
-                false
-        );
-        if (fixedLengthData.length != fixedLengthDataLength) {
-            // returned data length is less than usual - not a zip file/corrupted one?
+        if (buffer.remaining() < fixedLengthDataLength) {
+            // remaining data length is less than usual - not a zip file/corrupted one?
             throw new Exception("Invalid local file header");
         } else {
-            ByteBuffer fixedLengthDataBuffer =
-                    ByteBuffer.wrap(fixedLengthData)
-                            .order(ByteOrder.LITTLE_ENDIAN);
-
             // for a valid zip file, signature will always be 0x04034b50 = 67324752
-            this.signature = fixedLengthDataBuffer.getInt();
+            this.signature = buffer.getInt();
             if (this.signature != ZipConstants.SIG_LOCAL_FILE_HEADER) {
                 // invalid header signature
                 throw new Exception("Invalid local file header");
             }
 
-            this.version = fixedLengthDataBuffer.getShort();
-            this.flags = fixedLengthDataBuffer.getShort();
-            this.compression = fixedLengthDataBuffer.getShort();
-            this.modTime = fixedLengthDataBuffer.getShort();
-            this.modDate = fixedLengthDataBuffer.getShort();
-            this.crc32 = fixedLengthDataBuffer.getInt();
+            this.version = buffer.getShort();
+            this.flags = buffer.getShort();
+            this.compression = buffer.getShort();
+            this.modTime = buffer.getShort();
+            this.modDate = buffer.getShort();
+            this.crc32 = buffer.getInt();
             // 0xFFFFFFFF if zip64, and it is stored in extraField
-            this.compressedSize = fixedLengthDataBuffer.getInt();
+            this.compressedSize = buffer.getInt();
             // 0xFFFFFFFF if zip64, and it is stored in extraField
-            this.uncompressedSize = fixedLengthDataBuffer.getInt();
-            this.fileNameLength = fixedLengthDataBuffer.getShort();
-            this.extraFieldLength = fixedLengthDataBuffer.getShort();
+            this.uncompressedSize = buffer.getInt();
+            this.fileNameLength = buffer.getShort();
+            this.extraFieldLength = buffer.getShort();
 
-            int variableLengthDataLength = fileNameLength + extraFieldLength;
-            byte[] variableLengthData = StreamUtils.readFully(
-                    in,
-                    variableLengthDataLength,
-                    false
-            );
-            if (variableLengthData.length != variableLengthDataLength) {
-                // returned data length is less than usual - not a zip file/corrupted one?
+            int variableLengthDataLength =
+                    Short.toUnsignedInt(fileNameLength) +
+                            Short.toUnsignedInt(extraFieldLength);
+            if (buffer.remaining() < variableLengthDataLength) {
+                // remaining data length is less than usual - not a zip file/corrupted one?
                 throw new Exception("Malformed local file header");
             } else {
-                ByteBuffer variableLengthDataBuffer =
-                        ByteBuffer.wrap(variableLengthData)
-                                .order(ByteOrder.LITTLE_ENDIAN);
-
                 try {
-                    byte[] fileNameData = new byte[fileNameLength];
-                    variableLengthDataBuffer.get(fileNameData);
+                    byte[] fileNameData = new byte[Short.toUnsignedInt(fileNameLength)];
+                    buffer.get(fileNameData);
                     this.fileName = new String(fileNameData);
 
                     // if archive is in ZIP64 format, this field holds the compressed & uncompressed data length,
                     // local file header offset, number of disk on which the corresponding file exists.
                     // in that case these values will be -1 (0xFFFFFFFF in case of int, 0xFFFF in case of short)
                     // some other data may exist along with these two.
-                    this.extraField = new byte[extraFieldLength];
-                    variableLengthDataBuffer.get(extraField);
+                    this.extraField = new byte[Short.toUnsignedInt(extraFieldLength)];
+                    buffer.get(extraField);
 
                     if (compressedSize == -1 || uncompressedSize == -1) {
                         ByteBuffer extraDataBuffer =
@@ -111,6 +102,15 @@ class LocalFileHeader extends ChunkProperties {
         }
     }
 
+    /**
+     * Get the variable length (name and extra field) size of the local file header
+     * whose fixed length part starts at the given index of the buffer.
+     */
+    public static int getVariableLengthDataLength(ByteBuffer buffer, int headerIndex) {
+        return Short.toUnsignedInt(buffer.getShort(headerIndex + 26)) +
+                Short.toUnsignedInt(buffer.getShort(headerIndex + 28));
+    }
+
     @Override
     public long getOffset() {
         return offset;
@@ -118,6 +118,7 @@ class LocalFileHeader extends ChunkProperties {
 
     @Override
     public int getSize() {
-        return (this.size = ((4) + (2 * 5) + (4 * 3) + (2 * 2)) + (fileNameLength + extraFieldLength));
+        return (this.size = ((4) + (2 * 5) + (4 * 3) + (2 * 2)) +
+                (Short.toUnsignedInt(fileNameLength) + Short.toUnsignedInt(extraFieldLength)));
     }
 }
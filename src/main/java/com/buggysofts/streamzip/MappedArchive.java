@@ -0,0 +1,87 @@
+package com.buggysofts.streamzip;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Read-only memory mapping of a whole file.
+ * <br>
+ * <br>
+ * As a single mapping can not be larger than 2GB, the file is mapped as a sequence of
+ * fixed size segments. A region that crosses a segment boundary is mapped separately
+ * when it is requested.
+ * <br>
+ * <br>
+ * The segments are never modified after the file is mapped (only duplicates of them are),
+ * so an instance can be used from any number of threads.
+ */
+class MappedArchive {
+    /**
+     * Size of each mapped segment (the last one may be smaller).
+     */
+    private static final long SEGMENT_SIZE = 1L << 30;
+
+    private final FileChannel channel;
+    private final long size;
+    private final MappedByteBuffer[] segments;
+
+    public MappedArchive(FileChannel channel) throws IOException {
+        this.channel = channel;
+        this.size = channel.size();
+
+        int segmentCount = (int) ((size + SEGMENT_SIZE - 1) / SEGMENT_SIZE);
+        this.segments = new MappedByteBuffer[segmentCount];
+        for (int i = 0; i < segmentCount; ++i) {
+            long segmentOffset = i * SEGMENT_SIZE;
+            segments[i] = channel.map(
+                    FileChannel.MapMode.READ_ONLY,
+                    segmentOffset,
+                    Math.min(SEGMENT_SIZE, size - segmentOffset)
+            );
+        }
+    }
+
+    /**
+     * Get a read-only view of the specified region of the file, without copying any data.
+     * <br>
+     * The returned buffer is in little endian order, positioned at 0, and its limit is the length of the region.
+     *
+     * @throws IOException If the region is out of the bounds of the file, or it is larger than 2GB.
+     */
+    public ByteBuffer slice(long offset, long length) throws IOException {
+        if (offset < 0 || length < 0 || offset + length > size) {
+            throw new IOException(
+                    String.format(
+                            "Region out of bounds - offset: %d, length: %d, file size: %d",
+                            offset,
+                            length,
+                            size
+                    )
+            );
+        }
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("Region is too large to be represented by a single buffer.");
+        }
+
+        ByteBuffer slice;
+        int segmentIndex = (int) (offset / SEGMENT_SIZE);
+        int segmentPosition = (int) (offset % SEGMENT_SIZE);
+        if (length == 0 || segmentPosition + length <= segments[segmentIndex].capacity()) {
+            ByteBuffer segment = segments[Math.min(segmentIndex, segments.length - 1)].duplicate();
+            segment.position(length == 0 ? 0 : segmentPosition);
+            segment.limit(segment.position() + (int) length);
+            slice = segment.slice();
+        } else {
+            // the region crosses a segment boundary
+            slice = channel.map(
+                    FileChannel.MapMode.READ_ONLY,
+                    offset,
+                    length
+            );
+        }
+        return slice.asReadOnlyBuffer().order(ByteOrder.LITTLE_ENDIAN);
+    }
+}
@@ -0,0 +1,108 @@
+package com.buggysofts.streamzip;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * An {@link InflaterInputStream} that borrows its inflater from an {@link InflaterPool}.
+ * <br>
+ * The inflater is returned to the pool as soon as the end of the compressed data is
+ * reached, or when the stream is closed, whichever happens first.
+ * <br>
+ * If the stream is timed (see {@link #setTimed(boolean)}), it keeps track of the time spent inflating,
+ * i.e. the time spent in reads, minus the time spent reading compressed data from the underlying stream.
+ */
+class PooledInflaterInputStream extends InflaterInputStream {
+    private static final int EOF = -1;
+
+    private final InflaterPool pool;
+
+    private boolean inflaterReleased;
+    private boolean closed;
+
+    private boolean timed;
+    private long readNanos;
+    private long fillNanos;
+
+    public PooledInflaterInputStream(InputStream in, InflaterPool pool, int size) {
+        super(in, pool.acquire(), size);
+        this.pool = pool;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (inflaterReleased) {
+            // the inflater may already be in use by another stream
+            if (closed) {
+                throw new IOException("Stream closed");
+            }
+            return EOF;
+        }
+
+        int bytesRead;
+        if (timed) {
+            long start = System.nanoTime();
+            bytesRead = super.read(b, off, len);
+            readNanos += System.nanoTime() - start;
+        } else {
+            bytesRead = super.read(b, off, len);
+        }
+        if (bytesRead == EOF) {
+            releaseInflater();
+        }
+        return bytesRead;
+    }
+
+    @Override
+    protected void fill() throws IOException {
+        if (timed) {
+            long start = System.nanoTime();
+            super.fill();
+            fillNanos += System.nanoTime() - start;
+        } else {
+            super.fill();
+        }
+    }
+
+    /**
+     * Enable or disable keeping track of the time spent inflating.
+     */
+    public void setTimed(boolean timed) {
+        this.timed = timed;
+    }
+
+    /**
+     * Get the time spent inflating so far, in nanoseconds, if the stream is timed.
+     */
+    public long getInflateNanos() {
+        return readNanos - fillNanos;
+    }
+
+    @Override
+    public int available() throws IOException {
+        if (inflaterReleased) {
+            if (closed) {
+                throw new IOException("Stream closed");
+            }
+            return 0;
+        }
+        return super.available();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!closed) {
+            releaseInflater();
+            closed = true;
+            super.close();
+        }
+    }
+
+    private void releaseInflater() {
+        if (!inflaterReleased) {
+            inflaterReleased = true;
+            pool.release(inf);
+        }
+    }
+}
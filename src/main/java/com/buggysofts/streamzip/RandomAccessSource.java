@@ -0,0 +1,45 @@
+package com.buggysofts.streamzip;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A source of bytes that supports positional reads, i.e. the bytes a {@link StreamZip} reads the zip from.
+ * <br>
+ * <br>
+ * Implementations must support concurrent reads from any number of threads, as entry streams of a
+ * {@link StreamZip} can be read from different threads at the same time.
+ *
+ * @see FileChannelSource
+ * @see ByteBufferSource
+ * @see CachingSource
+ */
+public interface RandomAccessSource extends Closeable {
+    /**
+     * Get the size of the source in bytes.
+     */
+    long size() throws IOException;
+
+    /**
+     * Read a sequence of bytes from the source into the given buffer, starting at the given position of the source.
+     * Like {@link FileChannel#read(ByteBuffer, long)}, it may read fewer bytes than the buffer has room for.
+     *
+     * @return The number of bytes read, possibly zero, or -1 if the position is at or beyond the end of the source.
+     */
+    int read(long position, ByteBuffer dst) throws IOException;
+
+    /**
+     * Get the file channel the bytes of this source come from, if there is one. It is used to transfer entry
+     * data directly to other channels, and to memory map the source.
+     * <br>
+     * The default implementation returns null.
+     */
+    @Nullable
+    default FileChannel getFileChannel() {
+        return null;
+    }
+}
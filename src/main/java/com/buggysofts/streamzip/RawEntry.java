@@ -0,0 +1,95 @@
+package com.buggysofts.streamzip;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * The central directory metadata of an entry, as stored in the zip, i.e. everything needed to write the headers
+ * of the entry into another zip, along with its compressed data (see {@link StreamZip#getRawInputStream(ZipEntry)}),
+ * without inflating and compressing the data again.
+ * <br>
+ * <br>
+ * Sizes are the actual sizes, even for ZIP64 entries. The extra field is the one of the central directory header,
+ * which includes the ZIP64 extended information field for ZIP64 entries - a writer that writes the sizes itself should
+ * leave out that field (header id 0x0001).
+ * <br>
+ * <br>
+ * The name and the comment are given both decoded, and as the bytes stored in the zip. A byte for byte copy must
+ * write the bytes, along with the flags, as the decoded strings may not encode back to the same bytes (e.g. names
+ * in CP437, without the UTF-8 flag, bit 11).
+ */
+@Getter
+@ToString
+@AllArgsConstructor(access = AccessLevel.PACKAGE)
+public class RawEntry {
+    private final String fileName;
+
+    /**
+     * the file name as stored in the zip
+     */
+    @ToString.Exclude
+    private final byte[] fileNameBytes;
+
+    private final short creatorVersion;
+    private final short extractorVersion;
+
+    /**
+     * general purpose bit flags
+     */
+    private final short flags;
+
+    /**
+     * compression method, e.g. 0 for stored, 8 for deflated
+     */
+    private final short compression;
+
+    /**
+     * last modification time and date, in MS-DOS format
+     */
+    private final short modTime;
+    private final short modDate;
+
+    private final int crc32;
+    private final long compressedSize;
+    private final long uncompressedSize;
+
+    private final short internalAttributes;
+    private final int externalAttributes;
+
+    @ToString.Exclude
+    private final byte[] extraField;
+    private final String fileComment;
+
+    /**
+     * the file comment as stored in the zip, or null if the entry has no comment
+     */
+    @ToString.Exclude
+    private final byte[] fileCommentBytes;
+
+    RawEntry(CentralDirFileHeader header,
+             byte[] fileNameBytes,
+             byte[] fileCommentBytes,
+             long compressedSize,
+             long uncompressedSize) {
+        this(
+                header.getFileName(),
+                fileNameBytes,
+                header.getCreatorVersion(),
+                header.getExtractorVersion(),
+                header.getFlags(),
+                header.getCompression(),
+                header.getModTime(),
+                header.getModDate(),
+                header.getCrc32(),
+                compressedSize,
+                uncompressedSize,
+                header.getInternalAttributes(),
+                header.getExternalAttributes(),
+                header.getExtraField(),
+                header.getFileComment(),
+                fileCommentBytes
+        );
+    }
+}
@@ -0,0 +1,124 @@
+package com.buggysofts.streamzip;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * This is a stream that supplies bytes from a fixed region of a {@link RandomAccessSource}.
+ * <br>
+ * <br>
+ * Unlike a stream obtained from the file itself, it keeps its own position, and only uses
+ * positional reads. So any number of these streams can read from the same source at once, from
+ * different threads. A single instance, like any other stream, must not be shared between threads.
+ * <br>
+ * <br>
+ * Closing this stream does not close the underlying source.
+ */
+class SourceInputStream extends InputStream {
+    private static final int EOF = -1;
+
+    /**
+     * the source to read from
+     */
+    private final RandomAccessSource source;
+
+    /**
+     * position of the first byte of the region within the source
+     */
+    private final long start;
+
+    /**
+     * the length of the region
+     */
+    private final long length;
+
+    /**
+     * the number of bytes already returned (or skipped)
+     */
+    private long pos;
+
+    /**
+     * the marked position
+     */
+    private long mark;
+
+    /**
+     * buffer used by {@link #read()}
+     */
+    private byte[] singleByte;
+
+    /**
+     * Creates a new {@code SourceInputStream} that supplies {@code length} bytes
+     * of the given source, starting at position {@code start}.
+     *
+     * @param source The source to read from
+     * @param start  Position of the first byte to supply
+     * @param length The number of bytes to supply
+     */
+    public SourceInputStream(final RandomAccessSource source, final long start, final long length) {
+        this.source = source;
+        this.start = start;
+        this.length = length;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (singleByte == null) {
+            singleByte = new byte[1];
+        }
+        return read(singleByte, 0, 1) == EOF ? EOF : (singleByte[0] & 0xFF);
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (pos >= length) {
+            return EOF;
+        }
+
+        final int maxRead = (int) Math.min(len, length - pos);
+        final int bytesRead = source.read(start + pos, ByteBuffer.wrap(b, off, maxRead));
+        if (bytesRead == EOF) {
+            return EOF;
+        }
+
+        pos += bytesRead;
+        return bytesRead;
+    }
+
+    /**
+     * Skips up to {@code n} bytes without reading them, by only moving the position of this stream.
+     */
+    @Override
+    public long skip(final long n) {
+        if (n <= 0) {
+            return 0;
+        }
+        final long toSkip = Math.min(n, length - pos);
+        pos += toSkip;
+        return toSkip;
+    }
+
+    @Override
+    public int available() {
+        return (int) Math.min(length - pos, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public synchronized void mark(final int readlimit) {
+        mark = pos;
+    }
+
+    @Override
+    public synchronized void reset() {
+        pos = mark;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return true;
+    }
+}
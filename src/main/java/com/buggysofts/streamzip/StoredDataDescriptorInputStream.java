@@ -0,0 +1,217 @@
+package com.buggysofts.streamzip;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.zip.CRC32;
+
+/**
+ * A stream that supplies the data of a stored entry whose size is only given by the data descriptor that follows
+ * the data, when reading a zip front to back.
+ * <br>
+ * <br>
+ * A stored entry has no end marker of its own, so the stream looks ahead for the data descriptor - its signature,
+ * followed by the CRC-32 of the data read so far, and two sizes equal to the number of bytes read so far (4 bytes
+ * each, or 8 bytes each for ZIP64). The first position where such a descriptor starts is the end of the data.
+ * The descriptor is consumed, and the bytes read ahead past it are pushed back to the wrapped stream, which
+ * is left positioned right after the descriptor.
+ * <br>
+ * <br>
+ * Data descriptors without a signature are not recognized, as nearly every writer writes the signature,
+ * and the data alone can not tell where such a descriptor starts.
+ */
+class StoredDataDescriptorInputStream extends InputStream {
+    private static final int EOF = -1;
+
+    /**
+     * length of a data descriptor with 4 byte sizes, and with 8 byte sizes
+     */
+    private static final int DESCRIPTOR_LENGTH = 16;
+    private static final int ZIP64_DESCRIPTOR_LENGTH = 24;
+
+    private final PushbackInputStream in;
+
+    /**
+     * bytes read ahead from the wrapped stream, the unsupplied ones are [start, end)
+     */
+    private final byte[] buffer;
+    private final ByteBuffer view;
+    private int start;
+    private int end;
+    private boolean eof;
+
+    /**
+     * position within the buffer up to which there is no descriptor
+     */
+    private int scanned;
+
+    /**
+     * position within the buffer of the descriptor, if one was found, otherwise -1
+     */
+    private int descriptorStart = -1;
+    private int descriptorLength;
+
+    private final CRC32 crc32;
+    private long length;
+    private boolean done;
+
+    /**
+     * @param in         The stream positioned at the start of the entry data.
+     * @param bufferSize Size of the look-ahead buffer. The wrapped stream must be able to take back this many bytes.
+     */
+    public StoredDataDescriptorInputStream(PushbackInputStream in, int bufferSize) {
+        this.in = in;
+        this.buffer = new byte[Math.max(bufferSize, 2 * ZIP64_DESCRIPTOR_LENGTH)];
+        this.view = ByteBuffer.wrap(buffer).order(ByteOrder.LITTLE_ENDIAN);
+        this.crc32 = new CRC32();
+    }
+
+    /**
+     * Get the number of bytes of data supplied so far, which is the size of the entry once the end is reached.
+     */
+    public long getLength() {
+        return length;
+    }
+
+    /**
+     * Get the CRC-32 of the data supplied so far.
+     */
+    public int getCrc32() {
+        return (int) crc32.getValue();
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] single = new byte[1];
+        int readNum = read(single, 0, 1);
+        return readNum == EOF ? EOF : single[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (done) {
+            return EOF;
+        }
+        if (len == 0) {
+            return 0;
+        }
+
+        while (true) {
+            int dataEnd = findDataEnd();
+            if (dataEnd > start) {
+                int count = Math.min(len, dataEnd - start);
+                System.arraycopy(buffer, start, b, off, count);
+                crc32.update(buffer, start, count);
+                length += count;
+                start += count;
+                return count;
+            }
+
+            if (descriptorStart == start) {
+                // the descriptor is right after all the supplied data, which its CRC-32 has to match
+                if (matchesCrc32(descriptorStart)) {
+                    finish();
+                    return EOF;
+                }
+                // not a descriptor after all, the signature is part of the data
+                descriptorStart = -1;
+                scanned = start + 1;
+                continue;
+            }
+
+            if (eof) {
+                throw new IOException("Unexpected end of data - missing data descriptor");
+            }
+            fill();
+        }
+    }
+
+    /**
+     * Get the end (within the buffer) of the bytes that are known to be data, i.e. the position of the first
+     * possible descriptor, or the first position that can not be decided until more bytes are read.
+     */
+    private int findDataEnd() {
+        if (descriptorStart >= 0) {
+            return descriptorStart;
+        }
+
+        int position = Math.max(scanned, start);
+        while (position < end) {
+            if (end - position < ZIP64_DESCRIPTOR_LENGTH && !eof) {
+                // not enough bytes to decide, unless this is the end of the stream
+                break;
+            }
+            if (end - position >= 4 && view.getInt(position) == ZipConstants.SIG_DATA_DESCRIPTOR) {
+                int matchedLength = matchSizes(position, length + (position - start));
+                if (matchedLength > 0) {
+                    descriptorStart = position;
+                    descriptorLength = matchedLength;
+                    break;
+                }
+            }
+            ++position;
+        }
+        scanned = position;
+        return position;
+    }
+
+    /**
+     * Check whether the sizes of a descriptor at the given position match the given data length.
+     *
+     * @return The length of the descriptor if they match, otherwise 0.
+     */
+    private int matchSizes(int position, long dataLength) {
+        if (end - position >= ZIP64_DESCRIPTOR_LENGTH &&
+                view.getLong(position + 8) == dataLength &&
+                view.getLong(position + 16) == dataLength) {
+            return ZIP64_DESCRIPTOR_LENGTH;
+        }
+        if (end - position >= DESCRIPTOR_LENGTH &&
+                Integer.toUnsignedLong(view.getInt(position + 8)) == (dataLength & 0xFFFFFFFFL) &&
+                Integer.toUnsignedLong(view.getInt(position + 12)) == (dataLength & 0xFFFFFFFFL) &&
+                dataLength < 0xFFFFFFFFL) {
+            return DESCRIPTOR_LENGTH;
+        }
+        return 0;
+    }
+
+    private boolean matchesCrc32(int position) {
+        return view.getInt(position + 4) == (int) crc32.getValue();
+    }
+
+    /**
+     * Consume the descriptor, and give the bytes read past it back to the wrapped stream.
+     */
+    private void finish() throws IOException {
+        done = true;
+        int afterDescriptor = descriptorStart + descriptorLength;
+        if (afterDescriptor < end) {
+            in.unread(buffer, afterDescriptor, end - afterDescriptor);
+        }
+        start = end = 0;
+    }
+
+    /**
+     * Read more bytes into the buffer, moving the unsupplied bytes to its start first.
+     */
+    private void fill() throws IOException {
+        if (start > 0) {
+            System.arraycopy(buffer, start, buffer, 0, end - start);
+            end -= start;
+            scanned -= start;
+            if (descriptorStart >= 0) {
+                descriptorStart -= start;
+            }
+            start = 0;
+        }
+
+        int readNum = in.read(buffer, end, buffer.length - end);
+        if (readNum == EOF) {
+            eof = true;
+        } else {
+            end += readNum;
+        }
+    }
+}
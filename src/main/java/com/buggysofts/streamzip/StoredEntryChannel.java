@@ -0,0 +1,121 @@
+package com.buggysofts.streamzip;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+
+/**
+ * A read-only channel over the data of an entry without compression.
+ * <br>
+ * <br>
+ * The channel only keeps its position within the entry data, and each read is a single positional read of the
+ * source, bounded to the data of the entry. So moving the position costs nothing, and reading a range of the entry
+ * costs one read of the source. Any number of channels can read from the same source at once, from different threads.
+ * A single channel should not be shared between threads, as the position is shared.
+ * <br>
+ * <br>
+ * Closing the channel does not close the source.
+ */
+class StoredEntryChannel implements SeekableByteChannel {
+    private final RandomAccessSource source;
+
+    /**
+     * position of the first byte of the entry data within the source
+     */
+    private final long start;
+
+    /**
+     * the length of the entry data
+     */
+    private final long length;
+
+    private long position;
+    private volatile boolean open = true;
+
+    public StoredEntryChannel(RandomAccessSource source, long start, long length) {
+        this.source = source;
+        this.start = start;
+        this.length = length;
+    }
+
+    @Override
+    public int read(ByteBuffer dst) throws IOException {
+        ensureOpen();
+        if (position >= length) {
+            return -1;
+        }
+        if (!dst.hasRemaining()) {
+            return 0;
+        }
+
+        int maxRead = (int) Math.min(dst.remaining(), length - position);
+        int originalLimit = dst.limit();
+        dst.limit(dst.position() + maxRead);
+        int bytesRead;
+        try {
+            bytesRead = source.read(start + position, dst);
+        } finally {
+            dst.limit(originalLimit);
+        }
+        if (bytesRead < 0) {
+            throw new IOException("Unexpected end of entry data");
+        }
+
+        position += bytesRead;
+        return bytesRead;
+    }
+
+    @Override
+    public int write(ByteBuffer src) {
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public long position() throws IOException {
+        ensureOpen();
+        return position;
+    }
+
+    /**
+     * Set the position within the entry data. A position beyond the end of the data is allowed,
+     * and reads at such a position return -1.
+     */
+    @Override
+    public SeekableByteChannel position(long newPosition) throws IOException {
+        if (newPosition < 0) {
+            throw new IllegalArgumentException("Negative position");
+        }
+        ensureOpen();
+        position = newPosition;
+        return this;
+    }
+
+    @Override
+    public long size() throws IOException {
+        ensureOpen();
+        return length;
+    }
+
+    @Override
+    public SeekableByteChannel truncate(long size) {
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public void close() {
+        open = false;
+    }
+
+    private void ensureOpen() throws ClosedChannelException {
+        if (!open) {
+            throw new ClosedChannelException();
+        }
+    }
+}
@@ -1,7 +1,10 @@
 package com.buggysofts.streamzip;
 
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 
 final class StreamUtils {
 
@@ -52,4 +55,30 @@ final class StreamUtils {
 
         return outStream.toByteArray();
     }
+
+    /**
+     * Reads exactly <b>readLength</b> bytes of data starting at the given position of the source.
+     * <br>
+     * The returned buffer is in little endian order and positioned at its start.
+     *
+     * @throws IOException If an I/O error occurs, or the source ends before <b>readLength</b> bytes are read.
+     **/
+    public static ByteBuffer readFully(RandomAccessSource source, long position, int readLength) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(readLength);
+        while (buffer.hasRemaining()) {
+            int readNum = source.read(position + buffer.position(), buffer);
+            if (readNum < 0) {
+                throw new IOException(
+                        String.format(
+                                "Unexpected end of data - read %d of %d bytes at position %d",
+                                buffer.position(),
+                                readLength,
+                                position
+                        )
+                );
+            }
+        }
+        buffer.flip();
+        return buffer.order(ByteOrder.LITTLE_ENDIAN);
+    }
 }
@@ -3,6 +3,8 @@ package com.buggysofts.streamzip;
 import lombok.NonNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
 import java.io.Closeable;
 import java.io.FileInputStream;
 import java.io.IOException;
@@ -10,61 +12,237 @@ import java.io.InputStream;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.function.BiConsumer;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
 import java.util.zip.Inflater;
-import java.util.zip.InflaterInputStream;
 
 public class StreamZip implements Closeable {
+    /**
+     * Size of the compressed data buffer of inflater streams.
+     */
+    private static final int INFLATER_INPUT_BUFFER_SIZE = 8192;
+
+    /**
+     * Size of the buffer used to write inflated data while extracting entries.
+     */
+    private static final int EXTRACT_BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Largest array size that is safe to allocate on all VMs.
+     */
+    private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+    private static final int EOF = -1;
+
+    /**
+     * Length of the fixed length fields of a local file header.
+     */
+    private static final int LOCAL_FILE_HEADER_FIXED_LENGTH = 30;
+
+    /**
+     * Size of the direct buffers the compressed data is read into when entries are inflated into byte buffers.
+     */
+    private static final int DIRECT_INFLATE_INPUT_BUFFER_SIZE = 1 << 16;
+
+    /**
+     * the stream the zip was opened from, if it was opened from a stream
+     */
     private final FileInputStream sourceStream;
 
+    /**
+     * the source every read goes through - the given source, wrapped with the I/O counters and the block cache
+     */
+    private final RandomAccessSource source;
+
+    private final StreamZipOptions options;
+
+    private final InflaterPool inflaterPool;
+    private final DirectBufferPool inflateInputBufferPool;
+    private final IoCounters ioCounters;
+
+    /**
+     * seek indices of the deflated entries opened as channels, by entry index
+     */
+    private final ConcurrentMap<Integer, DeflateSeekIndex> seekIndices;
+
+    /**
+     * identity of this zip in the entry cache, so that cached entries do not keep the zip itself reachable
+     */
+    private final Object entryCacheOwner = new Object();
+
+    private MappedArchive mappedArchive;
+
     private EndOfCentralDirRecord ecdRecord;
     private Zip64EndOfCentralDirRecord zip64EcdRecord;
     private Zip64EndOfCentralDirLocator zip64EcdLocator;
 
-    private Map<String, LocalFileHeader> localFileHeaderMap;
-    private Map<String, CentralDirFileHeader> centralDirFileHeaderMap;
+    private long centralDirFingerprint;
+    private boolean indexLoadedFromFile;
+    private CentralDirIndex centralDirIndex;
+    private volatile DirectoryIndex directoryIndex;
+
+    private volatile boolean closed;
+
+    /**
+     * Receives the entries read by {@link #readAll(Collection, EntryHandler)}.
+     */
+    public interface EntryHandler {
+        /**
+         * Handle an entry of the zip.
+         * <br>
+         * <br>
+         * The given stream supplies the uncompressed data of the entry, and is only valid during this call. It does
+         * not have to be read to the end, or closed.
+         */
+        void onEntry(@NonNull ZipEntry entry, @NonNull InputStream data) throws Exception;
+    }
 
     public StreamZip(@NonNull FileInputStream sourceStream) throws Exception {
+        this(sourceStream, new StreamZipOptions());
+    }
+
+    /**
+     * Open a zip file with the specified options.
+     *
+     * @see StreamZipOptions
+     */
+    public StreamZip(@NonNull FileInputStream sourceStream, @NonNull StreamZipOptions options) throws Exception {
+        this(new FileChannelSource(sourceStream.getChannel()), sourceStream, options);
+    }
+
+    /**
+     * Open a zip from any random access source, e.g. a {@link CachingSource} over a file on a network
+     * file system, or a {@link ByteBufferSource} over a zip in memory.
+     * <br>
+     * Closing the zip closes the source.
+     */
+    public StreamZip(@NonNull RandomAccessSource source) throws Exception {
+        this(source, new StreamZipOptions());
+    }
+
+    /**
+     * Open a zip from any random access source with the specified options.
+     *
+     * @see #StreamZip(RandomAccessSource)
+     * @see StreamZipOptions
+     */
+    public StreamZip(@NonNull RandomAccessSource source, @NonNull StreamZipOptions options) throws Exception {
+        this(source, null, options);
+    }
+
+    private StreamZip(RandomAccessSource source,
+                      FileInputStream sourceStream,
+                      StreamZipOptions options) throws Exception {
         this.sourceStream = sourceStream;
+        this.options = options;
+        this.inflaterPool = new InflaterPool(options.getInflaterPoolSize());
+        this.inflateInputBufferPool = new DirectBufferPool(
+                options.getInflaterPoolSize(),
+                DIRECT_INFLATE_INPUT_BUFFER_SIZE
+        );
+        this.ioCounters = new IoCounters();
+        this.seekIndices = new ConcurrentHashMap<>();
+        Object openEvent = ZipEvents.beginArchiveOpen();
+
+        // the counters sit below the cache, so that they only see the reads that reach the actual source
+        RandomAccessSource countedSource = new CountingSource(source, ioCounters);
+        this.source = options.getCacheSize() > 0 ?
+                new CachingSource(
+                        countedSource,
+                        options.getCacheSize(),
+                        options.getCacheBlockSize(),
+                        options.getCacheReadAheadBlocks()
+                ) :
+                countedSource;
 
-        if (sourceStream.getChannel().size() < 22) {
+        if (this.source.size() < 22) {
             throw new Exception("File size too low to be a zip file.");
         }
 
-        // initialize data
-        initializeData();
+        // map the file before anything else is read, if requested
+        if (options.isMemoryMapped()) {
+            FileChannel channel = this.source.getFileChannel();
+            if (channel == null) {
+                throw new Exception("Memory mapped mode is only available for sources backed by a file channel.");
+            }
+            mappedArchive = new MappedArchive(channel);
+        }
 
         // extract all metadata
         extractMetadata();
-    }
 
-    private void initializeData() {
-        localFileHeaderMap = new HashMap<>(0);
-        centralDirFileHeaderMap = new HashMap<>(0);
+        ZipEvents.commitArchiveOpen(
+                openEvent,
+                centralDirIndex.getCentralDirSize(),
+                centralDirIndex.size(),
+                zip64EcdRecord != null,
+                indexLoadedFromFile
+        );
     }
 
     private void extractMetadata() throws Exception {
-        // get a channel handle
-        FileChannel channel = sourceStream.getChannel();
-
-        // search from end of the file for ECD(End of Central Directory) record signature.
-        // As minimum ECDR size is 22 bytes, we can narrow our search by starting it from (file-size) - 22
-        long ecdRecordPosition = getLastDataPosition(
-                channel.size() - 22,
-                22 + (1 << 16),
+        // read the tail of the file, large enough to hold an ECD(End of Central Directory) record
+        // with the longest possible comment, along with the ZIP64 ECD locator that may precede it.
+        // all the signature searches below are done in this buffer.
+        long fileSize = source.size();
+        int tailLength = (int) Math.min(fileSize, 20 + 22 + 0xFFFF);
+        long tailOffset = fileSize - tailLength;
+        ByteBuffer tailBuffer = StreamUtils.readFully(source, tailOffset, tailLength);
+
+        // search from end of the tail for ECD(End of Central Directory) record signature.
+        // As minimum ECDR size is 22 bytes, we can narrow our search by starting it from (tail-size) - 22
+        Object scanEvent = ZipEvents.beginSignatureScan();
+        int ecdRecordIndex = getLastSignatureIndex(
+                tailBuffer,
+                tailLength - 22,
                 ZipConstants.SIG_END_OF_CENTRAL_DIR_RECORD
         );
-        if (ecdRecordPosition >= 0) {
+        ZipEvents.commitSignatureScan(
+                scanEvent,
+                tailLength - Math.max(ecdRecordIndex, 0),
+                ecdRecordIndex >= 0
+        );
+        if (ecdRecordIndex >= 0) {
+            // the fingerprint of the end of central directory records, and of the end of the central directory
+            // itself, identifies the central directory
+            CRC32 fingerprint = new CRC32();
             try {
+                tailBuffer.position(ecdRecordIndex);
                 ecdRecord =
                         new EndOfCentralDirRecord(
-                                sourceStream,
-                                ecdRecordPosition
+                                tailBuffer,
+                                tailOffset + ecdRecordIndex
                         );
+                fingerprint.update(tailBuffer.array(), ecdRecordIndex, ecdRecord.getSize());
             } catch (Exception e) {
                 throw new Exception(
                         String.format(
@@ -79,24 +257,30 @@ public class StreamZip implements Closeable {
                     ecdRecord.getGlobalCentralDirEntryCount()) {
                 throw new Exception("Multi-Disk zip file is not yet supported.");
             } else {
-                long zip64ecdLocatorPosition = getLastDataPosition(
-                        ecdRecord.getOffset() - 1,
-                        20,
-                        ZipConstants.SIG_ZIP64_END_OF_CENTRAL_DIR_LOCATOR
-                );
-                if (zip64ecdLocatorPosition >= 0) {
+                // ZIP64 ECD locator, if present, is located right before the ECD record
+                int zip64ecdLocatorIndex = ecdRecordIndex - 20;
+                if (zip64ecdLocatorIndex >= 0 &&
+                        tailBuffer.getInt(zip64ecdLocatorIndex) == ZipConstants.SIG_ZIP64_END_OF_CENTRAL_DIR_LOCATOR) {
                     try {
+                        tailBuffer.position(zip64ecdLocatorIndex);
                         zip64EcdLocator =
                                 new Zip64EndOfCentralDirLocator(
-                                        sourceStream,
-                                        zip64ecdLocatorPosition
+                                        tailBuffer,
+                                        tailOffset + zip64ecdLocatorIndex
                                 );
 
+                        ByteBuffer zip64EcdRecordBuffer = StreamUtils.readFully(
+                                source,
+                                zip64EcdLocator.getRelativeZip64ECDROffset(),
+                                (4) + (8) + (2 * 2) + (2 * 4) + (8 * 4)
+                        );
                         zip64EcdRecord =
                                 new Zip64EndOfCentralDirRecord(
-                                        sourceStream,
+                                        zip64EcdRecordBuffer,
                                         zip64EcdLocator.getRelativeZip64ECDROffset()
                                 );
+                        fingerprint.update(tailBuffer.array(), zip64ecdLocatorIndex, zip64EcdLocator.getSize());
+                        fingerprint.update(zip64EcdRecordBuffer.array());
                     } catch (Exception e) {
                         throw new Exception(
                                 String.format(
@@ -112,67 +296,36 @@ public class StreamZip implements Closeable {
                         throw new Exception("Multi-Disk zip file is not yet supported.");
                     } else {
                         // ZIP64-END-OF-CENTRAL-DIRECTORY-LOCATOR is available
-                        long currentOffset = zip64EcdRecord.getCentralDirStartOffset();
-                        for (int i = 0; i < zip64EcdRecord.getLocalCentralDirEntryCount(); ++i) {
-                            CentralDirFileHeader currentDFH = new CentralDirFileHeader(
-                                    sourceStream,
-                                    currentOffset,
-                                    true
-                            );
-                            centralDirFileHeaderMap.put(
-                                    currentDFH.getFileName(),
-                                    currentDFH
-                            );
-                            currentOffset += currentDFH.getSize();
-                            // System.out.println(currentDFH.toString());
-                        }
-                        for (Map.Entry<String, CentralDirFileHeader> entry : centralDirFileHeaderMap.entrySet()) {
-                            CentralDirFileHeader currentCFH = entry.getValue();
-                            LocalFileHeader currentFH = new LocalFileHeader(
-                                    sourceStream,
-                                    currentCFH.getLocalFileHeaderOffset(),
-                                    true
-                            );
-                            localFileHeaderMap.put(
-                                    currentFH.getFileName(),
-                                    currentFH
-                            );
-                            currentOffset += currentFH.getSize();
-                            // System.out.println(currentFH.toString());
-                        }
+                        updateCentralDirFingerprint(
+                                fingerprint,
+                                tailBuffer,
+                                tailOffset,
+                                zip64EcdRecord.getCentralDirStartOffset(),
+                                zip64EcdRecord.getCentralDirSize()
+                        );
+                        centralDirFingerprint = fingerprint.getValue();
+                        readCentralDir(
+                                zip64EcdRecord.getCentralDirStartOffset(),
+                                zip64EcdRecord.getCentralDirSize(),
+                                zip64EcdRecord.getLocalCentralDirEntryCount()
+                        );
                     }
                 } else {
                     // no ZIP64-END-OF-CENTRAL-DIRECTORY-LOCATOR is available
                     // we can rely on normal END-OF-CENTRAL-DIRECTORY
-                    long currentOffset = ecdRecord.getCentralDirStartOffset();
-                    for (int i = 0; i < ecdRecord.getLocalCentralDirEntryCount(); ++i) {
-                        CentralDirFileHeader currentDFH = new CentralDirFileHeader(
-                                sourceStream,
-                                currentOffset,
-                                false
-                        );
-                        centralDirFileHeaderMap.put(
-                                currentDFH.getFileName(),
-                                currentDFH
-                        );
-                        currentOffset += currentDFH.getSize();
-                        // System.out.println(currentDFH.toString());
-                    }
-
-                    for (Map.Entry<String, CentralDirFileHeader> entry : centralDirFileHeaderMap.entrySet()) {
-                        CentralDirFileHeader currentCFH = entry.getValue();
-                        LocalFileHeader currentFH = new LocalFileHeader(
-                                sourceStream,
-                                currentCFH.getLocalFileHeaderOffset(),
-                                false
-                        );
-                        localFileHeaderMap.put(
-                                currentFH.getFileName(),
-                                currentFH
-                        );
-                        currentOffset += currentFH.getSize();
-                        // System.out.println(currentFH.toString());
-                    }
+                    updateCentralDirFingerprint(
+                            fingerprint,
+                            tailBuffer,
+                            tailOffset,
+                            ecdRecord.getCentralDirStartOffset(),
+                            Integer.toUnsignedLong(ecdRecord.getCentralDirSize())
+                    );
+                    centralDirFingerprint = fingerprint.getValue();
+                    readCentralDir(
+                            ecdRecord.getCentralDirStartOffset(),
+                            Integer.toUnsignedLong(ecdRecord.getCentralDirSize()),
+                            Short.toUnsignedInt(ecdRecord.getLocalCentralDirEntryCount())
+                    );
                 }
             }
         } else {
@@ -187,188 +340,1647 @@ public class StreamZip implements Closeable {
         }
     }
 
+    /**
+     * Add the part of the central directory that is within the tail of the file (i.e. the whole central directory
+     * of most zips, or its last 64KB) to the fingerprint, so that a zip rewritten with the same size and the same
+     * central directory offset, size and entry count still gets a different fingerprint. This needs no extra read.
+     */
+    private static void updateCentralDirFingerprint(CRC32 fingerprint,
+                                                    ByteBuffer tailBuffer,
+                                                    long tailOffset,
+                                                    long centralDirOffset,
+                                                    long centralDirSize) {
+        long start = Math.max(centralDirOffset, tailOffset);
+        long end = Math.min(centralDirOffset + centralDirSize, tailOffset + tailBuffer.capacity());
+        if (centralDirOffset >= 0 && centralDirSize >= 0 && start < end) {
+            fingerprint.update(tailBuffer.array(), (int) (start - tailOffset), (int) (end - start));
+        }
+    }
+
+    /**
+     * Reads the whole central directory with a single positional read, and builds
+     * the central directory index from the resulting buffer.
+     * <br>
+     * If an index file is specified in the options, and it matches the zip, the index is loaded from it
+     * instead, otherwise the index file is (re)written after the index is built.
+     *
+     * @param startOffset Offset of the first central directory file header.
+     * @param size        Size of the central directory in bytes.
+     * @param entryCount  Number of central directory file headers to parse.
+     */
+    private void readCentralDir(long startOffset, long size, long entryCount) throws Exception {
+        if (size < 0 || size > Integer.MAX_VALUE || entryCount < 0 || entryCount > Integer.MAX_VALUE) {
+            throw new Exception("Central directory is too large to be loaded.");
+        }
+
+        Path indexFile = options.getIndexFile();
+        if (indexFile != null) {
+            CentralDirIndex storedIndex = IndexFile.read(
+                    indexFile,
+                    source.size(),
+                    options.getArchiveLastModified(),
+                    centralDirFingerprint
+            );
+            if (storedIndex != null &&
+                    storedIndex.getCentralDirOffset() == startOffset &&
+                    storedIndex.size() == entryCount) {
+                centralDirIndex = storedIndex;
+                indexLoadedFromFile = true;
+                return;
+            }
+        }
+
+        ByteBuffer centralDirBuffer;
+        try {
+            centralDirBuffer = StreamUtils.readFully(
+                    source,
+                    startOffset,
+                    (int) size
+            );
+        } catch (IOException e) {
+            throw new Exception(
+                    String.format(
+                            "%s - %s - %s",
+                            "Invalid zip file",
+                            "Could not read the central directory",
+                            "Make sure you are working with a valid zip file."
+                    )
+            );
+        }
+
+        centralDirIndex = new CentralDirIndex(
+                centralDirBuffer.array(),
+                startOffset,
+                (int) entryCount
+        );
+
+        if (indexFile != null) {
+            try {
+                writeIndex(indexFile);
+            } catch (Exception e) {
+                // the index file only speeds up opening the zip, so the zip is usable without it
+            }
+        }
+    }
+
+    /**
+     * Store the central directory index of the zip in the given sidecar index file, so that it can be loaded
+     * instead of being built the next time the zip is opened with {@link StreamZipOptions#setIndexFile(Path)}.
+     * <br>
+     * <br>
+     * This resolves the data offsets of all the entries (i.e. reads all the local file headers that have not
+     * been read yet), so that they are stored in the index file as well.
+     *
+     * @throws Exception If the zip has been closed, or the index file could not be written.
+     */
+    public void writeIndex(@NonNull Path indexFile) throws Exception {
+        if (closed) {
+            throw new Exception("Trying to write the index of a closed zip.");
+        }
+
+        for (int i = 0; i < centralDirIndex.size(); ++i) {
+            getDataOffset(i);
+        }
+
+        IndexFile.write(
+                indexFile,
+                centralDirIndex,
+                source.size(),
+                options.getArchiveLastModified(),
+                centralDirFingerprint
+        );
+    }
+
+    /**
+     * Check whether the central directory index was loaded from the index file specified in the options
+     * (see {@link StreamZipOptions#setIndexFile(Path)}), rather than built from the central directory.
+     */
+    public boolean isIndexLoadedFromFile() {
+        return indexLoadedFromFile;
+    }
+
     /**
      * Get a particular entry with the specified name, or null if not present.
      */
     @Nullable
     public ZipEntry getEntry(@NonNull String name) {
-        CentralDirFileHeader centralDirFileHeader = centralDirFileHeaderMap.get(name);
-        if (centralDirFileHeader != null) {
-            return new ZipEntry(centralDirFileHeader);
+        int entryIndex = centralDirIndex.find(name);
+        if (entryIndex >= 0) {
+            return centralDirIndex.createEntry(entryIndex);
         }
         return null;
     }
 
     /**
-     * Get a list of all the entries available in the zip file.
+     * Get a list of all the entries available in the zip file, in the order of the central directory.
      */
     public List<ZipEntry> entries() {
-        List<ZipEntry> zipEntryList = new ArrayList<>(0);
-        centralDirFileHeaderMap.forEach(
-                new BiConsumer<String, CentralDirFileHeader>() {
-                    @Override
-                    public void accept(String s, CentralDirFileHeader centralDirFileHeader) {
-                        zipEntryList.add(new ZipEntry(centralDirFileHeader));
-                    }
-                }
-        );
+        List<ZipEntry> zipEntryList = new ArrayList<>(centralDirIndex.size());
+        for (int i = 0; i < centralDirIndex.size(); ++i) {
+            zipEntryList.add(centralDirIndex.createEntry(i));
+        }
         return zipEntryList;
     }
 
+    /**
+     * Visit all the entries of the zip file in the order of the central directory, which usually
+     * is the order of their data in the file.
+     * <br>
+     * <br>
+     * Unlike {@link #entries()}, no {@link ZipEntry} is created. The visitor receives the same
+     * {@link ZipEntryView} for all the entries, moved to the entry being visited.
+     */
+    public void forEachEntry(@NonNull Consumer<ZipEntryView> visitor) {
+        ZipEntryView view = new ZipEntryView(centralDirIndex);
+        for (int i = 0; i < centralDirIndex.size(); ++i) {
+            visitor.accept(view.moveTo(i));
+        }
+    }
+
+    /**
+     * Get an iterator over all the entries of the zip file, in the order of the central directory.
+     * <br>
+     * <br>
+     * Like {@link #forEachEntry(Consumer)}, the iterator returns the same {@link ZipEntryView} on
+     * each call to {@code next()}, moved to the next entry.
+     */
+    public Iterator<ZipEntryView> entryIterator() {
+        return new Iterator<ZipEntryView>() {
+            private final ZipEntryView view = new ZipEntryView(centralDirIndex);
+            private int nextIndex = 0;
+
+            @Override
+            public boolean hasNext() {
+                return nextIndex < centralDirIndex.size();
+            }
+
+            @Override
+            public ZipEntryView next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return view.moveTo(nextIndex++);
+            }
+        };
+    }
+
+    /**
+     * List the immediate children of a directory of the zip, including directories that have no entry
+     * of their own and are only implied by the names of other entries.
+     * <br>
+     * <br>
+     * The paths of subdirectories (with a trailing '/') come first, sorted by name, followed by the names of
+     * the files, in the order of the central directory. The directory tree is built in memory on the first
+     * call to any directory related method, without reading the zip file again.
+     *
+     * @param dir Path of the directory, e.g. {@code "a/b/"}, {@code "a/b"}, or {@code ""} for the root.
+     * @return The paths of the children, or null if there is no such directory.
+     */
+    @Nullable
+    public List<String> list(@NonNull String dir) {
+        return getDirectoryIndex().list(DirectoryIndex.normalizePath(dir));
+    }
+
+    /**
+     * Visit the paths of everything under a directory of the zip, depth first, each directory
+     * (with a trailing '/') before its children.
+     *
+     * @param dir     Path of the directory, e.g. {@code "a/b/"}, {@code "a/b"}, or {@code ""} for the root.
+     * @param visitor Receives the path of each directory and file.
+     * @return False if there is no such directory, otherwise true.
+     * @see #list(String)
+     */
+    public boolean walk(@NonNull String dir, @NonNull Consumer<String> visitor) {
+        return getDirectoryIndex().walk(DirectoryIndex.normalizePath(dir), visitor);
+    }
+
+    /**
+     * Get the number of files and subdirectories, and the total compressed and uncompressed size of
+     * the files, under a directory of the zip.
+     *
+     * @param dir Path of the directory, e.g. {@code "a/b/"}, {@code "a/b"}, or {@code ""} for the root.
+     * @return The summary of the directory, or null if there is no such directory.
+     * @see #list(String)
+     */
+    @Nullable
+    public DirectorySummary getDirectorySummary(@NonNull String dir) {
+        return getDirectoryIndex().summarize(DirectoryIndex.normalizePath(dir));
+    }
+
+    private DirectoryIndex getDirectoryIndex() {
+        DirectoryIndex index = directoryIndex;
+        if (index == null) {
+            synchronized (this) {
+                index = directoryIndex;
+                if (index == null) {
+                    directoryIndex = index = new DirectoryIndex(centralDirIndex);
+                }
+            }
+        }
+        return index;
+    }
+
     /**
      * Get input stream for a particular entry.
+     * <br>
+     * <br>
+     * Each returned stream keeps its own position and reads the zip with positional reads, so streams
+     * of different entries (or of the same entry) can be read from different threads at the same time.
+     * A single stream must not be shared between threads.
+     * <br>
+     * <br>
+     * Closing the returned stream does not close the zip. Please close each stream when you are done with it,
+     * so that its resources (e.g. the inflater of a compressed entry) can be reused.
+     * <br>
+     * <br>
+     * Entries that are neither stored nor deflated are decoded by the codec of their compression method
+     * (see {@link CompressionCodecs}).
      *
      * @throws Exception If the input stream can not be opened due to unavailability,
-     *                   or if the entry is a directory entry, or the zip has been closed.
+     *                   or if the entry is a directory entry, or the zip has been closed,
+     *                   or there is no codec for the compression method of the entry.
      */
     public InputStream getInputStream(@NonNull ZipEntry entry) throws Exception {
+        return getInputStream(findEntryIndex(entry), entry.isDirectory());
+    }
+
+    /**
+     * Get input stream for the entry the given view currently describes.
+     *
+     * @see #getInputStream(ZipEntry)
+     */
+    public InputStream getInputStream(@NonNull ZipEntryView entry) throws Exception {
+        int entryIndex = entry.getIndexIn(centralDirIndex);
+        return getInputStream(
+                entryIndex >= 0 ? entryIndex : centralDirIndex.find(entry.getFileName()),
+                entry.isDirectory()
+        );
+    }
+
+    private InputStream getInputStream(int entryIndex, boolean isDirectory) throws Exception {
         // if the zip is closed, we can no longer access the stream.
         // however, other fields of this class (ZipStream) that does not depend on an
         // open connection and is initialized at object creation can still get cached values.
-        if (!sourceStream.getChannel().isOpen()) {
+        if (closed) {
             throw new Exception("Trying to get a stream from a closed zip.");
         }
 
         // check if the entry is not a directory
         // if so, throw an error
-        if (entry.isDirectory()) {
+        if (isDirectory) {
             throw new Exception("Can not return stream for directory entry.");
         }
 
-        // get header info
-        LocalFileHeader localFileHeader = localFileHeaderMap.get(entry.getFileName());
-        CentralDirFileHeader centralDirFileHeader = centralDirFileHeaderMap.get(entry.getFileName());
-
-        if (localFileHeader != null && centralDirFileHeader != null) {
-            // position the stream at the start of the entry data
-            sourceStream.getChannel().position(
-                    localFileHeader.getOffset() + localFileHeader.getSize()
-            );
-
-            if (centralDirFileHeader.getCompression() == 0) {
-                // not deflated, just return the main stream with appropriate bound
-                return new NonClosableInputStream(
-                        new BoundedInputStream(
-                                sourceStream,
-                                centralDirFileHeader.getCompressedSize()
-                        )
-                );
-            } else {
-                // return a bounded input stream wrapped by an InflaterInputStream
-                // to decompress the data while the caller is reading data.
-                return new NonClosableInputStream(
-                        new InflaterInputStream(
-                                new BoundedInputStream(
-                                        sourceStream,
-                                        centralDirFileHeader.getCompressedSize()
-                                ),
-                                new Inflater(true)
-                        )
-                );
+        if (entryIndex >= 0) {
+            EntryCache entryCache = options.getEntryCache();
+            if (entryCache != null && centralDirIndex.getUncompressedSize(entryIndex) <= entryCache.getMaxEntrySize()) {
+                byte[] data = entryCache.get(entryCacheOwner, entryIndex, () -> loadEntryData(entryIndex));
+                if (closed) {
+                    // the zip was closed while the entry was loading, do not leave its data in the cache
+                    entryCache.invalidate(entryCacheOwner);
+                }
+                return new ByteArrayInputStream(data);
             }
+            return openEntryStream(entryIndex, options.isVerifyCrc());
         } else {
             throw new Exception("The requested zip entry was not found.");
         }
     }
 
     /**
-     * Get number of available entries in this zip.
+     * Read the whole uncompressed data of an entry, for the entry cache.
      */
-    public int size() {
-        return centralDirFileHeaderMap.size();
+    private byte[] loadEntryData(int entryIndex) throws Exception {
+        return readEntryBytes(entryIndex);
     }
 
     /**
-     * Get global comment of the zip file.
+     * Read uncompressed data of an entry into the given buffer, starting at the given position within the entry.
+     * <br>
+     * <br>
+     * Unlike reading through {@link #getInputStream(ZipEntry)}, the data is not copied through any intermediate
+     * array. Data of an entry without compression is read from the zip straight into the buffer. On Java 11 and
+     * later, a deflated entry is inflated straight into the buffer with {@code Inflater.inflate(ByteBuffer)},
+     * from compressed data in direct buffers taken from a pool (or from the mapped memory in memory mapped mode), so
+     * reads allocate nothing once the pools are warm. Other entries, and deflated entries on older runtimes, are
+     * read through an entry stream.
+     * <br>
+     * <br>
+     * Reading from a position within a deflated entry inflates the data in front of it, so for many reads at
+     * different positions of the same entry, {@link #openChannel(ZipEntry)} is cheaper. The CRC-32 of the data is
+     * not checked, even if {@link StreamZipOptions#isVerifyCrc()} is set, as a read does not cover the whole entry
+     * - see {@link #readBytes(ZipEntry)}.
+     *
+     * @param entry    The entry to read.
+     * @param entryPos Position within the uncompressed data of the entry to start reading at.
+     * @param dst      The buffer to read into. Unless the end of the entry comes first, it is filled up.
+     * @return The number of bytes read, or -1 if the position is at or beyond the end of the entry.
+     * @throws Exception If the entry is a directory entry, or is not found, or the zip has been closed,
+     *                   or the data of the entry can not be read.
+     */
+    public int read(@NonNull ZipEntry entry, long entryPos, @NonNull ByteBuffer dst) throws Exception {
+        if (entryPos < 0) {
+            throw new IllegalArgumentException("Negative position");
+        }
+        int entryIndex = findReadableEntryIndex(entry);
+        if (entryPos >= centralDirIndex.getUncompressedSize(entryIndex)) {
+            return EOF;
+        }
+        return readEntryData(entryIndex, entryPos, dst);
+    }
+
+    /**
+     * Read the whole uncompressed data of an entry into a new array.
+     * <br>
+     * <br>
+     * The array is allocated once, with the uncompressed size of the entry, and the data is read into it as
+     * with {@link #read(ZipEntry, long, ByteBuffer)}. If {@link StreamZipOptions#isVerifyCrc()} is set, the CRC-32
+     * of the data is checked against the central directory.
+     *
+     * @throws Exception If the entry is a directory entry, or is not found, or the zip has been closed,
+     *                   or the entry is too large for an array, or the data of the entry can not be read.
      */
     @NonNull
-    public String getComment() {
-        return ecdRecord.getZipFileComment();
+    public byte[] readBytes(@NonNull ZipEntry entry) throws Exception {
+        return readEntryBytes(findReadableEntryIndex(entry));
     }
 
     /**
-     * Close the zip file. After this you won't be able to call {@code getInputStream()}.
+     * Get the index of an entry whose data is about to be read, checking that it can be read.
      */
-    @Override
-    public void close() throws IOException {
-        if (sourceStream != null) {
-            try {
-                sourceStream.close();
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
+    private int findReadableEntryIndex(ZipEntry entry) throws Exception {
+        if (closed) {
+            throw new Exception("Trying to read from a closed zip.");
+        }
+
+        if (entry.isDirectory()) {
+            throw new Exception("Can not read directory entry.");
+        }
+
+        int entryIndex = findEntryIndex(entry);
+        if (entryIndex < 0) {
+            throw new Exception("The requested zip entry was not found.");
         }
+        return entryIndex;
     }
 
-    @Override
-    protected void finalize() throws Throwable {
-        close();
+    /**
+     * Read the whole uncompressed data of an entry into a new array of its exact size, checking its CRC-32
+     * if the options ask for it.
+     */
+    private byte[] readEntryBytes(int entryIndex) throws Exception {
+        long uncompressedSize = centralDirIndex.getUncompressedSize(entryIndex);
+        if (uncompressedSize > MAX_ARRAY_SIZE) {
+            throw new Exception(
+                    String.format(
+                            "Entry is too large to be read into an array: %s",
+                            centralDirIndex.getFileName(entryIndex)
+                    )
+            );
+        }
+
+        byte[] data = new byte[(int) uncompressedSize];
+        if (data.length > 0) {
+            readEntryData(entryIndex, 0, ByteBuffer.wrap(data));
+        }
+        if (options.isVerifyCrc()) {
+            CRC32 crc32 = new CRC32();
+            crc32.update(data, 0, data.length);
+            if ((int) crc32.getValue() != centralDirIndex.getCrc32(entryIndex)) {
+                throw new IOException(
+                        String.format(
+                                "CRC-32 mismatch for entry %s - expected %08x, computed %08x",
+                                centralDirIndex.getFileName(entryIndex),
+                                centralDirIndex.getCrc32(entryIndex),
+                                (int) crc32.getValue()
+                        )
+                );
+            }
+        }
+        return data;
     }
 
     /**
-     * Search for the given data (any 32bit value) from the specified initial position,
-     * up to the start of the file/stream (traverses in backward direction).
-     * <br>
-     * <br>
-     * <b>Please note</b> - if the data is after(i.e. larger or >) the given initial position,
-     * the search will not be able to find it.
-     * <br>
-     * <br>
-     * Search starts from the given initial position, traverses data within the stream in decreasing
-     * order of the position, and when it encounters an occurrence of the data, it returns the position
-     * of the first byte of that occurrence, or -1 if not found within the searched region.
+     * Read uncompressed data of an entry into the given buffer, starting at the given position, which must be
+     * within the entry, until the buffer is full or the entry ends.
      *
-     * @return Position of the last occurrence of the data, or -1 if not found.
-     */
-    private long getLastDataPosition(long initialPosition, int maxReadCount, int data) throws Exception {
-        // keep a copy of the original position.
-        // we will reposition the stream to the original position after we are done working.
-        long currentPosition = initialPosition;
-        int firstSignatureByte = (data & ((1 << 8) - 1));
-
-        int readCount = 0;
-        while (currentPosition >= 0) {
-            // position the stream to currentPosition
-            sourceStream.getChannel().position(currentPosition);
-
-            // look for a signature candidate, if found or failed, break
-            while (currentPosition >= 0 && readCount <= maxReadCount && sourceStream.read() != firstSignatureByte) {
-                ++readCount;
-                if (--currentPosition >= 0) {
-                    sourceStream.getChannel().position(currentPosition);
-                }
-            }
+     * @return The number of bytes read.
+     */
+    private int readEntryData(int entryIndex, long entryPos, ByteBuffer dst) throws Exception {
+        int length = (int) Math.min(
+                dst.remaining(),
+                centralDirIndex.getUncompressedSize(entryIndex) - entryPos
+        );
+        if (length == 0) {
+            return 0;
+        }
 
-            // if currentPosition < 0, we're at start of the file and couldn't find the first byte of the signature.
-            // also, we will be here if we've read more than maxReadCount bytes of data (in reverse order).
-            // apart from the above two cases, we've found a candidate.
-            if (currentPosition < 0 || readCount > maxReadCount) {
-                // reposition the stream to original position
-                sourceStream.getChannel().position(initialPosition);
-                // return -1 to indicate that the search was unsuccessful
-                return -1;
+        int limit = dst.limit();
+        dst.limit(dst.position() + length);
+        try {
+            int compression = Short.toUnsignedInt(centralDirIndex.getCompression(entryIndex));
+            if (compression == 0) {
+                readStoredData(entryIndex, entryPos, dst);
+            } else if (compression == 8 && BufferInflaters.isAvailable()) {
+                inflateData(entryIndex, entryPos, dst);
             } else {
-                sourceStream.getChannel().position(currentPosition);
-                byte[] signatureData = StreamUtils.readFully(
-                        sourceStream,
-                        4,
-                        false
-                );
-
-                if (ByteBuffer.wrap(signatureData).order(ByteOrder.LITTLE_ENDIAN).getInt() == data) {
-                    // reposition the stream to original position
-                    sourceStream.getChannel().position(initialPosition);
-                    // return the position of the starting byte of the data
-                    return currentPosition;
-                } else {
-                    --currentPosition;
-                }
+                readStreamData(entryIndex, entryPos, dst);
             }
+        } finally {
+            dst.limit(limit);
         }
+        return length;
+    }
 
-        // reposition the stream to original position
-        sourceStream.getChannel().position(initialPosition);
-        // not found
+    /**
+     * Fill the given buffer with data of an entry without compression, straight from the zip.
+     */
+    private void readStoredData(int entryIndex, long entryPos, ByteBuffer dst) throws Exception {
+        long position = getDataOffset(entryIndex) + entryPos;
+        if (mappedArchive != null) {
+            dst.put(mappedArchive.slice(position, dst.remaining()));
+        } else {
+            while (dst.hasRemaining()) {
+                int readNum = source.read(position, dst);
+                if (readNum < 0) {
+                    throw new IOException("Unexpected end of entry data");
+                }
+                position += readNum;
+            }
+        }
+    }
+
+    /**
+     * Fill the given buffer with data of a deflated entry, inflated straight into the buffer. The data in front
+     * of the given position is inflated into the same buffer, and thrown away.
+     */
+    private void inflateData(int entryIndex, long entryPos, ByteBuffer dst) throws Exception {
+        long dataOffset = getDataOffset(entryIndex);
+        long compressedSize = centralDirIndex.getCompressedSize(entryIndex);
+        boolean mapped = mappedArchive != null && compressedSize <= Integer.MAX_VALUE;
+
+        Inflater inflater = inflaterPool.acquire();
+        ByteBuffer input = mapped ?
+                mappedArchive.slice(dataOffset, compressedSize) :
+                inflateInputBufferPool.acquire();
+        int limit = dst.limit();
+        try {
+            if (mapped) {
+                BufferInflaters.setInput(inflater, input);
+            }
+
+            long compressedPos = 0;
+            long outputPos = 0;
+            while (dst.hasRemaining()) {
+                if (inflater.needsInput()) {
+                    if (mapped || compressedPos >= compressedSize) {
+                        throw new IOException("Unexpected end of entry data");
+                    }
+                    input.clear();
+                    input.limit((int) Math.min(input.capacity(), compressedSize - compressedPos));
+                    int readNum = source.read(dataOffset + compressedPos, input);
+                    if (readNum < 0) {
+                        throw new IOException("Unexpected end of entry data");
+                    }
+                    input.flip();
+                    compressedPos += readNum;
+                    BufferInflaters.setInput(inflater, input);
+                }
+
+                int inflated;
+                if (outputPos < entryPos) {
+                    // inflate the data in front of the position into the buffer, and move back over it
+                    int position = dst.position();
+                    dst.limit(position + (int) Math.min(dst.remaining(), entryPos - outputPos));
+                    inflated = BufferInflaters.inflate(inflater, dst);
+                    dst.position(position).limit(limit);
+                } else {
+                    inflated = BufferInflaters.inflate(inflater, dst);
+                }
+                outputPos += inflated;
+
+                if (inflated == 0 && (inflater.finished() || inflater.needsDictionary())) {
+                    throw new IOException("Unexpected end of entry data");
+                }
+            }
+        } catch (DataFormatException e) {
+            throw new IOException(
+                    String.format(
+                            "Invalid deflated data of entry %s",
+                            centralDirIndex.getFileName(entryIndex)
+                    ),
+                    e
+            );
+        } finally {
+            dst.limit(limit);
+            inflaterPool.release(inflater);
+            if (!mapped) {
+                inflateInputBufferPool.release(input);
+            }
+        }
+    }
+
+    /**
+     * Fill the given buffer with data of an entry read through an entry stream.
+     */
+    private void readStreamData(int entryIndex, long entryPos, ByteBuffer dst) throws Exception {
+        try (InputStream entryStream = openEntryStream(entryIndex, false)) {
+            long skipped = 0;
+            while (skipped < entryPos) {
+                long skipNum = entryStream.skip(entryPos - skipped);
+                if (skipNum <= 0) {
+                    if (entryStream.read() < 0) {
+                        throw new IOException("Unexpected end of entry data");
+                    }
+                    skipNum = 1;
+                }
+                skipped += skipNum;
+            }
+
+            byte[] buffer = dst.hasArray() ? dst.array() : new byte[Math.min(dst.remaining(), EXTRACT_BUFFER_SIZE)];
+            while (dst.hasRemaining()) {
+                int readNum;
+                if (dst.hasArray()) {
+                    readNum = entryStream.read(buffer, dst.arrayOffset() + dst.position(), dst.remaining());
+                    if (readNum > 0) {
+                        dst.position(dst.position() + readNum);
+                    }
+                } else {
+                    readNum = entryStream.read(buffer, 0, Math.min(buffer.length, dst.remaining()));
+                    if (readNum > 0) {
+                        dst.put(buffer, 0, readNum);
+                    }
+                }
+                if (readNum < 0) {
+                    throw new IOException("Unexpected end of entry data");
+                }
+            }
+        }
+    }
+
+    /**
+     * Open a stream that supplies the uncompressed data of an entry, optionally checking its CRC-32 and size.
+     */
+    private InputStream openEntryStream(int entryIndex, boolean verifyCrc) throws Exception {
+        Object openEvent = ZipEvents.beginEntryStreamOpen();
+        Object streamEvent = ZipEvents.beginEntryStream();
+
+        // the returned stream reads from the start of the entry data with positional reads (or from
+        // the mapped memory), so it does not depend on (or change) the position of the source stream.
+        InputStream entryDataStream = openEntryDataStream(
+                getDataOffset(entryIndex),
+                centralDirIndex.getCompressedSize(entryIndex)
+        );
+        return decodeEntryStream(
+                entryIndex,
+                entryDataStream,
+                mappedArchive != null,
+                verifyCrc,
+                openEvent,
+                streamEvent
+        );
+    }
+
+    /**
+     * Wrap a stream that supplies the (compressed) data of an entry into a stream that supplies its
+     * uncompressed data, optionally checking its CRC-32 and size.
+     *
+     * @param inMemory True if the data stream reads from memory, so it needs no buffering.
+     */
+    private InputStream decodeEntryStream(int entryIndex,
+                                          InputStream entryDataStream,
+                                          boolean inMemory,
+                                          boolean verifyCrc,
+                                          Object openEvent,
+                                          Object streamEvent) throws Exception {
+        InputStream entryStream;
+        PooledInflaterInputStream inflaterStream = null;
+        int compression = Short.toUnsignedInt(centralDirIndex.getCompression(entryIndex));
+        if (compression == 0) {
+            // not deflated, just return the bounded entry data stream
+            entryStream = inMemory ?
+                    entryDataStream :
+                    new BufferedInputStream(entryDataStream);
+        } else if (compression != 8) {
+            // any other method is decoded by its codec, if there is one
+            CompressionCodec codec = CompressionCodecs.getCodec(compression);
+            if (codec == null) {
+                entryDataStream.close();
+                throw new Exception(
+                        String.format(
+                                "Unsupported compression method %d of entry %s",
+                                compression,
+                                centralDirIndex.getFileName(entryIndex)
+                        )
+                );
+            }
+            entryStream = new BufferedInputStream(
+                    codec.decompress(
+                            inMemory ?
+                                    entryDataStream :
+                                    new BufferedInputStream(entryDataStream),
+                            centralDirIndex.getUncompressedSize(entryIndex)
+                    )
+            );
+        } else {
+            // return the bounded entry data stream wrapped by an InflaterInputStream
+            // to decompress the data while the caller is reading data.
+            // the inflater goes back to the pool when the stream is closed or fully read.
+            inflaterStream = new PooledInflaterInputStream(
+                    entryDataStream,
+                    inflaterPool,
+                    INFLATER_INPUT_BUFFER_SIZE
+            );
+            entryStream = new BufferedInputStream(inflaterStream);
+        }
+        if (verifyCrc) {
+            entryStream = new CrcCheckingInputStream(
+                    entryStream,
+                    centralDirIndex.getFileName(entryIndex),
+                    centralDirIndex.getCrc32(entryIndex),
+                    centralDirIndex.getUncompressedSize(entryIndex)
+            );
+        }
+
+        if (openEvent != null) {
+            ZipEvents.commitEntryStreamOpen(
+                    openEvent,
+                    centralDirIndex.getFileName(entryIndex),
+                    centralDirIndex.getCompression(entryIndex),
+                    centralDirIndex.getCompressedSize(entryIndex)
+            );
+        }
+        if (streamEvent != null) {
+            entryStream = new EntryEventInputStream(
+                    entryStream,
+                    streamEvent,
+                    centralDirIndex.getFileName(entryIndex),
+                    inflaterStream
+            );
+        }
+        return entryStream;
+    }
+
+    /**
+     * Get the metadata of an entry as stored in the central directory, for writing the entry into another zip
+     * along with its raw data (see {@link #getRawInputStream(ZipEntry)}).
+     *
+     * @throws Exception If the entry is not found.
+     */
+    @NonNull
+    public RawEntry getRawEntry(@NonNull ZipEntry entry) throws Exception {
+        int entryIndex = findEntryIndex(entry);
+        if (entryIndex < 0) {
+            throw new Exception("The requested zip entry was not found.");
+        }
+        return new RawEntry(
+                centralDirIndex.getHeader(entryIndex),
+                centralDirIndex.getFileNameBytes(entryIndex),
+                centralDirIndex.getFileCommentBytes(entryIndex),
+                centralDirIndex.getCompressedSize(entryIndex),
+                centralDirIndex.getUncompressedSize(entryIndex)
+        );
+    }
+
+    /**
+     * Open a bounded input stream over the data of an entry as stored in the zip, i.e. without inflating it.
+     * <br>
+     * Along with the metadata returned by {@link #getRawEntry(ZipEntry)}, this is all that is needed to copy an
+     * entry into another zip byte for byte. The stream supplies exactly {@link RawEntry#getCompressedSize()} bytes.
+     *
+     * @throws Exception If the entry is not found, or the zip has been closed.
+     */
+    @NonNull
+    public InputStream getRawInputStream(@NonNull ZipEntry entry) throws Exception {
+        int entryIndex = findRawEntryIndex(entry);
+        InputStream entryDataStream = openEntryDataStream(
+                getDataOffset(entryIndex),
+                centralDirIndex.getCompressedSize(entryIndex)
+        );
+        return mappedArchive != null ?
+                entryDataStream :
+                new BufferedInputStream(entryDataStream);
+    }
+
+    /**
+     * Open a read-only, seekable channel over the data of an entry as stored in the zip, i.e. without inflating it.
+     * <br>
+     * The channel behaves like the channel of an entry without compression (see {@link #openChannel(ZipEntry)}),
+     * and its size is {@link RawEntry#getCompressedSize()}.
+     *
+     * @throws Exception If the entry is not found, or the zip has been closed.
+     */
+    @NonNull
+    public SeekableByteChannel openRawChannel(@NonNull ZipEntry entry) throws Exception {
+        int entryIndex = findRawEntryIndex(entry);
+        return new StoredEntryChannel(
+                source,
+                getDataOffset(entryIndex),
+                centralDirIndex.getCompressedSize(entryIndex)
+        );
+    }
+
+    private int findRawEntryIndex(ZipEntry entry) throws Exception {
+        if (closed) {
+            throw new Exception("Trying to get the raw data of an entry of a closed zip.");
+        }
+
+        int entryIndex = findEntryIndex(entry);
+        if (entryIndex < 0) {
+            throw new Exception("The requested zip entry was not found.");
+        }
+        return entryIndex;
+    }
+
+    /**
+     * Get the data of an entry without compression as a read-only buffer, without copying any data.
+     * <br>
+     * <br>
+     * The buffer is a view of the memory mapped zip file, and it remains valid even after the zip is closed.
+     * Buffers of different entries (or of the same entry) are independent of each other, and can be used
+     * from different threads at the same time.
+     *
+     * @throws Exception If the zip was not opened in memory mapped mode (see {@link StreamZipOptions#setMemoryMapped(boolean)}),
+     *                   or if the entry is a directory entry, or is compressed, or the zip has been closed.
+     */
+    @NonNull
+    public ByteBuffer getEntryBuffer(@NonNull ZipEntry entry) throws Exception {
+        if (mappedArchive == null) {
+            throw new Exception("Entry buffers are only available in memory mapped mode.");
+        }
+
+        if (closed) {
+            throw new Exception("Trying to get a buffer from a closed zip.");
+        }
+
+        if (entry.isDirectory()) {
+            throw new Exception("Can not return buffer for directory entry.");
+        }
+
+        int entryIndex = findEntryIndex(entry);
+        if (entryIndex >= 0) {
+            if (centralDirIndex.getCompression(entryIndex) != 0) {
+                throw new Exception("Only entries without compression can be returned as buffers.");
+            }
+
+            return mappedArchive.slice(
+                    getDataOffset(entryIndex),
+                    centralDirIndex.getCompressedSize(entryIndex)
+            );
+        } else {
+            throw new Exception("The requested zip entry was not found.");
+        }
+    }
+
+    /**
+     * Open a read-only channel over the uncompressed data of an entry, for random access within the entry.
+     * <br>
+     * <br>
+     * The position of the channel is relative to the start of the entry data, and its size is the size of the entry.
+     * For an entry without compression, each read of the channel is a single positional read of the zip, bounded to
+     * the data of the entry, so reading a range of the entry (e.g. to serve an HTTP range request) is a
+     * {@code position(...)} call followed by a read.
+     * <br>
+     * <br>
+     * For a deflated entry, reading at a position requires inflating the data in front of it. To avoid inflating
+     * from the start of the entry on every seek, inflating resumes from the closest seek point of the seek index of
+     * the entry (see {@link #getSeekIndex(ZipEntry)}), which is filled as the entry is read through its channels. So
+     * the first read at a position pays for inflating up to it, and later reads anywhere in front of it only pay for
+     * inflating up to {@link StreamZipOptions#getSeekPointSpacing()} bytes.
+     * <br>
+     * <br>
+     * Channels of different entries (or of the same entry) can be read from different threads at the same time.
+     * Closing the returned channel does not close the zip.
+     *
+     * @throws Exception If the entry is a directory entry, or is compressed with a method other than deflate,
+     *                   or the zip has been closed.
+     */
+    @NonNull
+    public SeekableByteChannel openChannel(@NonNull ZipEntry entry) throws Exception {
+        if (closed) {
+            throw new Exception("Trying to get a channel from a closed zip.");
+        }
+
+        if (entry.isDirectory()) {
+            throw new Exception("Can not return channel for directory entry.");
+        }
+
+        int entryIndex = findEntryIndex(entry);
+        if (entryIndex >= 0) {
+            int compression = centralDirIndex.getCompression(entryIndex);
+            if (compression == 0) {
+                return new StoredEntryChannel(
+                        source,
+                        getDataOffset(entryIndex),
+                        centralDirIndex.getCompressedSize(entryIndex)
+                );
+            } else if (compression == 8) {
+                return new DeflatedEntryChannel(
+                        source,
+                        getDataOffset(entryIndex),
+                        centralDirIndex.getCompressedSize(entryIndex),
+                        centralDirIndex.getUncompressedSize(entryIndex),
+                        seekIndexOf(entryIndex)
+                );
+            } else {
+                throw new Exception("Only entries without compression or deflated entries can be opened as channels.");
+            }
+        } else {
+            throw new Exception("The requested zip entry was not found.");
+        }
+    }
+
+    /**
+     * Get the seek index of a deflated entry, holding the seek points recorded so far by the channels of the entry.
+     * <br>
+     * The index can be stored (see {@link DeflateSeekIndex#writeTo(java.io.OutputStream)}), and given back with
+     * {@link #setSeekIndex(ZipEntry, DeflateSeekIndex)} after the zip is opened again, so that seeking within the
+     * entry is cheap from the start.
+     *
+     * @throws Exception If the entry is not a deflated entry, or is not found.
+     */
+    @NonNull
+    public DeflateSeekIndex getSeekIndex(@NonNull ZipEntry entry) throws Exception {
+        return seekIndexOf(findDeflatedEntryIndex(entry));
+    }
+
+    /**
+     * Use the given seek index for a deflated entry, e.g. an index stored when the zip was opened before.
+     *
+     * @throws Exception If the entry is not a deflated entry, or is not found, or the index was not made
+     *                   for this entry (judging by the sizes and the CRC-32 of the entry).
+     */
+    public void setSeekIndex(@NonNull ZipEntry entry, @NonNull DeflateSeekIndex seekIndex) throws Exception {
+        int entryIndex = findDeflatedEntryIndex(entry);
+        if (seekIndex.getCompressedSize() != centralDirIndex.getCompressedSize(entryIndex) ||
+                seekIndex.getUncompressedSize() != centralDirIndex.getUncompressedSize(entryIndex) ||
+                seekIndex.getCrc32() != centralDirIndex.getCrc32(entryIndex)) {
+            throw new Exception("The seek index does not belong to the entry.");
+        }
+        seekIndices.put(entryIndex, seekIndex);
+    }
+
+    /**
+     * Inflate a deflated entry to the end, so that its seek index holds the seek points of the whole entry.
+     *
+     * @return The seek index of the entry.
+     * @throws Exception If the entry is not a deflated entry, or is not found, or can not be read.
+     */
+    @NonNull
+    public DeflateSeekIndex buildSeekIndex(@NonNull ZipEntry entry) throws Exception {
+        DeflateSeekIndex seekIndex = getSeekIndex(entry);
+        try (SeekableByteChannel channel = openChannel(entry)) {
+            // resume from the last known seek point, everything in front of it is already indexed
+            channel.position(seekIndex.getIndexedLength());
+            ByteBuffer buffer = ByteBuffer.allocate(EXTRACT_BUFFER_SIZE);
+            while (channel.read(buffer) >= 0) {
+                buffer.clear();
+            }
+        }
+        return seekIndex;
+    }
+
+    private int findDeflatedEntryIndex(ZipEntry entry) throws Exception {
+        if (closed) {
+            throw new Exception("Trying to get a seek index from a closed zip.");
+        }
+
+        int entryIndex = findEntryIndex(entry);
+        if (entryIndex < 0) {
+            throw new Exception("The requested zip entry was not found.");
+        }
+        if (centralDirIndex.getCompression(entryIndex) != 8) {
+            throw new Exception("Seek indices are only available for deflated entries.");
+        }
+        return entryIndex;
+    }
+
+    private DeflateSeekIndex seekIndexOf(int entryIndex) {
+        return seekIndices.computeIfAbsent(
+                entryIndex,
+                index -> new DeflateSeekIndex(
+                        options.getSeekPointSpacing(),
+                        centralDirIndex.getCompressedSize(index),
+                        centralDirIndex.getUncompressedSize(index),
+                        centralDirIndex.getCrc32(index)
+                )
+        );
+    }
+
+    /**
+     * Open a stream that supplies the specified region of the zip file.
+     * <br>
+     * In memory mapped mode, the stream reads from the mapped memory, otherwise it
+     * reads from the source with positional reads.
+     */
+    private InputStream openEntryDataStream(long start, long length) throws IOException {
+        if (mappedArchive != null && length <= Integer.MAX_VALUE) {
+            return new ByteBufferInputStream(mappedArchive.slice(start, length));
+        } else {
+            return new SourceInputStream(
+                    source,
+                    start,
+                    length
+            );
+        }
+    }
+
+    /**
+     * Extract all the entries of the zip under the given target directory, using the given executor.
+     * <br>
+     * <br>
+     * First, the directory skeleton (i.e. all directory entries, and all parent directories of file entries) is
+     * created. Then the file entries are handed out to {@link ExtractOptions#getParallelism()} workers, largest
+     * compressed size first, and each worker takes the next entry as soon as it finishes its current one.
+     * Each file is sized to its uncompressed size before writing. Entries without compression are copied
+     * with {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)} if the source is
+     * backed by a file channel, and compressed entries are inflated by the workers in parallel.
+     * <br>
+     * <br>
+     * The method returns when all the entries are extracted, or throws when the first error occurs, in which case
+     * the entries that are not yet started are skipped.
+     *
+     * @param target   The directory to extract the entries into. It is created if it does not exist.
+     * @param executor The executor to run the workers on, e.g. a {@link java.util.concurrent.ForkJoinPool}.
+     * @param options  Extraction options.
+     * @throws Exception If the zip has been closed, or an entry would be extracted outside the target directory,
+     *                   or an entry could not be extracted.
+     */
+    public void extractAll(@NonNull Path target,
+                           @NonNull ExecutorService executor,
+                           @NonNull ExtractOptions options) throws Exception {
+        if (closed) {
+            throw new Exception("Trying to extract from a closed zip.");
+        }
+
+        Path targetDir = target.toAbsolutePath().normalize();
+
+        // resolve the destination of every entry, and collect the directory skeleton
+        List<Integer> fileIndices = new ArrayList<>(centralDirIndex.size());
+        Path[] destinations = new Path[centralDirIndex.size()];
+        SortedSet<Path> directories = new TreeSet<>();
+        directories.add(targetDir);
+        for (int i = 0; i < centralDirIndex.size(); ++i) {
+            String fileName = centralDirIndex.getFileName(i);
+            Path destination = targetDir.resolve(fileName).normalize();
+            if (!destination.startsWith(targetDir)) {
+                throw new Exception(
+                        String.format(
+                                "Entry is outside of the target directory: %s",
+                                fileName
+                        )
+                );
+            }
+
+            if (centralDirIndex.isDirectory(i)) {
+                directories.add(destination);
+            } else {
+                directories.add(destination.getParent());
+                fileIndices.add(i);
+                destinations[i] = destination;
+            }
+        }
+
+        // create the directory skeleton once, before any file is written
+        for (Path directory : directories) {
+            Files.createDirectories(directory);
+        }
+
+        // largest entries first, so that no worker is left with a large entry at the end
+        fileIndices.sort(
+                new Comparator<Integer>() {
+                    @Override
+                    public int compare(Integer i1, Integer i2) {
+                        return Long.compare(
+                                centralDirIndex.getCompressedSize(i2),
+                                centralDirIndex.getCompressedSize(i1)
+                        );
+                    }
+                }
+        );
+
+        AtomicInteger nextIndex = new AtomicInteger(0);
+        AtomicBoolean failed = new AtomicBoolean(false);
+        int workerCount = Math.max(1, Math.min(options.getParallelism(), fileIndices.size()));
+        List<Future<Void>> workers = new ArrayList<>(workerCount);
+        for (int i = 0; i < workerCount; ++i) {
+            workers.add(
+                    executor.submit(
+                            new Callable<Void>() {
+                                @Override
+                                public Void call() throws Exception {
+                                    int index;
+                                    while (!failed.get() && (index = nextIndex.getAndIncrement()) < fileIndices.size()) {
+                                        int entryIndex = fileIndices.get(index);
+                                        try {
+                                            extractEntry(
+                                                    entryIndex,
+                                                    destinations[entryIndex],
+                                                    options
+                                            );
+                                        } catch (Exception e) {
+                                            failed.set(true);
+                                            throw new Exception(
+                                                    String.format(
+                                                            "Could not extract entry: %s",
+                                                            centralDirIndex.getFileName(entryIndex)
+                                                    ),
+                                                    e
+                                            );
+                                        }
+                                    }
+                                    return null;
+                                }
+                            }
+                    )
+            );
+        }
+
+        // wait for all the workers, and report the first error (if any)
+        Exception error = null;
+        for (Future<Void> worker : workers) {
+            try {
+                worker.get();
+            } catch (ExecutionException e) {
+                Exception cause = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+                if (error == null) {
+                    error = cause;
+                } else {
+                    error.addSuppressed(cause);
+                }
+            }
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    /**
+     * Check the CRC-32 and the size of the uncompressed data of every file entry against the central directory.
+     * <br>
+     * <br>
+     * The entries are handed out to the given number of worker threads in the order of their data in the zip, so the
+     * zip is read roughly from start to end, while the entries are inflated and checked in parallel. A failed entry
+     * does not stop the check - the report lists every entry that failed, along with the reason, and the throughput
+     * of the whole check.
+     *
+     * @param parallelism Number of entries checked at the same time.
+     * @throws Exception If the zip has been closed.
+     */
+    @NonNull
+    public VerifyReport verify(int parallelism) throws Exception {
+        if (closed) {
+            throw new Exception("Trying to verify a closed zip.");
+        }
+
+        long startTime = System.nanoTime();
+
+        // file entries in the order of their data in the zip
+        List<Integer> fileIndices = new ArrayList<>(centralDirIndex.size());
+        for (int i = 0; i < centralDirIndex.size(); ++i) {
+            if (!centralDirIndex.isDirectory(i)) {
+                fileIndices.add(i);
+            }
+        }
+        fileIndices.sort(
+                new Comparator<Integer>() {
+                    @Override
+                    public int compare(Integer i1, Integer i2) {
+                        return Long.compare(
+                                centralDirIndex.getLocalFileHeaderOffset(i1),
+                                centralDirIndex.getLocalFileHeaderOffset(i2)
+                        );
+                    }
+                }
+        );
+
+        String[] failures = new String[fileIndices.size()];
+        AtomicInteger nextIndex = new AtomicInteger(0);
+        int workerCount = Math.max(1, Math.min(parallelism, fileIndices.size()));
+        ExecutorService executor = Executors.newFixedThreadPool(workerCount);
+        try {
+            List<Future<Void>> workers = new ArrayList<>(workerCount);
+            for (int i = 0; i < workerCount; ++i) {
+                workers.add(
+                        executor.submit(
+                                new Callable<Void>() {
+                                    @Override
+                                    public Void call() {
+                                        byte[] buffer = new byte[EXTRACT_BUFFER_SIZE];
+                                        int index;
+                                        while ((index = nextIndex.getAndIncrement()) < fileIndices.size()) {
+                                            try (InputStream in = openEntryStream(fileIndices.get(index), true)) {
+                                                while (in.read(buffer) >= 0) {
+                                                    // the stream checks the data as it is read
+                                                }
+                                            } catch (Exception e) {
+                                                failures[index] = String.valueOf(e.getMessage());
+                                            }
+                                        }
+                                        return null;
+                                    }
+                                }
+                        )
+                );
+            }
+            for (Future<Void> worker : workers) {
+                worker.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        Map<String, String> failedEntries = new LinkedHashMap<>();
+        long compressedBytes = 0;
+        long uncompressedBytes = 0;
+        for (int i = 0; i < fileIndices.size(); ++i) {
+            int entryIndex = fileIndices.get(i);
+            compressedBytes += centralDirIndex.getCompressedSize(entryIndex);
+            uncompressedBytes += centralDirIndex.getUncompressedSize(entryIndex);
+            if (failures[i] != null) {
+                failedEntries.put(centralDirIndex.getFileName(entryIndex), failures[i]);
+            }
+        }
+
+        return new VerifyReport(
+                fileIndices.size(),
+                Collections.unmodifiableMap(failedEntries),
+                compressedBytes,
+                uncompressedBytes,
+                System.nanoTime() - startTime
+        );
+    }
+
+    /**
+     * Read the entries with the given names, and hand each of them to the handler as soon as its data is read.
+     * <br>
+     * <br>
+     * Instead of reading each entry on its own, the entries are read in the order of their data in the zip, and the
+     * data of neighbouring entries - up to {@link StreamZipOptions#getBatchReadGapSize()} bytes apart - is fetched
+     * with a single read of at most {@link StreamZipOptions#getBatchReadMaxSize()} bytes, from which the entries are
+     * then inflated. So reading many small entries costs a few large sequential reads, instead of a seek and a few
+     * small reads per entry. Larger entries, and all the entries of a zip opened in memory mapped mode, are read
+     * through an entry stream, as with {@link #getInputStream(ZipEntry)}.
+     * <br>
+     * <br>
+     * The handler is called in the order of the data of the entries, on the calling thread, and only once for a
+     * name given more than once. If the handler throws, the rest of the entries are not read.
+     *
+     * @param names   Names of the entries to read.
+     * @param handler Receives the entries.
+     * @throws Exception If the zip has been closed, or an entry is not found or is a directory entry (in which case
+     *                   nothing is read), or an entry can not be read, or the handler throws.
+     */
+    public void readAll(@NonNull Collection<String> names, @NonNull EntryHandler handler) throws Exception {
+        if (closed) {
+            throw new Exception("Trying to read from a closed zip.");
+        }
+
+        // resolve all the names up front, so that a wrong name fails before anything is read
+        Set<Integer> targetSet = new LinkedHashSet<>();
+        for (String name : names) {
+            int entryIndex = centralDirIndex.find(name);
+            if (entryIndex < 0) {
+                throw new Exception(
+                        String.format(
+                                "The requested zip entry was not found: %s",
+                                name
+                        )
+                );
+            }
+            if (centralDirIndex.isDirectory(entryIndex)) {
+                throw new Exception(
+                        String.format(
+                                "Can not return stream for directory entry: %s",
+                                name
+                        )
+                );
+            }
+            targetSet.add(entryIndex);
+        }
+
+        List<Integer> targets = new ArrayList<>(targetSet);
+        targets.sort(
+                new Comparator<Integer>() {
+                    @Override
+                    public int compare(Integer i1, Integer i2) {
+                        return Long.compare(
+                                centralDirIndex.getLocalFileHeaderOffset(i1),
+                                centralDirIndex.getLocalFileHeaderOffset(i2)
+                        );
+                    }
+                }
+        );
+
+        int gapSize = Math.max(0, options.getBatchReadGapSize());
+        int maxReadSize = Math.max(0, options.getBatchReadMaxSize());
+        int start = 0;
+        while (start < targets.size()) {
+            int startIndex = targets.get(start);
+            long readStart = centralDirIndex.getLocalFileHeaderOffset(startIndex);
+            long readEnd = getExpectedEntryEnd(startIndex);
+            if (mappedArchive != null || readEnd - readStart > maxReadSize) {
+                handleEntry(startIndex, handler);
+                ++start;
+                continue;
+            }
+
+            // take the following entries as long as they are close enough, and the read does not get too large
+            int end = start + 1;
+            while (end < targets.size()) {
+                int entryIndex = targets.get(end);
+                long entryEnd = getExpectedEntryEnd(entryIndex);
+                if (centralDirIndex.getLocalFileHeaderOffset(entryIndex) - readEnd > gapSize ||
+                        Math.max(readEnd, entryEnd) - readStart > maxReadSize) {
+                    break;
+                }
+                readEnd = Math.max(readEnd, entryEnd);
+                ++end;
+            }
+
+            ByteBuffer data = StreamUtils.readFully(
+                    source,
+                    readStart,
+                    (int) Math.max(0, Math.min(readEnd, source.size()) - readStart)
+            );
+            for (int i = start; i < end; ++i) {
+                handleEntry(targets.get(i), data, readStart, handler);
+            }
+            start = end;
+        }
+    }
+
+    /**
+     * Get the expected end offset of the data of an entry within the zip file. If the local file header of the
+     * entry is not read yet, it is assumed to hold the same name and extra field as the central directory.
+     */
+    private long getExpectedEntryEnd(int entryIndex) {
+        long dataOffset = centralDirIndex.getDataOffset(entryIndex);
+        if (dataOffset < 0) {
+            dataOffset = centralDirIndex.getLocalFileHeaderOffset(entryIndex) +
+                    LOCAL_FILE_HEADER_FIXED_LENGTH +
+                    centralDirIndex.getFileNameLength(entryIndex) +
+                    centralDirIndex.getExtraFieldLength(entryIndex);
+        }
+        return dataOffset + centralDirIndex.getCompressedSize(entryIndex);
+    }
+
+    /**
+     * Hand an entry to the handler of {@link #readAll(Collection, EntryHandler)}, reading it from the given data,
+     * which holds the region of the zip file starting at the given offset. If the data does not hold the whole entry,
+     * e.g. its local file header has a longer extra field than expected, the entry is read on its own.
+     */
+    private void handleEntry(int entryIndex,
+                             ByteBuffer data,
+                             long dataStart,
+                             EntryHandler handler) throws Exception {
+        int headerPosition = (int) (centralDirIndex.getLocalFileHeaderOffset(entryIndex) - dataStart);
+        long dataOffset = centralDirIndex.getDataOffset(entryIndex);
+        if (dataOffset < 0) {
+            int headerLimit = headerPosition + LOCAL_FILE_HEADER_FIXED_LENGTH;
+            if (headerLimit > data.limit() ||
+                    (headerLimit += LocalFileHeader.getVariableLengthDataLength(data, headerPosition)) > data.limit()) {
+                handleEntry(entryIndex, handler);
+                return;
+            }
+
+            ByteBuffer headerBuffer = data.duplicate();
+            headerBuffer.position(headerPosition).limit(headerLimit);
+            LocalFileHeader localFileHeader = new LocalFileHeader(
+                    headerBuffer.slice().order(ByteOrder.LITTLE_ENDIAN),
+                    centralDirIndex.getLocalFileHeaderOffset(entryIndex)
+            );
+            dataOffset = localFileHeader.getOffset() + localFileHeader.getSize();
+            centralDirIndex.setDataOffset(entryIndex, dataOffset);
+        }
+
+        long compressedSize = centralDirIndex.getCompressedSize(entryIndex);
+        if (dataOffset + compressedSize > dataStart + data.limit()) {
+            handleEntry(entryIndex, handler);
+            return;
+        }
+
+        Object openEvent = ZipEvents.beginEntryStreamOpen();
+        Object streamEvent = ZipEvents.beginEntryStream();
+        try (InputStream entryStream = decodeEntryStream(
+                entryIndex,
+                new ByteArrayInputStream(
+                        data.array(),
+                        data.arrayOffset() + (int) (dataOffset - dataStart),
+                        (int) compressedSize
+                ),
+                true,
+                options.isVerifyCrc(),
+                openEvent,
+                streamEvent)) {
+            handler.onEntry(centralDirIndex.createEntry(entryIndex), entryStream);
+        }
+    }
+
+    /**
+     * Hand an entry to the handler of {@link #readAll(Collection, EntryHandler)}, reading it through an entry stream.
+     */
+    private void handleEntry(int entryIndex, EntryHandler handler) throws Exception {
+        try (InputStream entryStream = openEntryStream(entryIndex, options.isVerifyCrc())) {
+            handler.onEntry(centralDirIndex.createEntry(entryIndex), entryStream);
+        }
+    }
+
+    /**
+     * Write the data of a single file entry to the given destination.
+     */
+    private void extractEntry(int entryIndex,
+                              Path destination,
+                              ExtractOptions options) throws Exception {
+        if (!options.isOverwrite() && Files.exists(destination)) {
+            return;
+        }
+
+        try (FileChannel outChannel = FileChannel.open(
+                destination,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            long uncompressedSize = centralDirIndex.getUncompressedSize(entryIndex);
+            if (uncompressedSize > 0) {
+                // size the file up front, so that it does not have to grow while it is written
+                outChannel.write(ByteBuffer.allocate(1), uncompressedSize - 1);
+            }
+
+            FileChannel sourceChannel = getDirectTransferChannel(entryIndex);
+            if (sourceChannel != null) {
+                transferStoredData(entryIndex, sourceChannel, outChannel);
+            } else {
+                try (InputStream in = getInputStream(entryIndex, false)) {
+                    byte[] buffer = new byte[EXTRACT_BUFFER_SIZE];
+                    ByteBuffer outBuffer = ByteBuffer.wrap(buffer);
+                    long position = 0;
+                    int readNum;
+                    while ((readNum = in.read(buffer)) >= 0) {
+                        outBuffer.clear().limit(readNum);
+                        while (outBuffer.hasRemaining()) {
+                            position += outChannel.write(outBuffer, position);
+                        }
+                    }
+                }
+            }
+        }
+
+        if (options.isPreserveLastModified()) {
+            Files.setLastModifiedTime(
+                    destination,
+                    FileTime.fromMillis(
+                            DateTimeUtils.convertMsDosDateTime(
+                                    centralDirIndex.getModTime(entryIndex),
+                                    centralDirIndex.getModDate(entryIndex)
+                            )
+                    )
+            );
+        }
+    }
+
+    /**
+     * Write the uncompressed data of an entry to the given channel, e.g. a socket or a file.
+     * <br>
+     * <br>
+     * The data of an entry without compression is transferred with
+     * {@link FileChannel#transferTo(long, long, WritableByteChannel)} straight from the zip file, if the source is
+     * backed by a file channel, so the operating system can copy it to the target (e.g. with sendfile) without it ever
+     * passing through the heap. Other entries, and all entries when {@link StreamZipOptions#isVerifyCrc()} is set, are
+     * read through an entry stream and written in large chunks.
+     * <br>
+     * <br>
+     * The target must be in blocking mode, and it is not closed.
+     *
+     * @return The number of bytes written, i.e. the uncompressed size of the entry.
+     * @throws Exception If the entry is a directory entry, or is not found, or the zip has been closed,
+     *                   or the entry can not be read or written.
+     */
+    public long transferTo(@NonNull ZipEntry entry, @NonNull WritableByteChannel target) throws Exception {
+        if (closed) {
+            throw new Exception("Trying to transfer an entry of a closed zip.");
+        }
+
+        if (entry.isDirectory()) {
+            throw new Exception("Can not transfer directory entry.");
+        }
+
+        int entryIndex = findEntryIndex(entry);
+        if (entryIndex < 0) {
+            throw new Exception("The requested zip entry was not found.");
+        }
+
+        FileChannel sourceChannel = getDirectTransferChannel(entryIndex);
+        if (sourceChannel != null) {
+            return transferStoredData(entryIndex, sourceChannel, target);
+        }
+
+        long transferred = 0;
+        try (InputStream in = getInputStream(entryIndex, false)) {
+            byte[] buffer = new byte[EXTRACT_BUFFER_SIZE];
+            ByteBuffer outBuffer = ByteBuffer.wrap(buffer);
+            int readNum;
+            while ((readNum = in.read(buffer)) >= 0) {
+                outBuffer.clear().limit(readNum);
+                while (outBuffer.hasRemaining()) {
+                    target.write(outBuffer);
+                }
+                transferred += readNum;
+            }
+        }
+        return transferred;
+    }
+
+    /**
+     * Get the file channel to transfer the data of an entry from directly, or null if the data has to be
+     * read through an entry stream - because it is compressed, or needs to be checked, or there is no file channel.
+     */
+    private FileChannel getDirectTransferChannel(int entryIndex) {
+        if (centralDirIndex.getCompression(entryIndex) != 0 || options.isVerifyCrc()) {
+            return null;
+        }
+        return source.getFileChannel();
+    }
+
+    /**
+     * Transfer the data of an entry without compression from the given channel of the zip file to the target,
+     * starting at the current position of the target.
+     */
+    private long transferStoredData(int entryIndex,
+                                    FileChannel sourceChannel,
+                                    WritableByteChannel target) throws Exception {
+        long dataOffset = getDataOffset(entryIndex);
+        long dataLength = centralDirIndex.getCompressedSize(entryIndex);
+        long transferred = 0;
+        ioCounters.recordSeek();
+        while (transferred < dataLength) {
+            long count = sourceChannel.transferTo(
+                    dataOffset + transferred,
+                    dataLength - transferred,
+                    target
+            );
+            ioCounters.recordRead(count);
+            if (count <= 0) {
+                throw new IOException("Unexpected end of entry data");
+            }
+            transferred += count;
+        }
+        return transferred;
+    }
+
+    /**
+     * Get the index of the given entry in the central directory index, or -1 if the zip has no such entry.
+     */
+    private int findEntryIndex(ZipEntry entry) {
+        int entryIndex = entry.getIndexIn(centralDirIndex);
+        return entryIndex >= 0 ? entryIndex : centralDirIndex.find(entry.getFileName());
+    }
+
+    /**
+     * Get the offset of the data of an entry within the zip file.
+     * <br>
+     * Local file headers are not parsed when the zip is opened. Instead, the local file header of an entry
+     * is read on the first request for the data of the entry, and the resulting data offset is cached
+     * for subsequent requests.
+     */
+    private long getDataOffset(int entryIndex) throws Exception {
+        long dataOffset = centralDirIndex.getDataOffset(entryIndex);
+        if (dataOffset < 0) {
+            long headerOffset = centralDirIndex.getLocalFileHeaderOffset(entryIndex);
+            long availableLength = Math.max(0, source.size() - headerOffset);
+
+            // usually, the local file header holds the same name and extra field as the central
+            // directory file header, so a read of this length fetches the whole header at once.
+            int fixedLengthDataLength = (4) + (2 * 5) + (4 * 3) + (2 * 2);
+            int headerLength = fixedLengthDataLength +
+                    centralDirIndex.getFileNameLength(entryIndex) +
+                    centralDirIndex.getExtraFieldLength(entryIndex);
+            ByteBuffer headerBuffer = StreamUtils.readFully(
+                    source,
+                    headerOffset,
+                    (int) Math.min(headerLength, availableLength)
+            );
+            if (headerBuffer.limit() >= fixedLengthDataLength) {
+                int actualHeaderLength = fixedLengthDataLength +
+                        LocalFileHeader.getVariableLengthDataLength(headerBuffer, 0);
+                if (actualHeaderLength > headerBuffer.limit()) {
+                    headerBuffer = StreamUtils.readFully(
+                            source,
+                            headerOffset,
+                            (int) Math.min(actualHeaderLength, availableLength)
+                    );
+                }
+            }
+
+            LocalFileHeader localFileHeader = new LocalFileHeader(
+                    headerBuffer,
+                    headerOffset
+            );
+            dataOffset = localFileHeader.getOffset() + localFileHeader.getSize();
+            centralDirIndex.setDataOffset(entryIndex, dataOffset);
+        }
+        return dataOffset;
+    }
+
+    /**
+     * Get the number of times an entry stream reused a pooled inflater instead of creating a new one.
+     */
+    public long getInflaterPoolHitCount() {
+        return inflaterPool.getHitCount();
+    }
+
+    /**
+     * Get the number of times an entry stream had to create a new inflater as the pool was empty.
+     */
+    public long getInflaterPoolMissCount() {
+        return inflaterPool.getMissCount();
+    }
+
+    /**
+     * Get a snapshot of the cumulative I/O and decompression counters of this zip.
+     * <br>
+     * <br>
+     * The counters are updated without locking, so the snapshot is cheap, but it is not atomic - while other
+     * threads are reading the zip, the values may be taken at slightly different points in time.
+     */
+    @NonNull
+    public StreamZipStats stats() {
+        return new StreamZipStats(
+                ioCounters.getBytesRead(),
+                ioCounters.getReadCalls(),
+                ioCounters.getSeeks(),
+                inflaterPool.getMissCount(),
+                inflaterPool.getHitCount(),
+                centralDirIndex.estimateHeapSize()
+        );
+    }
+
+    /**
+     * Get number of available entries in this zip.
+     */
+    public int size() {
+        return centralDirIndex.size();
+    }
+
+    /**
+     * Get global comment of the zip file.
+     */
+    @NonNull
+    public String getComment() {
+        return ecdRecord.getZipFileComment();
+    }
+
+    /**
+     * Close the zip file. After this you won't be able to call {@code getInputStream()}.
+     * <br>
+     * All the pooled inflaters are ended, and inflaters of streams that are still open are ended
+     * when those streams are closed or fully read.
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        inflaterPool.close();
+        if (options.getEntryCache() != null) {
+            options.getEntryCache().invalidate(entryCacheOwner);
+        }
+        try {
+            source.close();
+            if (sourceStream != null) {
+                sourceStream.close();
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    protected void finalize() throws Throwable {
+        close();
+    }
+
+    /**
+     * Search for the given signature (any 32bit value) in the given buffer, from the specified
+     * initial index up to the start of the buffer (traverses in backward direction).
+     * <br>
+     * <br>
+     * <b>Please note</b> - a candidate is only accepted if it is an ECD record signature whose
+     * comment fits within the buffer, or if it is any other signature. This prevents a signature-like
+     * sequence inside a zip comment from being mistaken for the actual record.
+     * <br>
+     * <br>
+     * The buffer must be in little endian order.
+     *
+     * @return Index of the first byte of the last occurrence of the signature, or -1 if not found.
+     */
+    private static int getLastSignatureIndex(ByteBuffer buffer, int initialIndex, int signature) {
+        for (int index = Math.min(initialIndex, buffer.limit() - 4); index >= 0; --index) {
+            if (buffer.getInt(index) == signature) {
+                if (signature != ZipConstants.SIG_END_OF_CENTRAL_DIR_RECORD ||
+                        index + 22 + Short.toUnsignedInt(buffer.getShort(index + 20)) <= buffer.limit()) {
+                    return index;
+                }
+            }
+        }
         return -1;
     }
 }
@@ -0,0 +1,130 @@
+package com.buggysofts.streamzip;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+import lombok.experimental.Accessors;
+
+import java.nio.file.Path;
+
+/**
+ * Options that control how a {@link StreamZip} accesses its source.
+ * <br>
+ * The default values of the options give the behavior of {@code new StreamZip(source)}.
+ */
+@Getter
+@Setter
+@ToString
+@Accessors(chain = true)
+public class StreamZipOptions {
+    /**
+     * Default value of {@link #inflaterPoolSize}.
+     */
+    public static final int DEFAULT_INFLATER_POOL_SIZE = 16;
+
+    /**
+     * Default value of {@link #seekPointSpacing}.
+     */
+    public static final long DEFAULT_SEEK_POINT_SPACING = 4L << 20;
+
+    /**
+     * Default value of {@link #batchReadGapSize}.
+     */
+    public static final int DEFAULT_BATCH_READ_GAP_SIZE = 64 * 1024;
+
+    /**
+     * Default value of {@link #batchReadMaxSize}.
+     */
+    public static final int DEFAULT_BATCH_READ_MAX_SIZE = 8 << 20;
+
+    /**
+     * If true, the whole zip file is memory mapped when it is opened, entry data is read from the
+     * mapped memory, and data of entries without compression is available as buffers through
+     * {@link StreamZip#getEntryBuffer(ZipEntry)}.
+     */
+    private boolean memoryMapped;
+
+    /**
+     * If true, the streams returned by {@link StreamZip#getInputStream(ZipEntry)} compute the CRC-32 of the data
+     * as it is read, and the read that reaches the end of the data throws an {@link java.io.IOException} if the
+     * CRC-32 or the size do not match the central directory.
+     */
+    private boolean verifyCrc;
+
+    /**
+     * Maximum number of bytes of the source to keep in a block cache, or 0 (the default) for no cache.
+     * <br>
+     * With a cache, the source is read in large aligned blocks, and recently read blocks are kept in memory
+     * (see {@link CachingSource}). This is meant for sources where each read is expensive regardless of its size,
+     * e.g. files on network file systems.
+     */
+    private long cacheSize;
+
+    /**
+     * Size of the blocks of the block cache, a power of two.
+     */
+    private int cacheBlockSize = CachingSource.DEFAULT_BLOCK_SIZE;
+
+    /**
+     * Number of blocks the block cache reads ahead of a block that is not cached.
+     */
+    private int cacheReadAheadBlocks = CachingSource.DEFAULT_READ_AHEAD_BLOCKS;
+
+    /**
+     * Maximum number of idle inflaters kept by the zip for reuse.
+     */
+    private int inflaterPoolSize = DEFAULT_INFLATER_POOL_SIZE;
+
+    /**
+     * Minimum number of uncompressed bytes between two seek points of the seek index of a deflated entry
+     * (see {@link DeflateSeekIndex}). Smaller values make seeking within deflated entries cheaper, at the cost
+     * of up to 32KB of memory per seek point.
+     */
+    private long seekPointSpacing = DEFAULT_SEEK_POINT_SPACING;
+
+    /**
+     * If set, the uncompressed data of small entries is kept in this cache, so that repeated reads of the same
+     * entries do not read (or inflate) them again. A cache can be shared by several zips.
+     *
+     * @see EntryCache
+     */
+    private EntryCache entryCache;
+
+    /**
+     * If set, the central directory index is loaded from this sidecar index file when the zip is opened,
+     * instead of being built from the central directory. If the file does not exist, or it was built from
+     * a different version of the zip, the index is built as usual, and the file is (re)written with it.
+     * <br>
+     * The index stored in the file holds the resolved data offsets of all the entries, so writing it once
+     * reads all the local file headers.
+     *
+     * @see StreamZip#writeIndex(java.nio.file.Path)
+     */
+    private Path indexFile;
+
+    /**
+     * Last modified time of the zip file, if known. It is used along with the size of the zip file and
+     * a fingerprint of its end of central directory records and of the last 64KB of its central directory
+     * to decide whether an index file matches the zip.
+     * Defaults to -1 (unknown), in which case only the size and the fingerprint are used. This weakens the check:
+     * a zip with a central directory larger than 64KB that is rewritten with the same size, and changes only in
+     * the start of its central directory, would still match the old index file. So set it whenever the zip file
+     * can be rewritten in place.
+     */
+    private long archiveLastModified = -1;
+
+    /**
+     * Maximum number of bytes between the data of two entries read by
+     * {@link StreamZip#readAll(java.util.Collection, StreamZip.EntryHandler)} for them to be fetched with a
+     * single read of the zip. The bytes in between are read and thrown away, which is usually much cheaper
+     * than another read, especially on slow storage.
+     */
+    private int batchReadGapSize = DEFAULT_BATCH_READ_GAP_SIZE;
+
+    /**
+     * Maximum number of bytes fetched with a single read by
+     * {@link StreamZip#readAll(java.util.Collection, StreamZip.EntryHandler)}. Entries with more compressed data
+     * than this are read through an entry stream, like {@link StreamZip#getInputStream(ZipEntry)} does.
+     */
+    private int batchReadMaxSize = DEFAULT_BATCH_READ_MAX_SIZE;
+}
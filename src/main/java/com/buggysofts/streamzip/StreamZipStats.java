@@ -0,0 +1,50 @@
+package com.buggysofts.streamzip;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * A snapshot of the cumulative counters of a {@link StreamZip}, taken by {@link StreamZip#stats()}.
+ * <br>
+ * <br>
+ * The counters only cover reads of the source of the zip through read calls (positional reads and transfers).
+ * In memory mapped mode, entry data is read from the mapped memory, which is not counted. With a block cache
+ * (see {@link StreamZipOptions#setCacheSize(long)}), only the reads that miss the cache are counted.
+ */
+@Getter
+@ToString
+@AllArgsConstructor(access = AccessLevel.PACKAGE)
+public class StreamZipStats {
+    /**
+     * Number of bytes read from the source.
+     */
+    private final long bytesRead;
+
+    /**
+     * Number of read calls made on the source.
+     */
+    private final long readCalls;
+
+    /**
+     * Number of reads that did not continue where the previous read ended, e.g. reads of headers,
+     * or the first read of an entry stream.
+     */
+    private final long seeks;
+
+    /**
+     * Number of inflaters created, i.e. the number of times the inflater pool was empty.
+     */
+    private final long inflatersCreated;
+
+    /**
+     * Number of times a pooled inflater was reused.
+     */
+    private final long inflatersReused;
+
+    /**
+     * Estimated heap size of the in-memory central directory index, in bytes.
+     */
+    private final long estimatedIndexHeapSize;
+}
@@ -0,0 +1,712 @@
+package com.buggysofts.streamzip;
+
+import lombok.NonNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * A zip writer that compresses the data of entries on several threads.
+ * <br>
+ * <br>
+ * The data of each deflated entry is split into blocks of {@link StreamZipWriterOptions#getBlockSize()} bytes, and
+ * the blocks are compressed in parallel (the way pigz does it). Each block is compressed with the last 32KB of the
+ * block before it as the dictionary, and all but the last block of an entry end with a sync flush, so the compressed
+ * blocks put together form a single deflate stream. The blocks of consecutive entries are compressed in parallel as
+ * well, so both archives of many small entries and archives of a few large entries use all the threads. The output is
+ * written in order, and it only depends on the data, the level and the block size - never on the number of threads.
+ * <br>
+ * <br>
+ * Deflated entries are written with a data descriptor after the data, as their sizes and CRC-32 are only known once
+ * all their data is written. Stored entries need their size and CRC-32 up front (see {@link ZipWriterEntry}), and
+ * entries copied from another zip with {@link #putRawEntry(RawEntry, InputStream)} are written without any inflating
+ * or compressing. The central directory is written when the writer is finished, with ZIP64 records wherever a size,
+ * an offset or the number of entries does not fit the regular records.
+ * <br>
+ * <br>
+ * The writer is an output stream of the data of the current entry. It is not thread safe - entries are written
+ * from a single thread, and only the compression runs on other threads.
+ */
+public class StreamZipWriter extends OutputStream {
+    private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+    private static final int ZIP64_MAGIC_COUNT = 0xFFFF;
+    private static final int ZIP64_EXTRA_ID = 0x0001;
+
+    private static final short VERSION_DEFAULT = 20;
+    private static final short VERSION_ZIP64 = 45;
+
+    private static final int FLAG_DATA_DESCRIPTOR = 1 << 3;
+    private static final int FLAG_LANGUAGE_ENCODING = 1 << 11;
+
+    private static final int DICTIONARY_SIZE = 32 * 1024;
+
+    private enum ChunkKind {
+        LOCAL_HEADER, DATA, DATA_DESCRIPTOR
+    }
+
+    private final OutputStream out;
+    private final int blockSize;
+    private final ExecutorService executor;
+    private final boolean ownExecutor;
+    private final DeflaterPool deflaterPool;
+
+    /**
+     * Maximum number of chunks waiting to be written, which bounds the memory held by blocks in flight.
+     */
+    private final int maxPendingChunks;
+
+    /**
+     * chunks of output in the order they are written - headers, (compressed) blocks and data descriptors
+     */
+    private final ArrayDeque<PendingChunk> pendingChunks;
+
+    /**
+     * the entries written so far, for the central directory
+     */
+    private final List<EntryRecord> records;
+
+    /**
+     * number of bytes written to the output so far
+     */
+    private long written;
+
+    private EntryRecord currentEntry;
+    private CRC32 currentCrc;
+    private long currentSize;
+    private byte[] block;
+    private int blockLength;
+    private byte[] dictionary;
+
+    private byte[] comment = new byte[0];
+    private final byte[] singleByte = new byte[1];
+    private boolean finished;
+    private boolean closed;
+
+    public StreamZipWriter(@NonNull OutputStream out) {
+        this(out, new StreamZipWriterOptions());
+    }
+
+    /**
+     * Create a writer with the specified options.
+     *
+     * @see StreamZipWriterOptions
+     */
+    public StreamZipWriter(@NonNull OutputStream out, @NonNull StreamZipWriterOptions options) {
+        if (options.getBlockSize() < StreamZipWriterOptions.MIN_BLOCK_SIZE) {
+            throw new IllegalArgumentException("Block size must be at least 32KB.");
+        }
+
+        int parallelism = Math.max(1, options.getParallelism());
+        this.out = out;
+        this.blockSize = options.getBlockSize();
+        this.ownExecutor = options.getExecutor() == null;
+        this.executor = ownExecutor ?
+                Executors.newFixedThreadPool(
+                        parallelism,
+                        runnable -> {
+                            Thread thread = new Thread(runnable, "StreamZipWriter");
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                ) :
+                options.getExecutor();
+        this.deflaterPool = new DeflaterPool(options.getLevel(), parallelism);
+        this.maxPendingChunks = parallelism * 4;
+        this.pendingChunks = new ArrayDeque<>();
+        this.records = new ArrayList<>();
+    }
+
+    /**
+     * Set the comment of the zip. It is written with the end of central directory record.
+     */
+    public void setComment(String comment) {
+        byte[] commentBytes = comment == null ? new byte[0] : comment.getBytes(StandardCharsets.UTF_8);
+        if (commentBytes.length > 0xFFFF) {
+            throw new IllegalArgumentException("Zip comment is too long.");
+        }
+        this.comment = commentBytes;
+    }
+
+    /**
+     * Start a new entry, closing the current entry, if any. The data of the entry is written with the
+     * write methods of this stream.
+     *
+     * @throws IOException If the entry is a stored entry without a size or a CRC-32, or the writer is finished,
+     *                     or the output can not be written.
+     */
+    public void putNextEntry(@NonNull ZipWriterEntry entry) throws IOException {
+        ensureOpen();
+        closeEntry();
+
+        EntryRecord record = EntryRecord.ofUtf8(entry.getName(), entry.getExtraField(), entry.getComment());
+        record.compression = entry.getCompression();
+        record.dosDateTime = DateTimeUtils.toMsDosDateTime(
+                entry.getLastModified() >= 0 ? entry.getLastModified() : System.currentTimeMillis()
+        );
+        if (record.compression == 0) {
+            if (entry.getSize() < 0 || entry.getCrc32() < 0) {
+                throw new IOException("Stored entries need a size and a CRC-32: " + entry.getName());
+            }
+            record.uncompressedSize = entry.getSize();
+            record.compressedSize = entry.getSize();
+            record.crc32 = (int) entry.getCrc32();
+        } else if (record.compression == 8) {
+            record.flags |= FLAG_DATA_DESCRIPTOR;
+        } else {
+            throw new IOException("Only stored and deflated entries can be written: " + entry.getName());
+        }
+
+        records.add(record);
+        currentEntry = record;
+        currentCrc = new CRC32();
+        currentSize = 0;
+        block = new byte[blockSize];
+        blockLength = 0;
+        dictionary = null;
+        enqueue(new PendingChunk(ChunkKind.LOCAL_HEADER, record, null));
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        singleByte[0] = (byte) b;
+        write(singleByte, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        if (currentEntry == null) {
+            throw new IOException("No current entry.");
+        }
+        if ((off | len) < 0 || len > b.length - off) {
+            throw new IndexOutOfBoundsException();
+        }
+
+        currentCrc.update(b, off, len);
+        currentSize += len;
+        while (len > 0) {
+            if (blockLength == blockSize) {
+                // there is more data, so the full block is not the last one
+                submitBlock(false);
+            }
+            int count = Math.min(len, blockSize - blockLength);
+            System.arraycopy(b, off, block, blockLength, count);
+            blockLength += count;
+            off += count;
+            len -= count;
+        }
+    }
+
+    /**
+     * Close the current entry, if any.
+     *
+     * @throws IOException If the data of a stored entry does not match its size or CRC-32,
+     *                     or the output can not be written.
+     */
+    public void closeEntry() throws IOException {
+        ensureOpen();
+        EntryRecord record = currentEntry;
+        if (record == null) {
+            return;
+        }
+
+        submitBlock(true);
+        if (record.compression == 0) {
+            if (currentSize != record.uncompressedSize || (int) currentCrc.getValue() != record.crc32) {
+                throw new IOException("The data of the stored entry does not match its size or CRC-32: " + record.name);
+            }
+        } else {
+            record.uncompressedSize = currentSize;
+            record.crc32 = (int) currentCrc.getValue();
+            enqueue(new PendingChunk(ChunkKind.DATA_DESCRIPTOR, record, null));
+        }
+
+        currentEntry = null;
+        currentCrc = null;
+        block = null;
+        dictionary = null;
+    }
+
+    /**
+     * Write an entry of another zip as it is, i.e. its raw data along with its metadata, without inflating
+     * and compressing it again (see {@link StreamZip#getRawEntry(ZipEntry)} and
+     * {@link StreamZip#getRawInputStream(ZipEntry)}). The current entry, if any, is closed first.
+     *
+     * @param entry   The metadata of the entry.
+     * @param rawData The raw data of the entry, exactly {@link RawEntry#getCompressedSize()} bytes. It is not closed.
+     * @throws IOException If the raw data is shorter than the compressed size, or the output can not be written.
+     */
+    public void putRawEntry(@NonNull RawEntry entry, @NonNull InputStream rawData) throws IOException {
+        ensureOpen();
+        closeEntry();
+
+        // the name and the comment are written as they are stored, along with the flag of their encoding
+        EntryRecord record = new EntryRecord(
+                entry.getFileName(),
+                entry.getFileNameBytes(),
+                removeZip64ExtraField(entry.getExtraField()),
+                entry.getFileCommentBytes()
+        );
+        // the sizes go into the local header, so no data descriptor is needed
+        record.flags |= entry.getFlags() & ~FLAG_DATA_DESCRIPTOR;
+        record.compression = entry.getCompression();
+        record.dosDateTime = (Short.toUnsignedInt(entry.getModDate()) << 16) | Short.toUnsignedInt(entry.getModTime());
+        record.crc32 = entry.getCrc32();
+        record.compressedSize = entry.getCompressedSize();
+        record.uncompressedSize = entry.getUncompressedSize();
+        record.creatorVersion = entry.getCreatorVersion();
+        record.extractorVersion = entry.getExtractorVersion();
+        record.internalAttributes = entry.getInternalAttributes();
+        record.externalAttributes = entry.getExternalAttributes();
+        records.add(record);
+        enqueue(new PendingChunk(ChunkKind.LOCAL_HEADER, record, null));
+
+        long remaining = entry.getCompressedSize();
+        while (remaining > 0) {
+            byte[] chunk = new byte[(int) Math.min(blockSize, remaining)];
+            int chunkLength = 0;
+            while (chunkLength < chunk.length) {
+                int readNum = rawData.read(chunk, chunkLength, chunk.length - chunkLength);
+                if (readNum < 0) {
+                    throw new IOException("Unexpected end of raw data of entry: " + entry.getFileName());
+                }
+                chunkLength += readNum;
+            }
+            enqueue(new PendingChunk(ChunkKind.DATA, record, CompletableFuture.completedFuture(chunk)));
+            remaining -= chunk.length;
+        }
+    }
+
+    /**
+     * Close the current entry, if any, and write the central directory, without closing the output.
+     */
+    public void finish() throws IOException {
+        if (closed) {
+            throw new IOException("The writer is closed.");
+        }
+        if (finished) {
+            return;
+        }
+        closeEntry();
+        drain(0);
+        writeCentralDirectory();
+        out.flush();
+        finished = true;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    /**
+     * Finish the zip, and close the output.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        try {
+            finish();
+        } finally {
+            closed = true;
+            for (PendingChunk chunk : pendingChunks) {
+                if (chunk.data != null) {
+                    chunk.data.cancel(false);
+                }
+            }
+            pendingChunks.clear();
+            if (ownExecutor) {
+                executor.shutdown();
+            }
+            deflaterPool.close();
+            out.close();
+        }
+    }
+
+    /**
+     * Hand the current block over for compression (or as is, for stored entries), and start a new one.
+     */
+    private void submitBlock(boolean last) throws IOException {
+        byte[] data = block;
+        int length = blockLength;
+        Future<byte[]> result;
+        if (currentEntry.compression == 0) {
+            if (length == 0) {
+                return;
+            }
+            result = CompletableFuture.completedFuture(length == data.length ? data : Arrays.copyOf(data, length));
+        } else {
+            byte[] blockDictionary = dictionary;
+            result = executor.submit(() -> compressBlock(data, length, blockDictionary, last));
+            if (!last) {
+                dictionary = Arrays.copyOfRange(data, length - DICTIONARY_SIZE, length);
+            }
+        }
+        enqueue(new PendingChunk(ChunkKind.DATA, currentEntry, result));
+
+        block = last ? null : new byte[blockSize];
+        blockLength = 0;
+    }
+
+    /**
+     * Compress a block of an entry. All but the last block end with a sync flush, i.e. at a byte boundary,
+     * without the final block bit, so that the next block can be appended to it.
+     */
+    private byte[] compressBlock(byte[] data, int length, byte[] blockDictionary, boolean last) {
+        Deflater deflater = deflaterPool.acquire();
+        try {
+            if (blockDictionary != null) {
+                deflater.setDictionary(blockDictionary);
+            }
+            deflater.setInput(data, 0, length);
+
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(length / 2 + 64);
+            byte[] buffer = new byte[Math.max(length / 2, 8192)];
+            if (last) {
+                deflater.finish();
+                while (!deflater.finished()) {
+                    int count = deflater.deflate(buffer);
+                    compressed.write(buffer, 0, count);
+                }
+            } else {
+                int count;
+                do {
+                    count = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+                    compressed.write(buffer, 0, count);
+                } while (count == buffer.length);
+            }
+            return compressed.toByteArray();
+        } finally {
+            deflaterPool.release(deflater);
+        }
+    }
+
+    private void enqueue(PendingChunk chunk) throws IOException {
+        pendingChunks.add(chunk);
+        drain(maxPendingChunks);
+    }
+
+    /**
+     * Write out the oldest pending chunks, until at most the given number of chunks is pending.
+     */
+    private void drain(int maxPending) throws IOException {
+        while (pendingChunks.size() > maxPending) {
+            PendingChunk chunk = pendingChunks.poll();
+            EntryRecord record = chunk.record;
+            switch (chunk.kind) {
+                case LOCAL_HEADER:
+                    record.localHeaderOffset = written;
+                    writeOut(createLocalHeader(record));
+                    break;
+                case DATA:
+                    byte[] data = await(chunk.data);
+                    writeOut(data);
+                    if ((record.flags & FLAG_DATA_DESCRIPTOR) != 0) {
+                        record.compressedSize += data.length;
+                    }
+                    break;
+                default:
+                    writeOut(createDataDescriptor(record));
+                    break;
+            }
+        }
+    }
+
+    private byte[] await(Future<byte[]> data) throws IOException {
+        try {
+            return data.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while compressing", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Could not compress a block", e.getCause());
+        }
+    }
+
+    private void writeOut(byte[] data) throws IOException {
+        out.write(data);
+        written += data.length;
+    }
+
+    private byte[] createLocalHeader(EntryRecord record) {
+        // entries with a data descriptor have no sizes yet, the others have ZIP64 sizes in the extra field if needed
+        boolean hasDescriptor = (record.flags & FLAG_DATA_DESCRIPTOR) != 0;
+        boolean zip64 = !hasDescriptor && (record.compressedSize >= ZIP64_MAGIC || record.uncompressedSize >= ZIP64_MAGIC);
+        int zip64ExtraLength = zip64 ? 4 + 16 : 0;
+
+        ByteBuffer buffer = ByteBuffer.allocate(30 + record.nameBytes.length + zip64ExtraLength + record.extraField.length)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(ZipConstants.SIG_LOCAL_FILE_HEADER);
+        buffer.putShort(record.getExtractorVersion(zip64));
+        buffer.putShort((short) record.flags);
+        buffer.putShort(record.compression);
+        buffer.putInt(record.dosDateTime);
+        if (hasDescriptor) {
+            buffer.putInt(0);
+            buffer.putInt(0);
+            buffer.putInt(0);
+        } else {
+            buffer.putInt(record.crc32);
+            buffer.putInt((int) (zip64 ? ZIP64_MAGIC : record.compressedSize));
+            buffer.putInt((int) (zip64 ? ZIP64_MAGIC : record.uncompressedSize));
+        }
+        buffer.putShort((short) record.nameBytes.length);
+        buffer.putShort((short) (zip64ExtraLength + record.extraField.length));
+        buffer.put(record.nameBytes);
+        if (zip64) {
+            buffer.putShort((short) ZIP64_EXTRA_ID);
+            buffer.putShort((short) 16);
+            buffer.putLong(record.uncompressedSize);
+            buffer.putLong(record.compressedSize);
+        }
+        buffer.put(record.extraField);
+        return buffer.array();
+    }
+
+    private byte[] createDataDescriptor(EntryRecord record) {
+        // like java.util.zip, the sizes are 8 bytes each only when they do not fit in 4 bytes
+        boolean zip64 = record.compressedSize >= ZIP64_MAGIC || record.uncompressedSize >= ZIP64_MAGIC;
+        ByteBuffer buffer = ByteBuffer.allocate(zip64 ? 24 : 16).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(ZipConstants.SIG_DATA_DESCRIPTOR);
+        buffer.putInt(record.crc32);
+        if (zip64) {
+            buffer.putLong(record.compressedSize);
+            buffer.putLong(record.uncompressedSize);
+        } else {
+            buffer.putInt((int) record.compressedSize);
+            buffer.putInt((int) record.uncompressedSize);
+        }
+        return buffer.array();
+    }
+
+    private void writeCentralDirectory() throws IOException {
+        long centralDirOffset = written;
+        for (EntryRecord record : records) {
+            writeOut(createCentralDirFileHeader(record));
+        }
+        long centralDirSize = written - centralDirOffset;
+        int entryCount = records.size();
+
+        if (entryCount >= ZIP64_MAGIC_COUNT || centralDirSize >= ZIP64_MAGIC || centralDirOffset >= ZIP64_MAGIC) {
+            long zip64RecordOffset = written;
+            ByteBuffer zip64Record = ByteBuffer.allocate(56 + 20).order(ByteOrder.LITTLE_ENDIAN);
+            zip64Record.putInt(ZipConstants.SIG_ZIP64_END_OF_CENTRAL_DIR_RECORD);
+            zip64Record.putLong(44);
+            zip64Record.putShort(VERSION_ZIP64);
+            zip64Record.putShort(VERSION_ZIP64);
+            zip64Record.putInt(0);
+            zip64Record.putInt(0);
+            zip64Record.putLong(entryCount);
+            zip64Record.putLong(entryCount);
+            zip64Record.putLong(centralDirSize);
+            zip64Record.putLong(centralDirOffset);
+
+            zip64Record.putInt(ZipConstants.SIG_ZIP64_END_OF_CENTRAL_DIR_LOCATOR);
+            zip64Record.putInt(0);
+            zip64Record.putLong(zip64RecordOffset);
+            zip64Record.putInt(1);
+            writeOut(zip64Record.array());
+        }
+
+        ByteBuffer ecdRecord = ByteBuffer.allocate(22 + comment.length).order(ByteOrder.LITTLE_ENDIAN);
+        ecdRecord.putInt(ZipConstants.SIG_END_OF_CENTRAL_DIR_RECORD);
+        ecdRecord.putShort((short) 0);
+        ecdRecord.putShort((short) 0);
+        ecdRecord.putShort((short) Math.min(entryCount, ZIP64_MAGIC_COUNT));
+        ecdRecord.putShort((short) Math.min(entryCount, ZIP64_MAGIC_COUNT));
+        ecdRecord.putInt((int) Math.min(centralDirSize, ZIP64_MAGIC));
+        ecdRecord.putInt((int) Math.min(centralDirOffset, ZIP64_MAGIC));
+        ecdRecord.putShort((short) comment.length);
+        ecdRecord.put(comment);
+        writeOut(ecdRecord.array());
+    }
+
+    private byte[] createCentralDirFileHeader(EntryRecord record) {
+        boolean zip64Uncompressed = record.uncompressedSize >= ZIP64_MAGIC;
+        boolean zip64Compressed = record.compressedSize >= ZIP64_MAGIC;
+        boolean zip64Offset = record.localHeaderOffset >= ZIP64_MAGIC;
+        int zip64DataLength = (zip64Uncompressed ? 8 : 0) + (zip64Compressed ? 8 : 0) + (zip64Offset ? 8 : 0);
+        int zip64ExtraLength = zip64DataLength > 0 ? 4 + zip64DataLength : 0;
+
+        ByteBuffer buffer = ByteBuffer.allocate(
+                46 + record.nameBytes.length + zip64ExtraLength + record.extraField.length + record.commentBytes.length
+        ).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(ZipConstants.SIG_CENTRAL_DIR_FILE_HEADER);
+        buffer.putShort(record.getCreatorVersion(zip64DataLength > 0));
+        buffer.putShort(record.getExtractorVersion(zip64DataLength > 0));
+        buffer.putShort((short) record.flags);
+        buffer.putShort(record.compression);
+        buffer.putInt(record.dosDateTime);
+        buffer.putInt(record.crc32);
+        buffer.putInt((int) (zip64Compressed ? ZIP64_MAGIC : record.compressedSize));
+        buffer.putInt((int) (zip64Uncompressed ? ZIP64_MAGIC : record.uncompressedSize));
+        buffer.putShort((short) record.nameBytes.length);
+        buffer.putShort((short) (zip64ExtraLength + record.extraField.length));
+        buffer.putShort((short) record.commentBytes.length);
+        buffer.putShort((short) 0);
+        buffer.putShort(record.internalAttributes);
+        buffer.putInt(record.externalAttributes);
+        buffer.putInt((int) (zip64Offset ? ZIP64_MAGIC : record.localHeaderOffset));
+        buffer.put(record.nameBytes);
+        if (zip64DataLength > 0) {
+            // the fields that are present are in this fixed order
+            buffer.putShort((short) ZIP64_EXTRA_ID);
+            buffer.putShort((short) zip64DataLength);
+            if (zip64Uncompressed) {
+                buffer.putLong(record.uncompressedSize);
+            }
+            if (zip64Compressed) {
+                buffer.putLong(record.compressedSize);
+            }
+            if (zip64Offset) {
+                buffer.putLong(record.localHeaderOffset);
+            }
+        }
+        buffer.put(record.extraField);
+        buffer.put(record.commentBytes);
+        return buffer.array();
+    }
+
+    /**
+     * Remove the ZIP64 extended information fields from an extra field, as the writer writes its own.
+     */
+    private static byte[] removeZip64ExtraField(byte[] extraField) {
+        if (extraField == null) {
+            return null;
+        }
+
+        ByteBuffer scanBuffer = ByteBuffer.wrap(extraField).order(ByteOrder.LITTLE_ENDIAN);
+        ByteArrayOutputStream kept = new ByteArrayOutputStream(extraField.length);
+        while (scanBuffer.remaining() >= 4) {
+            int start = scanBuffer.position();
+            int id = Short.toUnsignedInt(scanBuffer.getShort());
+            int size = Short.toUnsignedInt(scanBuffer.getShort());
+            if (size > scanBuffer.remaining()) {
+                // malformed trailing field, keep it as it is
+                scanBuffer.position(start);
+                break;
+            }
+            if (id != ZIP64_EXTRA_ID) {
+                kept.write(extraField, start, 4 + size);
+            }
+            scanBuffer.position(scanBuffer.position() + size);
+        }
+        kept.write(extraField, scanBuffer.position(), scanBuffer.remaining());
+        return kept.toByteArray();
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("The writer is closed.");
+        }
+        if (finished) {
+            throw new IOException("The writer is finished.");
+        }
+    }
+
+    /**
+     * An output chunk waiting to be written.
+     */
+    private static final class PendingChunk {
+        private final ChunkKind kind;
+        private final EntryRecord record;
+
+        /**
+         * the data of a data chunk, possibly still being compressed
+         */
+        private final Future<byte[]> data;
+
+        PendingChunk(ChunkKind kind, EntryRecord record, Future<byte[]> data) {
+            this.kind = kind;
+            this.record = record;
+            this.data = data;
+        }
+    }
+
+    /**
+     * Everything the central directory needs to know about a written entry.
+     */
+    private static final class EntryRecord {
+        private final String name;
+        private final byte[] nameBytes;
+        private final byte[] extraField;
+        private final byte[] commentBytes;
+
+        private int flags;
+        private short compression;
+        private int dosDateTime;
+        private int crc32;
+        private long compressedSize;
+        private long uncompressedSize;
+        private long localHeaderOffset;
+
+        /**
+         * versions of a copied entry, or 0 to use the versions this writer needs
+         */
+        private short creatorVersion;
+        private short extractorVersion;
+
+        private short internalAttributes;
+        private int externalAttributes;
+
+        /**
+         * @param name      The decoded name, for error messages.
+         * @param nameBytes The name as written to the zip.
+         */
+        EntryRecord(String name, byte[] nameBytes, byte[] extraField, byte[] commentBytes) {
+            this.name = name;
+            this.nameBytes = nameBytes;
+            this.extraField = extraField == null ? new byte[0] : extraField;
+            this.commentBytes = commentBytes == null ? new byte[0] : commentBytes;
+            if (nameBytes.length > 0xFFFF ||
+                    this.extraField.length > 0xFFFF - 32 ||
+                    this.commentBytes.length > 0xFFFF) {
+                throw new IllegalArgumentException("Entry name, extra field or comment is too long: " + name);
+            }
+        }
+
+        /**
+         * Create the record of a new entry, whose name and comment are written in UTF-8.
+         */
+        static EntryRecord ofUtf8(String name, byte[] extraField, String comment) {
+            byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+            byte[] commentBytes = comment == null ? null : comment.getBytes(StandardCharsets.UTF_8);
+            EntryRecord record = new EntryRecord(name, nameBytes, extraField, commentBytes);
+
+            // UTF-8 only needs the flag if the name or the comment is not plain ASCII
+            if (nameBytes.length != name.length() || (comment != null && commentBytes.length != comment.length())) {
+                record.flags = FLAG_LANGUAGE_ENCODING;
+            }
+            return record;
+        }
+
+        short getCreatorVersion(boolean zip64) {
+            return creatorVersion != 0 ?
+                    creatorVersion :
+                    getExtractorVersion(zip64);
+        }
+
+        short getExtractorVersion(boolean zip64) {
+            short version = extractorVersion != 0 ? extractorVersion : VERSION_DEFAULT;
+            return zip64 ? (short) Math.max(version, VERSION_ZIP64) : version;
+        }
+    }
+}
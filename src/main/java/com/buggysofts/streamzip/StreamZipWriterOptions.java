@@ -0,0 +1,58 @@
+package com.buggysofts.streamzip;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+import lombok.experimental.Accessors;
+
+import java.util.concurrent.ExecutorService;
+import java.util.zip.Deflater;
+
+/**
+ * Options that control how a {@link StreamZipWriter} compresses and writes entries.
+ * <br>
+ * The default values of the options give the behavior of {@code new StreamZipWriter(out)}.
+ */
+@Getter
+@Setter
+@ToString
+@Accessors(chain = true)
+public class StreamZipWriterOptions {
+    /**
+     * Default value of {@link #blockSize}, 128KB.
+     */
+    public static final int DEFAULT_BLOCK_SIZE = 128 * 1024;
+
+    /**
+     * Smallest allowed value of {@link #blockSize}, 32KB - the size of the window of the preceding data
+     * each block is compressed with.
+     */
+    public static final int MIN_BLOCK_SIZE = 32 * 1024;
+
+    /**
+     * Deflate compression level, from 0 (no compression) to 9 (best compression), or
+     * {@link Deflater#DEFAULT_COMPRESSION}.
+     */
+    private int level = Deflater.DEFAULT_COMPRESSION;
+
+    /**
+     * Size of the blocks the data of deflated entries is split into. The blocks are compressed in parallel.
+     * Smaller blocks allow more parallelism within an entry, at the cost of a slightly larger output.
+     * <br>
+     * The output of the writer only depends on the data, the level and the block size, never on the
+     * parallelism or the executor.
+     */
+    private int blockSize = DEFAULT_BLOCK_SIZE;
+
+    /**
+     * Number of threads of the executor the writer creates, when no executor is given.
+     * Defaults to the number of available processors.
+     */
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * If set, blocks are compressed on this executor instead of on threads of the writer.
+     * The executor is not shut down when the writer is closed.
+     */
+    private ExecutorService executor;
+}
@@ -0,0 +1,534 @@
+package com.buggysofts.streamzip;
+
+import lombok.NonNull;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * A reader that reads a zip front to back from a stream, e.g. a pipe or an upload, and hands each entry over
+ * as soon as its local file header is read - without the whole zip, and without the central directory at its end.
+ * <br>
+ * <br>
+ * {@link StreamZip} needs random access to the zip, as it starts with the central directory. This reader walks
+ * the local file headers instead, and reads the data of each entry right after its header. Entries whose sizes
+ * are only given by a data descriptor after the data (see {@link HeaderFlags#isDataDescriptor()}) are supported,
+ * both deflated (the end of the data is the end of the deflate stream), and stored (the end of the data is found by
+ * looking for the data descriptor). Entries compressed with other methods are decoded by their codecs
+ * (see {@link CompressionCodecs}), unless they have a data descriptor, as their data then has no known end.
+ * <br>
+ * <br>
+ * Optionally, the central directory is read after the entries, and checked against them
+ * (see {@link StreamingZipReaderOptions#setReconcileCentralDir(boolean)}).
+ */
+public class StreamingZipReader implements Closeable {
+    /**
+     * Size of the look-ahead buffers, which is also the number of bytes that can be pushed back to the source.
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private static final int LOCAL_FILE_HEADER_FIXED_LENGTH = 30;
+    private static final int CENTRAL_DIR_FILE_HEADER_FIXED_LENGTH = 46;
+
+    private static final int FLAG_DATA_DESCRIPTOR = 1 << 3;
+
+    /**
+     * Receives the entries of a zip, in the order of their data.
+     */
+    public interface EntryHandler {
+        /**
+         * Handle an entry of the zip.
+         * <br>
+         * <br>
+         * The given stream supplies the uncompressed data of the entry, and is only valid during this call. It does
+         * not have to be read to the end, or closed - the reader skips the rest of the data after the call. If the
+         * entry has a data descriptor, its CRC-32 and sizes are only known once its data is read to the end, and
+         * until then they are those of the local file header (usually 0 and -1).
+         */
+        void onEntry(@NonNull ZipEntry entry, @NonNull InputStream data) throws Exception;
+    }
+
+    private final PositionInputStream in;
+    private final StreamingZipReaderOptions options;
+    private final Inflater inflater;
+
+    /**
+     * the entries read so far, for reconciling them with the central directory
+     */
+    private final List<EntryRecord> records;
+
+    public StreamingZipReader(@NonNull InputStream in) {
+        this(in, new StreamingZipReaderOptions());
+    }
+
+    /**
+     * Create a reader with the specified options.
+     *
+     * @see StreamingZipReaderOptions
+     */
+    public StreamingZipReader(@NonNull InputStream in, @NonNull StreamingZipReaderOptions options) {
+        this.in = new PositionInputStream(in, BUFFER_SIZE);
+        this.options = options;
+        this.inflater = new Inflater(true);
+        this.records = new ArrayList<>();
+    }
+
+    /**
+     * Read all the entries of the zip, handing each of them to the given handler as it is read, and then
+     * reconcile them with the central directory, if requested.
+     *
+     * @return The number of entries read.
+     * @throws Exception If the zip is malformed or can not be read, or an entry uses a compression method that
+     *                   can not be read front to back, or fails a check, or the handler throws.
+     */
+    public int forEachEntry(@NonNull EntryHandler handler) throws Exception {
+        int entryCount = 0;
+        while (true) {
+            long headerOffset = in.getPosition();
+            byte[] signatureBytes = new byte[4];
+            int signatureLength = readUpTo(signatureBytes);
+            if (signatureLength == 0 && entryCount > 0 && !options.isReconcileCentralDir()) {
+                // a stream of local entries only, without a central directory
+                break;
+            }
+            if (signatureLength < 4) {
+                throw new Exception("Unexpected end of zip data.");
+            }
+
+            int signature = ByteBuffer.wrap(signatureBytes).order(ByteOrder.LITTLE_ENDIAN).getInt();
+            if (signature == ZipConstants.SIG_LOCAL_FILE_HEADER) {
+                readEntry(headerOffset, handler);
+                ++entryCount;
+            } else {
+                // the entries end where anything else starts, which is normally the central directory
+                if (options.isReconcileCentralDir()) {
+                    in.unread(signatureBytes);
+                    reconcileCentralDir();
+                }
+                break;
+            }
+        }
+        return entryCount;
+    }
+
+    private void readEntry(long headerOffset, EntryHandler handler) throws Exception {
+        // the signature is already read, read the rest of the fixed length part, then the variable length part
+        ByteBuffer fixedPart = ByteBuffer.allocate(LOCAL_FILE_HEADER_FIXED_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+        fixedPart.putInt(ZipConstants.SIG_LOCAL_FILE_HEADER);
+        readFully(fixedPart.array(), 4, LOCAL_FILE_HEADER_FIXED_LENGTH - 4);
+        int variableLength = LocalFileHeader.getVariableLengthDataLength(fixedPart, 0);
+        ByteBuffer headerBuffer = ByteBuffer.allocate(LOCAL_FILE_HEADER_FIXED_LENGTH + variableLength)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        headerBuffer.put(fixedPart.array());
+        readFully(headerBuffer.array(), LOCAL_FILE_HEADER_FIXED_LENGTH, variableLength);
+        headerBuffer.position(0);
+        LocalFileHeader header = new LocalFileHeader(headerBuffer, headerOffset);
+
+        boolean hasDataDescriptor = (header.getFlags() & FLAG_DATA_DESCRIPTOR) != 0;
+        int compression = Short.toUnsignedInt(header.getCompression());
+        CompressionCodec codec = null;
+        if (compression != 0 && compression != 8) {
+            // the end of the data of other methods is only known from the size in the header
+            codec = hasDataDescriptor ? null : CompressionCodecs.getCodec(compression);
+            if (codec == null) {
+                throw new Exception(
+                        String.format(
+                                "Unsupported compression method %d of entry %s",
+                                compression,
+                                header.getFileName()
+                        )
+                );
+            }
+        }
+
+        long compressedSize = toUnsigned(header.getCompressedSize());
+        long uncompressedSize = toUnsigned(header.getUncompressedSize());
+        ZipEntry entry = new ZipEntry(
+                header,
+                hasDataDescriptor ? -1 : compressedSize,
+                hasDataDescriptor ? -1 : uncompressedSize
+        );
+
+        // the compressed data, bounded by its size, or by what comes after it
+        BoundedInputStream boundedData = null;
+        StoredDataDescriptorInputStream storedData = null;
+        EntryInflaterInputStream inflaterStream = null;
+        InputStream data;
+        if (hasDataDescriptor) {
+            if (compression == 0) {
+                data = storedData = new StoredDataDescriptorInputStream(in, BUFFER_SIZE);
+            } else {
+                data = inflaterStream = new EntryInflaterInputStream(in, inflater, in);
+            }
+        } else {
+            boundedData = new BoundedInputStream(in, compressedSize);
+            boundedData.setPropagateClose(false);
+            if (compression == 0) {
+                data = boundedData;
+            } else if (codec != null) {
+                data = codec.decompress(boundedData, uncompressedSize);
+            } else {
+                data = inflaterStream = new EntryInflaterInputStream(boundedData, inflater, null);
+            }
+        }
+
+        CountingInputStream countedData = new CountingInputStream(data);
+        CheckedInputStream checkedData = new CheckedInputStream(countedData, new CRC32());
+        long dataStart = in.getPosition();
+        try {
+            handler.onEntry(entry, new NonClosableInputStream(checkedData));
+
+            // skip whatever the handler did not read
+            byte[] skipBuffer = new byte[8192];
+            while (checkedData.read(skipBuffer) >= 0) {
+                // the data is checked as it is read
+            }
+        } finally {
+            if (inflaterStream != null) {
+                inflater.reset();
+            }
+        }
+
+        int crc32 = (int) checkedData.getChecksum().getValue();
+        long actualUncompressedSize = countedData.getCount();
+        if (boundedData != null) {
+            // data past the end of the deflate stream, within the compressed size, is skipped
+            while (boundedData.skip(BUFFER_SIZE) > 0 || boundedData.read() >= 0) {
+                // skip to the end of the compressed data
+            }
+        }
+        long actualCompressedSize = in.getPosition() - dataStart;
+
+        if (hasDataDescriptor) {
+            if (storedData != null) {
+                // the descriptor was found by its values, which match the data by definition
+                actualCompressedSize = actualUncompressedSize = storedData.getLength();
+                compressedSize = uncompressedSize = storedData.getLength();
+                entry.setDataDescriptorValues(storedData.getCrc32(), compressedSize, uncompressedSize);
+            } else {
+                long[] descriptor = readDataDescriptor(
+                        hasZip64ExtraField(header.getExtraField()) ||
+                                actualCompressedSize >= 0xFFFFFFFFL ||
+                                actualUncompressedSize >= 0xFFFFFFFFL
+                );
+                compressedSize = descriptor[1];
+                uncompressedSize = descriptor[2];
+                entry.setDataDescriptorValues((int) descriptor[0], compressedSize, uncompressedSize);
+            }
+        }
+
+        if (options.isVerifyCrc()) {
+            if (actualCompressedSize != compressedSize || actualUncompressedSize != uncompressedSize) {
+                throw new Exception(
+                        String.format(
+                                "Size mismatch for entry %s - expected %d/%d bytes, read %d/%d bytes",
+                                entry.getFileName(),
+                                compressedSize,
+                                uncompressedSize,
+                                actualCompressedSize,
+                                actualUncompressedSize
+                        )
+                );
+            }
+            if (crc32 != entry.getCrc32()) {
+                throw new Exception(
+                        String.format(
+                                "CRC-32 mismatch for entry %s - expected %08x, computed %08x",
+                                entry.getFileName(),
+                                entry.getCrc32(),
+                                crc32
+                        )
+                );
+            }
+        }
+
+        if (options.isReconcileCentralDir()) {
+            records.add(
+                    new EntryRecord(
+                            entry.getFileName(),
+                            headerOffset,
+                            entry.getCrc32(),
+                            compressedSize,
+                            uncompressedSize
+                    )
+            );
+        }
+    }
+
+    /**
+     * Read the data descriptor of a deflated entry, with or without its (optional) signature.
+     *
+     * @return The CRC-32, the compressed size and the uncompressed size.
+     */
+    private long[] readDataDescriptor(boolean zip64) throws Exception {
+        ByteBuffer buffer = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(buffer.array(), 0, 4);
+        int value = buffer.getInt(0);
+        if (value == ZipConstants.SIG_DATA_DESCRIPTOR) {
+            readFully(buffer.array(), 0, 4);
+            value = buffer.getInt(0);
+        }
+
+        int sizeLength = zip64 ? 8 : 4;
+        ByteBuffer sizes = ByteBuffer.allocate(2 * sizeLength).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(sizes.array(), 0, 2 * sizeLength);
+        return zip64 ?
+                new long[]{value, sizes.getLong(0), sizes.getLong(8)} :
+                new long[]{value, Integer.toUnsignedLong(sizes.getInt(0)), Integer.toUnsignedLong(sizes.getInt(4))};
+    }
+
+    /**
+     * Read the central directory file headers that follow the entries, and check them against the entries.
+     */
+    private void reconcileCentralDir() throws Exception {
+        int headerCount = 0;
+        while (true) {
+            long headerOffset = in.getPosition();
+            ByteBuffer fixedPart = ByteBuffer.allocate(CENTRAL_DIR_FILE_HEADER_FIXED_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+            if (readUpTo(fixedPart.array(), 0, 4) < 4 ||
+                    fixedPart.getInt(0) != ZipConstants.SIG_CENTRAL_DIR_FILE_HEADER) {
+                break;
+            }
+            readFully(fixedPart.array(), 4, CENTRAL_DIR_FILE_HEADER_FIXED_LENGTH - 4);
+            int variableLength = Short.toUnsignedInt(fixedPart.getShort(28)) +
+                    Short.toUnsignedInt(fixedPart.getShort(30)) +
+                    Short.toUnsignedInt(fixedPart.getShort(32));
+            ByteBuffer headerBuffer = ByteBuffer.allocate(CENTRAL_DIR_FILE_HEADER_FIXED_LENGTH + variableLength)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            headerBuffer.put(fixedPart.array());
+            readFully(headerBuffer.array(), CENTRAL_DIR_FILE_HEADER_FIXED_LENGTH, variableLength);
+            headerBuffer.position(0);
+            CentralDirFileHeader header = new CentralDirFileHeader(headerBuffer, headerOffset);
+
+            if (headerCount >= records.size()) {
+                throw new Exception(
+                        String.format(
+                                "The central directory has an entry that was not found in the zip data: %s",
+                                header.getFileName()
+                        )
+                );
+            }
+            EntryRecord record = records.get(headerCount);
+            if (!record.fileName.equals(header.getFileName()) ||
+                    record.localHeaderOffset != header.getLocalFileHeaderOffset() ||
+                    record.crc32 != header.getCrc32() ||
+                    record.compressedSize != header.getCompressedSize() ||
+                    record.uncompressedSize != header.getUncompressedSize()) {
+                throw new Exception(
+                        String.format(
+                                "The central directory does not match the zip data at entry %s (central directory: %s)",
+                                record.fileName,
+                                header.getFileName()
+                        )
+                );
+            }
+            ++headerCount;
+        }
+
+        if (headerCount != records.size()) {
+            throw new Exception(
+                    String.format(
+                            "The central directory has %d entries, but the zip data has %d entries.",
+                            headerCount,
+                            records.size()
+                    )
+            );
+        }
+    }
+
+    /**
+     * Close the reader, and the stream it reads from.
+     */
+    @Override
+    public void close() throws IOException {
+        inflater.end();
+        in.close();
+    }
+
+    private int readUpTo(byte[] b) throws IOException {
+        return readUpTo(b, 0, b.length);
+    }
+
+    private int readUpTo(byte[] b, int off, int len) throws IOException {
+        int total = 0;
+        while (total < len) {
+            int readNum = in.read(b, off + total, len - total);
+            if (readNum < 0) {
+                break;
+            }
+            total += readNum;
+        }
+        return total;
+    }
+
+    private void readFully(byte[] b, int off, int len) throws IOException {
+        if (readUpTo(b, off, len) < len) {
+            throw new EOFException("Unexpected end of zip data");
+        }
+    }
+
+    private static long toUnsigned(long size) {
+        // sizes from the header itself are 32 bit values, sign extended
+        return size < 0 ? size & 0xFFFFFFFFL : size;
+    }
+
+    private static boolean hasZip64ExtraField(byte[] extraField) {
+        try {
+            new Zip64ExtInfo(extraField);
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     * An inflater stream over the data of an entry, which gives the bytes it read past the end of the
+     * deflate stream back to the source, so that the source is positioned right after the entry data.
+     */
+    private static final class EntryInflaterInputStream extends InflaterInputStream {
+        private final PushbackInputStream pushbackSource;
+        private boolean pushedBack;
+
+        EntryInflaterInputStream(InputStream in, Inflater inflater, PushbackInputStream pushbackSource) {
+            super(in, inflater, 8192);
+            this.pushbackSource = pushbackSource;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int length) throws IOException {
+            int readNum = super.read(b, off, length);
+            if (inf.finished() && !pushedBack) {
+                pushedBack = true;
+                int remaining = inf.getRemaining();
+                if (pushbackSource != null && remaining > 0) {
+                    pushbackSource.unread(buf, len - remaining, remaining);
+                }
+            }
+            return readNum;
+        }
+    }
+
+    /**
+     * A stream that counts the bytes read from it.
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+        private long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        long getCount() {
+            return count;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int value = super.read();
+            if (value >= 0) {
+                ++count;
+            }
+            return value;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int readNum = super.read(b, off, len);
+            if (readNum > 0) {
+                count += readNum;
+            }
+            return readNum;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+
+    /**
+     * A pushback stream that keeps track of its position, i.e. of the number of bytes read from it,
+     * less the number of bytes pushed back to it.
+     */
+    private static final class PositionInputStream extends PushbackInputStream {
+        private long position;
+
+        PositionInputStream(InputStream in, int size) {
+            super(in, size);
+        }
+
+        long getPosition() {
+            return position;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int value = super.read();
+            if (value >= 0) {
+                ++position;
+            }
+            return value;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int readNum = super.read(b, off, len);
+            if (readNum > 0) {
+                position += readNum;
+            }
+            return readNum;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            position += skipped;
+            return skipped;
+        }
+
+        @Override
+        public void unread(int b) throws IOException {
+            super.unread(b);
+            --position;
+        }
+
+        @Override
+        public void unread(byte[] b, int off, int len) throws IOException {
+            super.unread(b, off, len);
+            position -= len;
+        }
+    }
+
+    /**
+     * What the central directory is checked against.
+     */
+    private static final class EntryRecord {
+        private final String fileName;
+        private final long localHeaderOffset;
+        private final int crc32;
+        private final long compressedSize;
+        private final long uncompressedSize;
+
+        EntryRecord(String fileName, long localHeaderOffset, int crc32, long compressedSize, long uncompressedSize) {
+            this.fileName = fileName;
+            this.localHeaderOffset = localHeaderOffset;
+            this.crc32 = crc32;
+            this.compressedSize = compressedSize;
+            this.uncompressedSize = uncompressedSize;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.buggysofts.streamzip;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+import lombok.experimental.Accessors;
+
+/**
+ * Options that control how a {@link StreamingZipReader} reads a zip.
+ * <br>
+ * The default values of the options give the behavior of {@code new StreamingZipReader(in)}.
+ */
+@Getter
+@Setter
+@ToString
+@Accessors(chain = true)
+public class StreamingZipReaderOptions {
+    /**
+     * If true (the default), the CRC-32 and the size of the data of every entry are checked against its local
+     * header or its data descriptor, once the data is read.
+     */
+    private boolean verifyCrc = true;
+
+    /**
+     * If true, the central directory that follows the entries is read as well, and every central directory header
+     * is checked against the entry that was read at its offset - the name, the CRC-32 and the sizes. An entry that is
+     * missing from either side (e.g. data that was appended to the zip, or an entry removed from the central directory
+     * only) fails the check.
+     */
+    private boolean reconcileCentralDir;
+}
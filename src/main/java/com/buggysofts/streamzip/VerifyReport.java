@@ -0,0 +1,62 @@
+package com.buggysofts.streamzip;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.Map;
+
+/**
+ * The result of {@link StreamZip#verify(int)}.
+ */
+@Getter
+@ToString
+@AllArgsConstructor(access = AccessLevel.PACKAGE)
+public class VerifyReport {
+    /**
+     * Number of file entries that were checked.
+     */
+    private final int entryCount;
+
+    /**
+     * The entries that failed the check, by name, along with the reason, in the order of their data in the zip.
+     */
+    private final Map<String, String> failures;
+
+    /**
+     * Total compressed size of the checked entries, i.e. the number of bytes of entry data read from the zip.
+     */
+    private final long compressedBytes;
+
+    /**
+     * Total uncompressed size of the checked entries.
+     */
+    private final long uncompressedBytes;
+
+    /**
+     * Time the whole check took, in nanoseconds.
+     */
+    private final long elapsedNanos;
+
+    /**
+     * Whether all the entries passed the check.
+     */
+    public boolean isValid() {
+        return failures.isEmpty();
+    }
+
+    /**
+     * Get the rate the entry data was read from the zip at, in bytes per second.
+     */
+    public double getThroughput() {
+        return elapsedNanos > 0 ? compressedBytes * 1e9 / elapsedNanos : 0;
+    }
+
+    /**
+     * Get the rate the uncompressed data was checked at, in bytes per second.
+     */
+    public double getUncompressedThroughput() {
+        return elapsedNanos > 0 ? uncompressedBytes * 1e9 / elapsedNanos : 0;
+    }
+}
@@ -3,9 +3,7 @@ package com.buggysofts.streamzip;
 import lombok.Getter;
 import lombok.ToString;
 
-import java.io.FileInputStream;
 import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
 
 @Getter
 @ToString
@@ -15,25 +13,27 @@ class Zip64EndOfCentralDirLocator extends ChunkProperties {
     private long relativeZip64ECDROffset;
     private int diskCount;
 
-    public Zip64EndOfCentralDirLocator(FileInputStream in, long startOffset) throws Exception {
-        // reposition stream at chunk start
-        in.getChannel().position(this.offset = startOffset);
+    /**
+     * Parses a zip64 end of central directory locator from the given buffer.
+     * <br>
+     * The buffer must be in little endian order and positioned at the start of the locator.
+     *
+     * @param buffer      Buffer containing (at least) the whole locator.
+     * @param startOffset Offset of the locator within the zip file.
+     */
+    public Zip64EndOfCentralDirLocator(ByteBuffer buffer, long startOffset) throws Exception {
+        this.offset = startOffset;
 
         // according to the fixed length field sizes
         int fixedLengthDataLength = (2 * 4) + (8) + (4);
-        byte[] fixedDataChunk = StreamUtils.readFully(
-                in,
-                fixedLengthDataLength,
-                false
-        );
-        if (fixedDataChunk.length < fixedLengthDataLength) {
+        if (buffer.remaining() < fixedLengthDataLength) {
             throw new Exception("Malformed Zip64EOCDL (Zip64-End-of-Central-Directory-Locator");
         } else {
-            ByteBuffer buffer =
-                    ByteBuffer.wrap(fixedDataChunk)
-                            .order(ByteOrder.LITTLE_ENDIAN);
-
             this.signature = buffer.getInt();
+            if (this.signature != ZipConstants.SIG_ZIP64_END_OF_CENTRAL_DIR_LOCATOR) {
+                throw new Exception("Malformed Zip64EOCDL (Zip64-End-of-Central-Directory-Locator");
+            }
+
             this.diskIndex = buffer.getInt();
             this.relativeZip64ECDROffset = buffer.getLong();
             this.diskCount = buffer.getInt();
@@ -3,9 +3,7 @@ package com.buggysofts.streamzip;
 import lombok.Getter;
 import lombok.ToString;
 
-import java.io.FileInputStream;
 import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
 
 @Getter
 @ToString
@@ -21,25 +19,27 @@ class Zip64EndOfCentralDirRecord extends ChunkProperties {
     private final long centralDirSize;
     private final long centralDirStartOffset;
 
-    public Zip64EndOfCentralDirRecord(FileInputStream in, long startOffset) throws Exception {
-        // reposition stream at chunk start
-        in.getChannel().position(this.offset = startOffset);
+    /**
+     * Parses a zip64 end of central directory record from the given buffer.
+     * <br>
+     * The buffer must be in little endian order and positioned at the start of the record.
+     *
+     * @param buffer      Buffer containing (at least) the fixed length part of the record.
+     * @param startOffset Offset of the record within the zip file.
+     */
+    public Zip64EndOfCentralDirRecord(ByteBuffer buffer, long startOffset) throws Exception {
+        this.offset = startOffset;
 
         // according to the fixed length field sizes
         int fixedLengthDataLength = (4) + (8) + (2 * 2) + (2 * 4) + (8 * 4);
-        byte[] fixedDataChunk = StreamUtils.readFully(
-                in,
-                fixedLengthDataLength,
-                false
-        );
-        if (fixedDataChunk.length < fixedLengthDataLength) {
+        if (buffer.remaining() < fixedLengthDataLength) {
             throw new Exception("Malformed Zip64EOCDR (Zip64-End-of-Central-Directory-Record");
         } else {
-            ByteBuffer buffer =
-                    ByteBuffer.wrap(fixedDataChunk)
-                            .order(ByteOrder.LITTLE_ENDIAN);
-
             this.signature = buffer.getInt();
+            if (this.signature != ZipConstants.SIG_ZIP64_END_OF_CENTRAL_DIR_RECORD) {
+                throw new Exception("Malformed Zip64EOCDR (Zip64-End-of-Central-Directory-Record");
+            }
+
             this.sizeofZip64ECDR = buffer.getLong();
             this.creatorVersion = buffer.getShort();
             this.extractorVersion = buffer.getShort();
@@ -1,5 +1,6 @@
 package com.buggysofts.streamzip;
 
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NonNull;
 import lombok.ToString;
@@ -19,6 +20,26 @@ public class ZipEntry {
     private byte[] extraField;
     private String fileComment;
 
+    /**
+     * the index this entry was created from, or null if it was created by name
+     */
+    @Getter(AccessLevel.NONE)
+    @ToString.Exclude
+    private CentralDirIndex source;
+
+    /**
+     * index of this entry in its source index, or -1 if it was created by name
+     */
+    @Getter(AccessLevel.NONE)
+    @ToString.Exclude
+    private int sourceIndex = -1;
+
+    ZipEntry(@NonNull CentralDirFileHeader header, @NonNull CentralDirIndex source, int sourceIndex) {
+        this(header);
+        this.source = source;
+        this.sourceIndex = sourceIndex;
+    }
+
     public ZipEntry(@NonNull CentralDirFileHeader header) {
         this.crc32 = header.getCrc32();
         this.flags = header.getFlags();
@@ -40,6 +61,42 @@ public class ZipEntry {
         this.fileName = name;
     }
 
+    /**
+     * Create an entry from a local file header, with the given sizes, for reading a zip front to back.
+     */
+    ZipEntry(@NonNull LocalFileHeader header, long compressedSize, long uncompressedSize) {
+        this.crc32 = header.getCrc32();
+        this.flags = header.getFlags();
+        this.compression = header.getCompression();
+        this.compressedSize = compressedSize;
+        this.uncompressedSize = uncompressedSize;
+
+        this.lastModified = DateTimeUtils.convertMsDosDateTime(
+                header.getModTime(),
+                header.getModDate()
+        );
+
+        this.fileName = header.getFileName();
+        this.extraField = header.getExtraField();
+    }
+
+    /**
+     * Set the CRC-32 and the sizes of an entry whose data is followed by a data descriptor, once the
+     * descriptor is read.
+     */
+    void setDataDescriptorValues(int crc32, long compressedSize, long uncompressedSize) {
+        this.crc32 = crc32;
+        this.compressedSize = compressedSize;
+        this.uncompressedSize = uncompressedSize;
+    }
+
+    /**
+     * Get the index of this entry in the given index, if this entry was created from it, otherwise -1.
+     */
+    int getIndexIn(CentralDirIndex index) {
+        return source == index ? sourceIndex : -1;
+    }
+
     public boolean isDirectory() {
         return fileName.endsWith("/");
     }
@@ -0,0 +1,146 @@
+package com.buggysofts.streamzip;
+
+/**
+ * A reusable, read-only view of an entry of a {@link StreamZip}.
+ * <br>
+ * <br>
+ * Views are handed out by {@link StreamZip#forEachEntry(java.util.function.Consumer)} and
+ * {@link StreamZip#entryIterator()}, which move a single view from one entry to the next instead of
+ * creating a {@link ZipEntry} for each entry. So a view only describes the current entry until the
+ * next one is visited. Use {@link #toZipEntry()} to keep an entry for later use.
+ * <br>
+ * <br>
+ * The getters read directly from the central directory index, and other than {@link #getFileName()},
+ * {@link #getFileComment()}, {@link #getLastModified()} and {@link #toZipEntry()}, they do not allocate.
+ * Loops that only filter entries by name can use {@link #fileNameEquals(String)} and
+ * {@link #fileNameStartsWith(String)}, or copy the stored name with {@link #copyFileNameBytes(byte[], int)},
+ * instead of decoding a new name for every entry with {@link #getFileName()}. Likewise, loops that only compare or
+ * store modification times can use {@link #getLastModifiedDosTime()} instead of {@link #getLastModified()}, which
+ * converts the time in the local time zone.
+ */
+public final class ZipEntryView {
+    private final CentralDirIndex index;
+    private int entryIndex = -1;
+
+    ZipEntryView(CentralDirIndex index) {
+        this.index = index;
+    }
+
+    /**
+     * Move the view to the entry at the given index.
+     */
+    ZipEntryView moveTo(int entryIndex) {
+        this.entryIndex = entryIndex;
+        return this;
+    }
+
+    /**
+     * Get the position of the current entry in the central directory.
+     */
+    public int getIndex() {
+        return entryIndex;
+    }
+
+    /**
+     * Get the index of the current entry in the given index, if this view belongs to it, otherwise -1.
+     */
+    int getIndexIn(CentralDirIndex index) {
+        return this.index == index ? entryIndex : -1;
+    }
+
+    public String getFileName() {
+        return index.getFileName(entryIndex);
+    }
+
+    /**
+     * Get the length of the file name of the current entry in bytes, as stored in the zip.
+     */
+    public int getFileNameLength() {
+        return index.getFileNameLength(entryIndex);
+    }
+
+    /**
+     * Copy the file name of the current entry, as stored in the zip, into the given array at the given offset, which
+     * needs room for {@link #getFileNameLength()} bytes. Returns the number of bytes copied.
+     */
+    public int copyFileNameBytes(byte[] dst, int offset) {
+        return index.copyFileNameBytes(entryIndex, dst, offset);
+    }
+
+    /**
+     * Check whether the file name of the current entry equals the given name. ASCII names are compared without
+     * decoding the file name.
+     */
+    public boolean fileNameEquals(String name) {
+        return index.fileNameMatches(entryIndex, name, true);
+    }
+
+    /**
+     * Check whether the file name of the current entry starts with the given prefix. ASCII names are compared
+     * without decoding the file name.
+     */
+    public boolean fileNameStartsWith(String prefix) {
+        return index.fileNameMatches(entryIndex, prefix, false);
+    }
+
+    public String getFileComment() {
+        return index.getFileComment(entryIndex);
+    }
+
+    public int getCrc32() {
+        return index.getCrc32(entryIndex);
+    }
+
+    public short getFlags() {
+        return index.getFlags(entryIndex);
+    }
+
+    public short getCompression() {
+        return index.getCompression(entryIndex);
+    }
+
+    public long getCompressedSize() {
+        return index.getCompressedSize(entryIndex);
+    }
+
+    public long getUncompressedSize() {
+        return index.getUncompressedSize(entryIndex);
+    }
+
+    /**
+     * Get the last modification time of the current entry in milliseconds, converted from its MS-DOS date and
+     * time in the local time zone. The conversion allocates.
+     */
+    public long getLastModified() {
+        return DateTimeUtils.convertMsDosDateTime(
+                index.getModTime(entryIndex),
+                index.getModDate(entryIndex)
+        );
+    }
+
+    /**
+     * Get the last modification time of the current entry as stored in the zip, without converting it - the MS-DOS
+     * date in the upper 16 bits, and the MS-DOS time in the lower 16 bits, as with
+     * {@link DateTimeUtils#toMsDosDateTime(long)}. Later times compare greater with {@link Integer#compareUnsigned}.
+     */
+    public int getLastModifiedDosTime() {
+        return (Short.toUnsignedInt(index.getModDate(entryIndex)) << 16) |
+                Short.toUnsignedInt(index.getModTime(entryIndex));
+    }
+
+    public boolean isDirectory() {
+        return index.isDirectory(entryIndex);
+    }
+
+    /**
+     * Create a {@link ZipEntry} for the current entry, that remains valid after the view moves on.
+     */
+    public ZipEntry toZipEntry() {
+        return index.createEntry(entryIndex);
+    }
+
+    @Override
+    public String toString() {
+        return "ZipEntryView(index=" + entryIndex + ", fileName=" + getFileName() + ")";
+    }
+}
@@ -0,0 +1,77 @@
+package com.buggysofts.streamzip;
+
+/**
+ * Facade over the JDK Flight Recorder events of this library.
+ * <br>
+ * <br>
+ * Flight Recorder is not available on every runtime (e.g. on Android, or Java 8), so the events themselves live
+ * in the Java 11 version of {@link JfrZipEvents} in the multi-release jar, which is only loaded if the
+ * {@code jdk.jfr} API is present. Otherwise, every method of this class is a no-op.
+ * <br>
+ * <br>
+ * Each {@code begin...} method returns an opaque event handle, or null if the event is not being recorded,
+ * which is then passed to the matching {@code commit...} method. Callers use a null handle to skip any work
+ * that is only needed to fill the event.
+ */
+final class ZipEvents {
+    private static final boolean JFR_AVAILABLE = isJfrAvailable();
+
+    private ZipEvents() {
+    }
+
+    private static boolean isJfrAvailable() {
+        try {
+            Class.forName("jdk.jfr.Event", false, ZipEvents.class.getClassLoader());
+            return true;
+        } catch (Throwable e) {
+            return false;
+        }
+    }
+
+    public static Object beginArchiveOpen() {
+        return JFR_AVAILABLE ? JfrZipEvents.beginArchiveOpen() : null;
+    }
+
+    public static void commitArchiveOpen(Object event,
+                                         long centralDirSize,
+                                         long entryCount,
+                                         boolean zip64,
+                                         boolean indexLoadedFromFile) {
+        if (event != null) {
+            JfrZipEvents.commitArchiveOpen(event, centralDirSize, entryCount, zip64, indexLoadedFromFile);
+        }
+    }
+
+    public static Object beginSignatureScan() {
+        return JFR_AVAILABLE ? JfrZipEvents.beginSignatureScan() : null;
+    }
+
+    public static void commitSignatureScan(Object event, long bytesScanned, boolean found) {
+        if (event != null) {
+            JfrZipEvents.commitSignatureScan(event, bytesScanned, found);
+        }
+    }
+
+    public static Object beginEntryStreamOpen() {
+        return JFR_AVAILABLE ? JfrZipEvents.beginEntryStreamOpen() : null;
+    }
+
+    public static void commitEntryStreamOpen(Object event, String entryName, int compression, long compressedSize) {
+        if (event != null) {
+            JfrZipEvents.commitEntryStreamOpen(event, entryName, compression, compressedSize);
+        }
+    }
+
+    /**
+     * Begin the event that spans the lifetime of an entry stream, from its opening to its closing.
+     */
+    public static Object beginEntryStream() {
+        return JFR_AVAILABLE ? JfrZipEvents.beginEntryStream() : null;
+    }
+
+    public static void commitEntryStream(Object event, String entryName, long bytesRead, long inflateNanos) {
+        if (event != null) {
+            JfrZipEvents.commitEntryStream(event, entryName, bytesRead, inflateNanos);
+        }
+    }
+}
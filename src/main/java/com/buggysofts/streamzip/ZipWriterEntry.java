@@ -0,0 +1,52 @@
+package com.buggysofts.streamzip;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.Setter;
+import lombok.ToString;
+import lombok.experimental.Accessors;
+
+/**
+ * An entry to write with {@link StreamZipWriter#putNextEntry(ZipWriterEntry)}.
+ */
+@Getter
+@Setter
+@ToString
+@Accessors(chain = true)
+public class ZipWriterEntry {
+    /**
+     * Name of the entry, with a trailing '/' for directory entries.
+     */
+    private final String name;
+
+    /**
+     * Compression method, 8 (deflated, the default) or 0 (stored).
+     */
+    private short compression = 8;
+
+    /**
+     * Last modified time, in milliseconds, or -1 (the default) for the time the entry is written.
+     */
+    private long lastModified = -1;
+
+    /**
+     * Uncompressed size of the entry, or -1 if it is not known in advance.
+     * Required for stored entries, as they are written without a data descriptor.
+     */
+    private long size = -1;
+
+    /**
+     * CRC-32 of the uncompressed data, or -1 if it is not known in advance.
+     * Required for stored entries, as they are written without a data descriptor.
+     */
+    private long crc32 = -1;
+
+    @ToString.Exclude
+    private byte[] extraField;
+
+    private String comment;
+
+    public ZipWriterEntry(@NonNull String name) {
+        this.name = name;
+    }
+}
@@ -0,0 +1,23 @@
+package com.buggysofts.streamzip;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.InputStream;
+
+/**
+ * The built-in codec of Zstandard (compression method 93), decoded by {@link ZstdInputStream}.
+ */
+class ZstdCodec implements CompressionCodec {
+    static final int METHOD = 93;
+
+    @Override
+    public int getMethod() {
+        return METHOD;
+    }
+
+    @NotNull
+    @Override
+    public InputStream decompress(@NotNull InputStream compressedData, long uncompressedSize) {
+        return new ZstdInputStream(compressedData);
+    }
+}
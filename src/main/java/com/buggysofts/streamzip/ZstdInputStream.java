@@ -0,0 +1,1141 @@
+package com.buggysofts.streamzip;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * A stream that decodes Zstandard (RFC 8878) data, i.e. one or more Zstandard frames, and skippable frames.
+ * <br>
+ * <br>
+ * The decoder keeps the window of the current frame (the uncompressed data that back-references may refer to)
+ * and decodes one block at a time into it, so its memory use is bounded by the window size of the frame (or by its
+ * content size, if that is smaller), plus a few blocks. Frames that need a dictionary are not supported, and the
+ * optional content checksum of a frame is skipped, as zip entries have a CRC-32 of their own
+ * (see {@link StreamZipOptions#setVerifyCrc(boolean)}).
+ */
+class ZstdInputStream extends InputStream {
+    private static final int EOF = -1;
+
+    private static final int MAGIC = 0xFD2FB528;
+    private static final int SKIPPABLE_MAGIC = 0x184D2A50;
+    private static final int SKIPPABLE_MAGIC_MASK = 0xFFFFFFF0;
+
+    private static final int MAX_BLOCK_SIZE = 1 << 17;
+
+    /**
+     * the largest window this decoder accepts
+     */
+    private static final long MAX_WINDOW_SIZE = 1L << 30;
+
+    /**
+     * the most output kept in front of the window before it is moved to the start of the output buffer
+     */
+    private static final int MAX_WINDOW_SLACK = 1 << 24;
+
+    private static final int BLOCK_RAW = 0;
+    private static final int BLOCK_RLE = 1;
+    private static final int BLOCK_COMPRESSED = 2;
+
+    private static final int LITERALS_RAW = 0;
+    private static final int LITERALS_RLE = 1;
+    private static final int LITERALS_COMPRESSED = 2;
+
+    private static final int MODE_PREDEFINED = 0;
+    private static final int MODE_RLE = 1;
+    private static final int MODE_FSE = 2;
+
+    private static final int MAX_HUFFMAN_BITS = 11;
+
+    private static final int MAX_LITERALS_LENGTH_CODE = 35;
+    private static final int MAX_MATCH_LENGTH_CODE = 52;
+    private static final int MAX_OFFSET_CODE = 31;
+    private static final int MAX_LITERALS_LENGTH_ACCURACY = 9;
+    private static final int MAX_MATCH_LENGTH_ACCURACY = 9;
+    private static final int MAX_OFFSET_ACCURACY = 8;
+    private static final int MAX_HUFFMAN_WEIGHTS_ACCURACY = 6;
+
+    private static final int[] LITERALS_LENGTH_BASE = {
+            0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15,
+            16, 18, 20, 22, 24, 28, 32, 40, 48, 64, 128, 256, 512, 1024, 2048, 4096,
+            8192, 16384, 32768, 65536
+    };
+    private static final int[] LITERALS_LENGTH_BITS = {
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+            1, 1, 1, 1, 2, 2, 3, 3, 4, 6, 7, 8, 9, 10, 11, 12,
+            13, 14, 15, 16
+    };
+    private static final int[] MATCH_LENGTH_BASE = {
+            3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18,
+            19, 20, 21, 22, 23, 24, 25, 26, 27, 28, 29, 30, 31, 32, 33, 34,
+            35, 37, 39, 41, 43, 47, 51, 59, 67, 83, 99, 131, 259, 515, 1027, 2051,
+            4099, 8195, 16387, 32771, 65539
+    };
+    private static final int[] MATCH_LENGTH_BITS = {
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+            1, 1, 1, 1, 2, 2, 3, 3, 4, 4, 5, 7, 8, 9, 10, 11,
+            12, 13, 14, 15, 16
+    };
+
+    private static final FseTable PREDEFINED_LITERALS_LENGTH_TABLE;
+    private static final FseTable PREDEFINED_MATCH_LENGTH_TABLE;
+    private static final FseTable PREDEFINED_OFFSET_TABLE;
+
+    static {
+        try {
+            PREDEFINED_LITERALS_LENGTH_TABLE = new FseTable(MAX_LITERALS_LENGTH_ACCURACY);
+            PREDEFINED_LITERALS_LENGTH_TABLE.build(
+                    new short[]{
+                            4, 3, 2, 2, 2, 2, 2, 2, 2, 2, 2, 2, 2, 1, 1, 1,
+                            2, 2, 2, 2, 2, 2, 2, 2, 2, 3, 2, 1, 1, 1, 1, 1,
+                            -1, -1, -1, -1
+                    },
+                    36,
+                    6
+            );
+            PREDEFINED_MATCH_LENGTH_TABLE = new FseTable(MAX_MATCH_LENGTH_ACCURACY);
+            PREDEFINED_MATCH_LENGTH_TABLE.build(
+                    new short[]{
+                            1, 4, 3, 2, 2, 2, 2, 2, 2, 1, 1, 1, 1, 1, 1, 1,
+                            1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1,
+                            1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, -1, -1,
+                            -1, -1, -1, -1, -1
+                    },
+                    53,
+                    6
+            );
+            PREDEFINED_OFFSET_TABLE = new FseTable(MAX_OFFSET_ACCURACY);
+            PREDEFINED_OFFSET_TABLE.build(
+                    new short[]{
+                            1, 1, 1, 1, 1, 1, 2, 2, 2, 1, 1, 1, 1, 1, 1, 1,
+                            1, 1, 1, 1, 1, 1, 1, 1, -1, -1, -1, -1, -1
+                    },
+                    29,
+                    5
+            );
+        } catch (IOException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final InputStream in;
+    private final byte[] header = new byte[8];
+
+    /**
+     * the uncompressed data: [historyStart, readPos) is the history of the current frame,
+     * and [readPos, outputPos) the decoded bytes that are not read yet
+     */
+    private byte[] output;
+    private int historyStart;
+    private int readPos;
+    private int outputPos;
+
+    private boolean inFrame;
+    private boolean closed;
+
+    // state of the current frame
+    private int windowSize;
+    private int blockMaximumSize;
+    private boolean contentChecksum;
+    private long frameContentSize;
+    private long frameOutput;
+    private final int[] repeatedOffsets = new int[3];
+
+    // buffers and tables of the current block, some of which are reused by the following blocks
+    private final byte[] block = new byte[MAX_BLOCK_SIZE];
+    private final ByteBuffer blockView = ByteBuffer.wrap(block).order(ByteOrder.LITTLE_ENDIAN);
+    private final byte[] literals = new byte[MAX_BLOCK_SIZE];
+    private final HuffmanTable huffmanTable = new HuffmanTable();
+    private boolean huffmanTableValid;
+    private final FseTable literalsLengthTable = new FseTable(MAX_LITERALS_LENGTH_ACCURACY);
+    private final FseTable matchLengthTable = new FseTable(MAX_MATCH_LENGTH_ACCURACY);
+    private final FseTable offsetTable = new FseTable(MAX_OFFSET_ACCURACY);
+    private final FseTable huffmanWeightsTable = new FseTable(MAX_HUFFMAN_WEIGHTS_ACCURACY);
+    private FseTable currentLiteralsLengthTable;
+    private FseTable currentMatchLengthTable;
+    private FseTable currentOffsetTable;
+    private final BackwardBitReader bits = new BackwardBitReader();
+
+    public ZstdInputStream(InputStream in) {
+        this.in = in;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] single = new byte[1];
+        int readNum = read(single, 0, 1);
+        return readNum == EOF ? EOF : single[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        if (len == 0) {
+            return 0;
+        }
+
+        while (readPos == outputPos) {
+            if (!decodeNext()) {
+                return EOF;
+            }
+        }
+        int count = Math.min(len, outputPos - readPos);
+        System.arraycopy(output, readPos, b, off, count);
+        readPos += count;
+        return count;
+    }
+
+    @Override
+    public int available() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        return outputPos - readPos;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            in.close();
+        }
+    }
+
+    /**
+     * Decode the next block, starting a new frame if needed.
+     *
+     * @return False if the end of the data has been reached.
+     */
+    private boolean decodeNext() throws IOException {
+        if (!inFrame) {
+            if (!readFrameHeader()) {
+                return false;
+            }
+        }
+
+        readFully(header, 0, 3);
+        int blockHeader = (header[0] & 0xFF) | (header[1] & 0xFF) << 8 | (header[2] & 0xFF) << 16;
+        boolean lastBlock = (blockHeader & 1) != 0;
+        int blockType = (blockHeader >>> 1) & 3;
+        int blockSize = blockHeader >>> 3;
+        if (blockSize > blockMaximumSize) {
+            throw new IOException("Invalid Zstandard block size");
+        }
+
+        makeRoom();
+        int blockStart = outputPos;
+        switch (blockType) {
+            case BLOCK_RAW:
+                readFully(output, outputPos, blockSize);
+                outputPos += blockSize;
+                break;
+            case BLOCK_RLE:
+                // the size is the number of times the single byte of the block is repeated
+                readFully(header, 0, 1);
+                Arrays.fill(output, outputPos, outputPos + blockSize, header[0]);
+                outputPos += blockSize;
+                break;
+            case BLOCK_COMPRESSED:
+                readFully(block, 0, blockSize);
+                decodeCompressedBlock(blockSize);
+                break;
+            default:
+                throw new IOException("Invalid Zstandard block type");
+        }
+        frameOutput += outputPos - blockStart;
+
+        if (lastBlock) {
+            if (contentChecksum) {
+                readFully(header, 0, 4);
+            }
+            if (frameContentSize >= 0 && frameOutput != frameContentSize) {
+                throw new IOException("Zstandard frame content size mismatch");
+            }
+            inFrame = false;
+        }
+        return true;
+    }
+
+    /**
+     * Read the header of the next frame, skipping skippable frames.
+     *
+     * @return False if the end of the data has been reached.
+     */
+    private boolean readFrameHeader() throws IOException {
+        int magic;
+        while (true) {
+            int headerLength = readUpTo(header, 0, 4);
+            if (headerLength == 0) {
+                return false;
+            }
+            if (headerLength < 4) {
+                throw new EOFException("Unexpected end of Zstandard data");
+            }
+            magic = getInt(header, 0);
+            if ((magic & SKIPPABLE_MAGIC_MASK) != SKIPPABLE_MAGIC) {
+                break;
+            }
+            readFully(header, 0, 4);
+            skipFully(Integer.toUnsignedLong(getInt(header, 0)));
+        }
+        if (magic != MAGIC) {
+            throw new IOException("Invalid Zstandard frame");
+        }
+
+        readFully(header, 0, 1);
+        int descriptor = header[0] & 0xFF;
+        int contentSizeFlag = descriptor >>> 6;
+        boolean singleSegment = (descriptor & 0x20) != 0;
+        boolean reserved = (descriptor & 0x08) != 0;
+        int dictionaryIdFlag = descriptor & 3;
+        if (reserved) {
+            throw new IOException("Invalid Zstandard frame header");
+        }
+        contentChecksum = (descriptor & 0x04) != 0;
+
+        long declaredWindowSize = -1;
+        if (!singleSegment) {
+            readFully(header, 0, 1);
+            int exponent = (header[0] & 0xFF) >>> 3;
+            int mantissa = header[0] & 7;
+            long windowBase = 1L << (10 + exponent);
+            declaredWindowSize = windowBase + (windowBase >>> 3) * mantissa;
+        }
+
+        int dictionaryIdLength = dictionaryIdFlag == 3 ? 4 : dictionaryIdFlag;
+        readFully(header, 0, dictionaryIdLength);
+        for (int i = 0; i < dictionaryIdLength; ++i) {
+            if (header[i] != 0) {
+                throw new IOException("Zstandard dictionaries are not supported");
+            }
+        }
+
+        int contentSizeLength = contentSizeFlag == 0 ? (singleSegment ? 1 : 0) : 1 << contentSizeFlag;
+        readFully(header, 0, contentSizeLength);
+        switch (contentSizeLength) {
+            case 1:
+                frameContentSize = header[0] & 0xFF;
+                break;
+            case 2:
+                frameContentSize = ((header[0] & 0xFF) | (header[1] & 0xFF) << 8) + 256;
+                break;
+            case 4:
+                frameContentSize = Integer.toUnsignedLong(getInt(header, 0));
+                break;
+            case 8:
+                frameContentSize = ByteBuffer.wrap(header).order(ByteOrder.LITTLE_ENDIAN).getLong(0);
+                break;
+            default:
+                frameContentSize = -1;
+        }
+        if (singleSegment) {
+            declaredWindowSize = frameContentSize;
+        }
+        if (declaredWindowSize < 0 || declaredWindowSize > MAX_WINDOW_SIZE) {
+            throw new IOException("Unsupported Zstandard window size " + declaredWindowSize);
+        }
+
+        // back-references can not reach past the start of the frame, so a small frame needs a small window only
+        blockMaximumSize = (int) Math.min(declaredWindowSize, MAX_BLOCK_SIZE);
+        windowSize = (int) (frameContentSize >= 0 ? Math.min(declaredWindowSize, frameContentSize) : declaredWindowSize);
+        long outputSize = (long) windowSize + Math.max(Math.min(windowSize, MAX_WINDOW_SLACK), blockMaximumSize) +
+                blockMaximumSize;
+        if (output == null || output.length < outputSize) {
+            output = new byte[(int) outputSize];
+            outputPos = readPos = 0;
+        }
+        historyStart = outputPos;
+
+        frameOutput = 0;
+        repeatedOffsets[0] = 1;
+        repeatedOffsets[1] = 4;
+        repeatedOffsets[2] = 8;
+        huffmanTableValid = false;
+        currentLiteralsLengthTable = null;
+        currentMatchLengthTable = null;
+        currentOffsetTable = null;
+        inFrame = true;
+        return true;
+    }
+
+    /**
+     * Make sure there is room for a block in the output buffer, by moving the history to the start of the buffer.
+     * All the decoded bytes must have been read.
+     */
+    private void makeRoom() {
+        if (outputPos + blockMaximumSize <= output.length) {
+            return;
+        }
+        int keep = Math.min(windowSize, outputPos - historyStart);
+        System.arraycopy(output, outputPos - keep, output, 0, keep);
+        historyStart = 0;
+        outputPos = readPos = keep;
+    }
+
+    /**
+     * Decode a compressed block from the block buffer into the output buffer.
+     */
+    private void decodeCompressedBlock(int blockSize) throws IOException {
+        // literals section
+        int literalsType = block[0] & 3;
+        int sizeFormat = (block[0] >>> 2) & 3;
+        int literalsLength;
+        int position;
+        if (literalsType == LITERALS_RAW || literalsType == LITERALS_RLE) {
+            switch (sizeFormat) {
+                case 1:
+                    checkLength(2, blockSize);
+                    literalsLength = ((block[0] & 0xFF) >>> 4) | (block[1] & 0xFF) << 4;
+                    position = 2;
+                    break;
+                case 3:
+                    checkLength(3, blockSize);
+                    literalsLength = ((block[0] & 0xFF) >>> 4) | (block[1] & 0xFF) << 4 | (block[2] & 0xFF) << 12;
+                    position = 3;
+                    break;
+                default:
+                    literalsLength = (block[0] & 0xFF) >>> 3;
+                    position = 1;
+            }
+            if (literalsLength > MAX_BLOCK_SIZE) {
+                throw new IOException("Invalid Zstandard literals size");
+            }
+            if (literalsType == LITERALS_RAW) {
+                checkLength(position + literalsLength, blockSize);
+                System.arraycopy(block, position, literals, 0, literalsLength);
+                position += literalsLength;
+            } else {
+                checkLength(position + 1, blockSize);
+                byte value = block[position++];
+                Arrays.fill(literals, 0, literalsLength, value);
+            }
+        } else {
+            int headerLength = sizeFormat <= 1 ? 3 : sizeFormat + 2;
+            int sizeBits = sizeFormat <= 1 ? 10 : 4 * sizeFormat + 6;
+            boolean singleStream = sizeFormat == 0;
+            checkLength(headerLength, blockSize);
+            long literalsHeader = 0;
+            for (int i = headerLength - 1; i >= 0; --i) {
+                literalsHeader = literalsHeader << 8 | (block[i] & 0xFF);
+            }
+            literalsLength = (int) (literalsHeader >>> 4) & ((1 << sizeBits) - 1);
+            int compressedLength = (int) (literalsHeader >>> (4 + sizeBits)) & ((1 << sizeBits) - 1);
+            if (literalsLength > MAX_BLOCK_SIZE) {
+                throw new IOException("Invalid Zstandard literals size");
+            }
+            position = headerLength;
+            int literalsEnd = position + compressedLength;
+            checkLength(literalsEnd, blockSize);
+
+            if (literalsType == LITERALS_COMPRESSED) {
+                position = huffmanTable.read(block, position, literalsEnd, huffmanWeightsTable, bits);
+                huffmanTableValid = true;
+            } else if (!huffmanTableValid) {
+                throw new IOException("Missing Zstandard Huffman table");
+            }
+
+            if (singleStream) {
+                huffmanTable.decodeStream(block, position, literalsEnd, literals, 0, literalsLength, bits);
+            } else {
+                checkLength(position + 6, literalsEnd);
+                int length1 = blockView.getShort(position) & 0xFFFF;
+                int length2 = blockView.getShort(position + 2) & 0xFFFF;
+                int length3 = blockView.getShort(position + 4) & 0xFFFF;
+                int start1 = position + 6;
+                int start2 = start1 + length1;
+                int start3 = start2 + length2;
+                int start4 = start3 + length3;
+                int segmentLength = (literalsLength + 3) / 4;
+                int lastSegmentLength = literalsLength - 3 * segmentLength;
+                if (start4 > literalsEnd || lastSegmentLength < 0) {
+                    throw new IOException("Invalid Zstandard literals streams");
+                }
+                huffmanTable.decodeStream(block, start1, start2, literals, 0, segmentLength, bits);
+                huffmanTable.decodeStream(block, start2, start3, literals, segmentLength, segmentLength, bits);
+                huffmanTable.decodeStream(block, start3, start4, literals, 2 * segmentLength, segmentLength, bits);
+                huffmanTable.decodeStream(block, start4, literalsEnd, literals, 3 * segmentLength, lastSegmentLength, bits);
+            }
+            position = literalsEnd;
+        }
+
+        // sequences section
+        checkLength(position + 1, blockSize);
+        int sequenceCount = block[position++] & 0xFF;
+        if (sequenceCount >= 128) {
+            if (sequenceCount < 255) {
+                checkLength(position + 1, blockSize);
+                sequenceCount = ((sequenceCount - 128) << 8) + (block[position++] & 0xFF);
+            } else {
+                checkLength(position + 2, blockSize);
+                sequenceCount = (blockView.getShort(position) & 0xFFFF) + 0x7F00;
+                position += 2;
+            }
+        }
+
+        if (sequenceCount == 0) {
+            if (literalsLength > blockMaximumSize) {
+                throw new IOException("Invalid Zstandard block - too much data");
+            }
+            System.arraycopy(literals, 0, output, outputPos, literalsLength);
+            outputPos += literalsLength;
+            return;
+        }
+
+        checkLength(position + 1, blockSize);
+        int modes = block[position++] & 0xFF;
+        if ((modes & 3) != 0) {
+            throw new IOException("Invalid Zstandard sequences section");
+        }
+        int literalsLengthMode = modes >>> 6;
+        int offsetMode = (modes >>> 4) & 3;
+        int matchLengthMode = (modes >>> 2) & 3;
+        position = readSequenceTable(literalsLengthMode, position, blockSize, literalsLengthTable, MAX_LITERALS_LENGTH_CODE);
+        position = readSequenceTable(offsetMode, position, blockSize, offsetTable, MAX_OFFSET_CODE);
+        position = readSequenceTable(matchLengthMode, position, blockSize, matchLengthTable, MAX_MATCH_LENGTH_CODE);
+        currentLiteralsLengthTable = selectSequenceTable(
+                literalsLengthMode,
+                literalsLengthTable,
+                PREDEFINED_LITERALS_LENGTH_TABLE,
+                currentLiteralsLengthTable
+        );
+        currentOffsetTable = selectSequenceTable(
+                offsetMode,
+                offsetTable,
+                PREDEFINED_OFFSET_TABLE,
+                currentOffsetTable
+        );
+        currentMatchLengthTable = selectSequenceTable(
+                matchLengthMode,
+                matchLengthTable,
+                PREDEFINED_MATCH_LENGTH_TABLE,
+                currentMatchLengthTable
+        );
+
+        executeSequences(position, blockSize, sequenceCount, literalsLength);
+    }
+
+    /**
+     * Read the description of the table of one of the sequence symbol types, if its mode has one,
+     * into the given table.
+     *
+     * @return The position after the description.
+     */
+    private int readSequenceTable(int mode, int position, int end, FseTable table, int maxSymbol) throws IOException {
+        if (mode == MODE_RLE) {
+            checkLength(position + 1, end);
+            int symbol = block[position] & 0xFF;
+            if (symbol > maxSymbol) {
+                throw new IOException("Invalid Zstandard sequence symbol");
+            }
+            table.buildRle(symbol);
+            return position + 1;
+        } else if (mode == MODE_FSE) {
+            return table.read(block, position, end, maxSymbol);
+        } else {
+            return position;
+        }
+    }
+
+    /**
+     * Get the table of one of the sequence symbol types to use for a block, by its mode.
+     */
+    private static FseTable selectSequenceTable(int mode,
+                                                FseTable table,
+                                                FseTable predefined,
+                                                FseTable previous) throws IOException {
+        switch (mode) {
+            case MODE_PREDEFINED:
+                return predefined;
+            case MODE_RLE:
+            case MODE_FSE:
+                return table;
+            default:
+                // the table of the previous block is repeated
+                if (previous == null) {
+                    throw new IOException("Missing Zstandard sequence table");
+                }
+                return previous;
+        }
+    }
+
+    private void executeSequences(int start, int end, int sequenceCount, int literalsLength) throws IOException {
+        FseTable literalsLengthFse = currentLiteralsLengthTable;
+        FseTable offsetFse = currentOffsetTable;
+        FseTable matchLengthFse = currentMatchLengthTable;
+        byte[] output = this.output;
+        byte[] literals = this.literals;
+        int outputPos = this.outputPos;
+        int outputLimit = outputPos + blockMaximumSize;
+        int historyStart = this.historyStart;
+        int literalsPos = 0;
+        int offset1 = repeatedOffsets[0];
+        int offset2 = repeatedOffsets[1];
+        int offset3 = repeatedOffsets[2];
+
+        // this is the hot loop of the decoder, so the state of the bitstream is kept in locals rather than
+        // in a BackwardBitReader - see there for how it is read
+        bits.init(block, start, end);
+        int literalsLengthState = (int) bits.read(literalsLengthFse.accuracyLog);
+        int offsetState = (int) bits.read(offsetFse.accuracyLog);
+        int matchLengthState = (int) bits.read(matchLengthFse.accuracyLog);
+        bits.reload();
+        ByteBuffer view = blockView;
+        int position = bits.position;
+        long container = bits.container;
+        int consumed = bits.consumed;
+
+        for (int i = 0; i < sequenceCount; ++i) {
+            int offsetCode = offsetFse.symbols[offsetState];
+            int matchLengthCode = matchLengthFse.symbols[matchLengthState];
+            int literalsLengthCode = literalsLengthFse.symbols[literalsLengthState];
+
+            // (x << consumed) >>> 1 >>> (63 - n) is the next n bits, or 0 for n = 0
+            long offsetValue = (1L << offsetCode) + ((container << consumed) >>> 1 >>> (63 - offsetCode));
+            consumed += offsetCode;
+            if (consumed <= 64 && position > start) {
+                int byteCount = Math.min(consumed >>> 3, position - start);
+                position -= byteCount;
+                consumed -= byteCount << 3;
+                container = view.getLong(position);
+            }
+
+            int matchLengthBits = MATCH_LENGTH_BITS[matchLengthCode];
+            int matchLength = MATCH_LENGTH_BASE[matchLengthCode] +
+                    (int) ((container << consumed) >>> 1 >>> (63 - matchLengthBits));
+            consumed += matchLengthBits;
+            int literalsLengthBits = LITERALS_LENGTH_BITS[literalsLengthCode];
+            int sequenceLiteralsLength = LITERALS_LENGTH_BASE[literalsLengthCode] +
+                    (int) ((container << consumed) >>> 1 >>> (63 - literalsLengthBits));
+            consumed += literalsLengthBits;
+            if (consumed <= 64 && position > start) {
+                int byteCount = Math.min(consumed >>> 3, position - start);
+                position -= byteCount;
+                consumed -= byteCount << 3;
+                container = view.getLong(position);
+            }
+
+            int offset;
+            if (offsetValue > 3) {
+                if (offsetValue - 3 > Integer.MAX_VALUE) {
+                    throw new IOException("Invalid Zstandard offset");
+                }
+                offset = (int) (offsetValue - 3);
+                offset3 = offset2;
+                offset2 = offset1;
+                offset1 = offset;
+            } else {
+                int index = (int) offsetValue - 1;
+                if (sequenceLiteralsLength == 0) {
+                    ++index;
+                }
+                if (index == 0) {
+                    offset = offset1;
+                } else {
+                    offset = index == 1 ? offset2 : index == 2 ? offset3 : offset1 - 1;
+                    if (index > 1) {
+                        offset3 = offset2;
+                    }
+                    offset2 = offset1;
+                    offset1 = offset;
+                }
+            }
+
+            if (i < sequenceCount - 1) {
+                int stateBits = literalsLengthFse.bitCounts[literalsLengthState];
+                literalsLengthState = literalsLengthFse.bases[literalsLengthState] +
+                        (int) ((container << consumed) >>> 1 >>> (63 - stateBits));
+                consumed += stateBits;
+                stateBits = matchLengthFse.bitCounts[matchLengthState];
+                matchLengthState = matchLengthFse.bases[matchLengthState] +
+                        (int) ((container << consumed) >>> 1 >>> (63 - stateBits));
+                consumed += stateBits;
+                stateBits = offsetFse.bitCounts[offsetState];
+                offsetState = offsetFse.bases[offsetState] +
+                        (int) ((container << consumed) >>> 1 >>> (63 - stateBits));
+                consumed += stateBits;
+                if (consumed <= 64 && position > start) {
+                    int byteCount = Math.min(consumed >>> 3, position - start);
+                    position -= byteCount;
+                    consumed -= byteCount << 3;
+                    container = view.getLong(position);
+                }
+            }
+            if (consumed > 64) {
+                throw new IOException("Invalid Zstandard sequences bitstream");
+            }
+
+            // execute the sequence - copy the literals, then the match
+            if (sequenceLiteralsLength > literalsLength - literalsPos ||
+                    (long) sequenceLiteralsLength + matchLength > outputLimit - outputPos) {
+                throw new IOException("Invalid Zstandard sequence");
+            }
+            System.arraycopy(literals, literalsPos, output, outputPos, sequenceLiteralsLength);
+            literalsPos += sequenceLiteralsLength;
+            outputPos += sequenceLiteralsLength;
+
+            if (offset <= 0 || offset > outputPos - historyStart) {
+                throw new IOException("Invalid Zstandard offset");
+            }
+            int matchStart = outputPos - offset;
+            if (offset >= matchLength) {
+                System.arraycopy(output, matchStart, output, outputPos, matchLength);
+                outputPos += matchLength;
+            } else {
+                // the match overlaps the bytes it produces
+                for (int j = 0; j < matchLength; ++j) {
+                    output[outputPos++] = output[matchStart + j];
+                }
+            }
+        }
+        if (position != start || consumed != 64) {
+            throw new IOException("Invalid Zstandard sequences bitstream");
+        }
+
+        int remainingLiterals = literalsLength - literalsPos;
+        if (remainingLiterals > outputLimit - outputPos) {
+            throw new IOException("Invalid Zstandard block - too much data");
+        }
+        System.arraycopy(literals, literalsPos, output, outputPos, remainingLiterals);
+        this.outputPos = outputPos + remainingLiterals;
+        repeatedOffsets[0] = offset1;
+        repeatedOffsets[1] = offset2;
+        repeatedOffsets[2] = offset3;
+    }
+
+    private static void checkLength(int required, int available) throws IOException {
+        if (required > available) {
+            throw new IOException("Truncated Zstandard block");
+        }
+    }
+
+    private static int getInt(byte[] b, int off) {
+        return (b[off] & 0xFF) | (b[off + 1] & 0xFF) << 8 | (b[off + 2] & 0xFF) << 16 | (b[off + 3] & 0xFF) << 24;
+    }
+
+    private int readUpTo(byte[] b, int off, int len) throws IOException {
+        int total = 0;
+        while (total < len) {
+            int readNum = in.read(b, off + total, len - total);
+            if (readNum < 0) {
+                break;
+            }
+            total += readNum;
+        }
+        return total;
+    }
+
+    private void readFully(byte[] b, int off, int len) throws IOException {
+        if (readUpTo(b, off, len) < len) {
+            throw new EOFException("Unexpected end of Zstandard data");
+        }
+    }
+
+    private void skipFully(long n) throws IOException {
+        byte[] skipBuffer = new byte[(int) Math.min(8192, Math.max(n, 1))];
+        while (n > 0) {
+            int readNum = in.read(skipBuffer, 0, (int) Math.min(skipBuffer.length, n));
+            if (readNum < 0) {
+                throw new EOFException("Unexpected end of Zstandard data");
+            }
+            n -= readNum;
+        }
+    }
+
+    private static int highestBit(int value) {
+        return 31 - Integer.numberOfLeadingZeros(value);
+    }
+
+    /**
+     * A reader of a bitstream that is read backwards, from its last bit to its first, as the Huffman coded literals
+     * and the sequences are. The bits are read through a 64-bit container, which is reloaded from the stream as
+     * its bits are consumed. Bits read past the start of the stream are zeros.
+     */
+    private static final class BackwardBitReader {
+        private ByteBuffer view;
+        private int start;
+        private int position;
+        private long container;
+        private int consumed;
+
+        void init(byte[] src, int start, int end) throws IOException {
+            if (end <= start || src[end - 1] == 0) {
+                throw new IOException("Invalid Zstandard bitstream");
+            }
+            if (view == null || view.array() != src) {
+                view = ByteBuffer.wrap(src).order(ByteOrder.LITTLE_ENDIAN);
+            }
+            this.start = start;
+            // the highest set bit of the last byte marks the end of the stream
+            consumed = 8 - highestBit(src[end - 1] & 0xFF);
+            if (end - start >= 8) {
+                position = end - 8;
+                container = view.getLong(position);
+            } else {
+                position = start;
+                container = 0;
+                for (int i = end - 1; i >= start; --i) {
+                    container = container << 8 | (src[i] & 0xFF);
+                }
+                consumed += (8 - (end - start)) * 8;
+            }
+        }
+
+        long read(int count) {
+            if (count == 0) {
+                return 0;
+            }
+            long value = peek(count);
+            consumed += count;
+            return value;
+        }
+
+        long peek(int count) {
+            if (consumed >= 64) {
+                return 0;
+            }
+            return (container << consumed) >>> (64 - count);
+        }
+
+        void skip(int count) {
+            consumed += count;
+        }
+
+        void reload() {
+            if (consumed > 64 || position == start) {
+                return;
+            }
+            int byteCount = Math.min(consumed >>> 3, position - start);
+            position -= byteCount;
+            consumed -= byteCount << 3;
+            container = view.getLong(position);
+        }
+
+        /**
+         * Whether the container was reloaded from the stream with at most 7 bits consumed, i.e. it holds at
+         * least 57 unread bits of the stream.
+         */
+        boolean hasFullContainer() {
+            return position > start || consumed <= 7;
+        }
+
+        /**
+         * Whether more bits were read than the stream has.
+         */
+        boolean isOverflowed() {
+            return position == start && consumed > 64;
+        }
+
+        boolean isFullyConsumed() {
+            return position == start && consumed == 64;
+        }
+    }
+
+    /**
+     * A decoding table of finite state entropy (tANS) codes, as used for the sequence symbols,
+     * and for the weights of the Huffman codes.
+     */
+    private static final class FseTable {
+        final int[] symbols;
+        final int[] bitCounts;
+        final int[] bases;
+        int accuracyLog;
+
+        private final int maxAccuracyLog;
+        private final short[] probabilities = new short[256];
+        private final int[] nextStates = new int[256];
+
+        FseTable(int maxAccuracyLog) {
+            this.maxAccuracyLog = maxAccuracyLog;
+            this.symbols = new int[1 << maxAccuracyLog];
+            this.bitCounts = new int[1 << maxAccuracyLog];
+            this.bases = new int[1 << maxAccuracyLog];
+        }
+
+        /**
+         * Read a table description (the normalized probabilities of the symbols) from a forward bitstream,
+         * and build the table.
+         *
+         * @return The position after the description.
+         */
+        int read(byte[] src, int position, int end, int maxSymbol) throws IOException {
+            long bitPosition = (long) position << 3;
+            long bitEnd = (long) end << 3;
+
+            int log = 5 + (int) readForward(src, bitPosition, 4, end);
+            bitPosition += 4;
+            if (log > maxAccuracyLog) {
+                throw new IOException("Invalid Zstandard FSE table accuracy");
+            }
+
+            int remaining = 1 << log;
+            int symbolCount = 0;
+            while (remaining > 0) {
+                if (symbolCount > maxSymbol) {
+                    throw new IOException("Invalid Zstandard FSE table");
+                }
+                int bitCount = highestBit(remaining + 1) + 1;
+                int value = (int) readForward(src, bitPosition, bitCount, end);
+                bitPosition += bitCount;
+                int lowerMask = (1 << (bitCount - 1)) - 1;
+                int threshold = (1 << bitCount) - 1 - (remaining + 1);
+                if ((value & lowerMask) < threshold) {
+                    bitPosition -= 1;
+                    value &= lowerMask;
+                } else if (value > lowerMask) {
+                    value -= threshold;
+                }
+
+                int probability = value - 1;
+                remaining -= Math.abs(probability);
+                probabilities[symbolCount++] = (short) probability;
+                if (probability == 0) {
+                    // zero probabilities are followed by 2-bit repeat counts of further zeros
+                    while (true) {
+                        int repeat = (int) readForward(src, bitPosition, 2, end);
+                        bitPosition += 2;
+                        if (symbolCount + repeat > maxSymbol + 1) {
+                            throw new IOException("Invalid Zstandard FSE table");
+                        }
+                        for (int i = 0; i < repeat; ++i) {
+                            probabilities[symbolCount++] = 0;
+                        }
+                        if (repeat != 3) {
+                            break;
+                        }
+                    }
+                }
+            }
+            if (remaining != 0 || bitPosition > bitEnd) {
+                throw new IOException("Invalid Zstandard FSE table");
+            }
+
+            build(probabilities, symbolCount, log);
+            return (int) ((bitPosition + 7) >>> 3);
+        }
+
+        void build(short[] probabilities, int symbolCount, int log) throws IOException {
+            int size = 1 << log;
+            int highThreshold = size;
+            for (int symbol = 0; symbol < symbolCount; ++symbol) {
+                if (probabilities[symbol] == -1) {
+                    // "less than 1" probabilities get a single cell at the end of the table, and a full state reset
+                    symbols[--highThreshold] = symbol;
+                    nextStates[symbol] = 1;
+                }
+            }
+
+            int step = (size >>> 1) + (size >>> 3) + 3;
+            int mask = size - 1;
+            int cell = 0;
+            for (int symbol = 0; symbol < symbolCount; ++symbol) {
+                int probability = probabilities[symbol];
+                if (probability <= 0) {
+                    continue;
+                }
+                nextStates[symbol] = probability;
+                for (int i = 0; i < probability; ++i) {
+                    symbols[cell] = symbol;
+                    do {
+                        cell = (cell + step) & mask;
+                    } while (cell >= highThreshold);
+                }
+            }
+            if (cell != 0) {
+                throw new IOException("Invalid Zstandard FSE table");
+            }
+
+            for (int i = 0; i < size; ++i) {
+                int nextState = nextStates[symbols[i]]++;
+                bitCounts[i] = log - highestBit(nextState);
+                bases[i] = (nextState << bitCounts[i]) - size;
+            }
+            accuracyLog = log;
+        }
+
+        void buildRle(int symbol) {
+            symbols[0] = symbol;
+            bitCounts[0] = 0;
+            bases[0] = 0;
+            accuracyLog = 0;
+        }
+
+        /**
+         * Read bits of a forward bitstream, in which bits are numbered from the lowest bit of the first byte.
+         * Bits past the end of the stream are zeros.
+         */
+        private static long readForward(byte[] src, long bitPosition, int count, int end) {
+            long value = 0;
+            int bytePosition = (int) (bitPosition >>> 3);
+            int shift = (int) (bitPosition & 7);
+            for (int i = 0; i < 4 && bytePosition + i < end; ++i) {
+                value |= (src[bytePosition + i] & 0xFFL) << (8 * i);
+            }
+            return (value >>> shift) & ((1L << count) - 1);
+        }
+    }
+
+    /**
+     * A decoding table of the Huffman code of the literals.
+     */
+    private static final class HuffmanTable {
+        private final byte[] symbols = new byte[1 << MAX_HUFFMAN_BITS];
+        private final byte[] bitCounts = new byte[1 << MAX_HUFFMAN_BITS];
+        private int maxBits;
+
+        private final int[] weights = new int[256];
+        private final int[] rankCounts = new int[MAX_HUFFMAN_BITS + 2];
+        private final int[] rankStarts = new int[MAX_HUFFMAN_BITS + 2];
+
+        /**
+         * Read the description of the code, i.e. the weights of the symbols, and build the table.
+         *
+         * @return The position after the description.
+         */
+        int read(byte[] src, int position, int end, FseTable weightsTable, BackwardBitReader bits) throws IOException {
+            if (position >= end) {
+                throw new IOException("Truncated Zstandard Huffman table");
+            }
+            int headerByte = src[position++] & 0xFF;
+            int weightCount;
+            if (headerByte < 128) {
+                // the weights are FSE coded, with two interleaved states
+                int descriptionEnd = position + headerByte;
+                if (descriptionEnd > end) {
+                    throw new IOException("Truncated Zstandard Huffman table");
+                }
+                int streamStart = weightsTable.read(src, position, descriptionEnd, 255);
+                bits.init(src, streamStart, descriptionEnd);
+                int state1 = (int) bits.read(weightsTable.accuracyLog);
+                int state2 = (int) bits.read(weightsTable.accuracyLog);
+                weightCount = 0;
+                while (true) {
+                    if (weightCount > 253) {
+                        throw new IOException("Invalid Zstandard Huffman table");
+                    }
+                    weights[weightCount++] = weightsTable.symbols[state1];
+                    state1 = weightsTable.bases[state1] + (int) bits.read(weightsTable.bitCounts[state1]);
+                    bits.reload();
+                    if (bits.isOverflowed()) {
+                        weights[weightCount++] = weightsTable.symbols[state2];
+                        break;
+                    }
+
+                    weights[weightCount++] = weightsTable.symbols[state2];
+                    state2 = weightsTable.bases[state2] + (int) bits.read(weightsTable.bitCounts[state2]);
+                    bits.reload();
+                    if (bits.isOverflowed()) {
+                        weights[weightCount++] = weightsTable.symbols[state1];
+                        break;
+                    }
+                }
+                position = descriptionEnd;
+            } else {
+                // the weights are 4-bit values
+                weightCount = headerByte - 127;
+                int descriptionEnd = position + (weightCount + 1) / 2;
+                if (descriptionEnd > end) {
+                    throw new IOException("Truncated Zstandard Huffman table");
+                }
+                for (int i = 0; i < weightCount; ++i) {
+                    int value = src[position + i / 2] & 0xFF;
+                    weights[i] = (i & 1) == 0 ? value >>> 4 : value & 0xF;
+                }
+                position = descriptionEnd;
+            }
+            build(weightCount);
+            return position;
+        }
+
+        private void build(int weightCount) throws IOException {
+            // the weight of the last symbol is implied, by the total of the weights being a power of two
+            int total = 0;
+            for (int i = 0; i < weightCount; ++i) {
+                if (weights[i] > MAX_HUFFMAN_BITS) {
+                    throw new IOException("Invalid Zstandard Huffman table");
+                }
+                if (weights[i] > 0) {
+                    total += 1 << (weights[i] - 1);
+                }
+            }
+            if (total == 0) {
+                throw new IOException("Invalid Zstandard Huffman table");
+            }
+            maxBits = highestBit(total) + 1;
+            int left = (1 << maxBits) - total;
+            if (maxBits > MAX_HUFFMAN_BITS || Integer.bitCount(left) != 1) {
+                throw new IOException("Invalid Zstandard Huffman table");
+            }
+            weights[weightCount] = highestBit(left) + 1;
+            int symbolCount = weightCount + 1;
+
+            // codes are assigned by increasing weight (i.e. decreasing length), then by symbol
+            for (int i = 0; i < rankCounts.length; ++i) {
+                rankCounts[i] = 0;
+            }
+            for (int i = 0; i < symbolCount; ++i) {
+                if (weights[i] > 0) {
+                    rankCounts[maxBits + 1 - weights[i]]++;
+                }
+            }
+            rankStarts[maxBits] = 0;
+            for (int bitCount = maxBits; bitCount >= 1; --bitCount) {
+                int rangeLength = rankCounts[bitCount] << (maxBits - bitCount);
+                rankStarts[bitCount - 1] = rankStarts[bitCount] + rangeLength;
+                for (int i = rankStarts[bitCount]; i < rankStarts[bitCount - 1]; ++i) {
+                    bitCounts[i] = (byte) bitCount;
+                }
+            }
+            for (int symbol = 0; symbol < symbolCount; ++symbol) {
+                if (weights[symbol] > 0) {
+                    int bitCount = maxBits + 1 - weights[symbol];
+                    int code = rankStarts[bitCount];
+                    int rangeLength = 1 << (maxBits - bitCount);
+                    for (int i = code; i < code + rangeLength; ++i) {
+                        symbols[i] = (byte) symbol;
+                    }
+                    rankStarts[bitCount] += rangeLength;
+                }
+            }
+        }
+
+        /**
+         * Decode a Huffman coded stream of exactly {@code count} literals.
+         */
+        void decodeStream(byte[] src,
+                          int start,
+                          int end,
+                          byte[] dst,
+                          int off,
+                          int count,
+                          BackwardBitReader bits) throws IOException {
+            bits.init(src, start, end);
+            int maxBits = this.maxBits;
+            int i = 0;
+
+            // a reload leaves at least 57 bits in the container, enough for 5 codes of up to 11 bits
+            while (count - i >= 5 && bits.hasFullContainer()) {
+                for (int j = 0; j < 5; ++j) {
+                    int index = (int) bits.peek(maxBits);
+                    dst[off + i++] = symbols[index];
+                    bits.skip(bitCounts[index]);
+                }
+                bits.reload();
+            }
+            for (; i < count; ++i) {
+                int index = (int) bits.peek(maxBits);
+                dst[off + i] = symbols[index];
+                bits.skip(bitCounts[index]);
+                bits.reload();
+            }
+            if (!bits.isFullyConsumed()) {
+                throw new IOException("Invalid Zstandard literals stream");
+            }
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.buggysofts.streamzip;
+
+import java.nio.ByteBuffer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * The {@link ByteBuffer} methods of {@link Inflater}.
+ * <br>
+ * This is the Java 11 version of the class, packaged in {@code META-INF/versions/11} of the multi-release jar.
+ */
+final class BufferInflaters {
+    private BufferInflaters() {
+    }
+
+    public static boolean isAvailable() {
+        return true;
+    }
+
+    /**
+     * Set the input of the inflater to the remaining bytes of the given buffer. The position of the buffer
+     * moves forward as its bytes are inflated.
+     */
+    public static void setInput(Inflater inflater, ByteBuffer input) {
+        inflater.setInput(input);
+    }
+
+    /**
+     * Inflate into the remaining space of the given buffer, moving its position forward.
+     *
+     * @return The number of bytes inflated.
+     */
+    public static int inflate(Inflater inflater, ByteBuffer output) throws DataFormatException {
+        return inflater.inflate(output);
+    }
+}
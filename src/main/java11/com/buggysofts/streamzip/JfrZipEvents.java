@@ -0,0 +1,147 @@
+package com.buggysofts.streamzip;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * The JDK Flight Recorder events of this library.
+ * <br>
+ * This is the Java 11 version of the class, packaged in {@code META-INF/versions/11} of the multi-release jar.
+ * It must only be used through {@link ZipEvents}, which makes sure the {@code jdk.jfr} API is available.
+ */
+final class JfrZipEvents {
+    private static final String CATEGORY = "StreamZip";
+
+    private JfrZipEvents() {
+    }
+
+    public static Object beginArchiveOpen() {
+        return begin(new ArchiveOpenEvent());
+    }
+
+    public static void commitArchiveOpen(Object event,
+                                         long centralDirSize,
+                                         long entryCount,
+                                         boolean zip64,
+                                         boolean indexLoadedFromFile) {
+        ArchiveOpenEvent archiveOpenEvent = (ArchiveOpenEvent) event;
+        archiveOpenEvent.centralDirSize = centralDirSize;
+        archiveOpenEvent.entryCount = entryCount;
+        archiveOpenEvent.zip64 = zip64;
+        archiveOpenEvent.indexLoadedFromFile = indexLoadedFromFile;
+        archiveOpenEvent.commit();
+    }
+
+    public static Object beginSignatureScan() {
+        return begin(new SignatureScanEvent());
+    }
+
+    public static void commitSignatureScan(Object event, long bytesScanned, boolean found) {
+        SignatureScanEvent signatureScanEvent = (SignatureScanEvent) event;
+        signatureScanEvent.bytesScanned = bytesScanned;
+        signatureScanEvent.found = found;
+        signatureScanEvent.commit();
+    }
+
+    public static Object beginEntryStreamOpen() {
+        return begin(new EntryStreamOpenEvent());
+    }
+
+    public static void commitEntryStreamOpen(Object event, String entryName, int compression, long compressedSize) {
+        EntryStreamOpenEvent entryStreamOpenEvent = (EntryStreamOpenEvent) event;
+        entryStreamOpenEvent.entryName = entryName;
+        entryStreamOpenEvent.compression = compression;
+        entryStreamOpenEvent.compressedSize = compressedSize;
+        entryStreamOpenEvent.commit();
+    }
+
+    public static Object beginEntryStream() {
+        return begin(new EntryStreamEvent());
+    }
+
+    public static void commitEntryStream(Object event, String entryName, long bytesRead, long inflateNanos) {
+        EntryStreamEvent entryStreamEvent = (EntryStreamEvent) event;
+        entryStreamEvent.entryName = entryName;
+        entryStreamEvent.bytesRead = bytesRead;
+        entryStreamEvent.inflateTime = inflateNanos;
+        entryStreamEvent.commit();
+    }
+
+    private static Event begin(Event event) {
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.begin();
+        return event;
+    }
+
+    @Name("com.buggysofts.streamzip.ArchiveOpen")
+    @Label("Archive Open")
+    @Description("Opening of a zip file, i.e. reading its end of central directory records and its central directory")
+    @Category(CATEGORY)
+    static final class ArchiveOpenEvent extends Event {
+        @Label("Central Directory Size")
+        @DataAmount
+        long centralDirSize;
+
+        @Label("Entry Count")
+        long entryCount;
+
+        @Label("Zip64")
+        boolean zip64;
+
+        @Label("Index Loaded From File")
+        boolean indexLoadedFromFile;
+    }
+
+    @Name("com.buggysofts.streamzip.SignatureScan")
+    @Label("Signature Scan")
+    @Description("Backward search for the end of central directory record signature")
+    @Category(CATEGORY)
+    static final class SignatureScanEvent extends Event {
+        @Label("Bytes Scanned")
+        @DataAmount
+        long bytesScanned;
+
+        @Label("Found")
+        boolean found;
+    }
+
+    @Name("com.buggysofts.streamzip.EntryStreamOpen")
+    @Label("Entry Stream Open")
+    @Description("Opening of an entry stream, including the read of the local file header, if needed")
+    @Category(CATEGORY)
+    static final class EntryStreamOpenEvent extends Event {
+        @Label("Entry Name")
+        String entryName;
+
+        @Label("Compression Method")
+        int compression;
+
+        @Label("Compressed Size")
+        @DataAmount
+        long compressedSize;
+    }
+
+    @Name("com.buggysofts.streamzip.EntryStream")
+    @Label("Entry Stream")
+    @Description("Lifetime of an entry stream, from its opening to its closing")
+    @Category(CATEGORY)
+    static final class EntryStreamEvent extends Event {
+        @Label("Entry Name")
+        String entryName;
+
+        @Label("Bytes Read")
+        @DataAmount
+        long bytesRead;
+
+        @Label("Inflate Time")
+        @Timespan
+        long inflateTime;
+    }
+}